@@ -0,0 +1,120 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Flat vs hash-partitioned conversation_messages, side by side in the compose Postgres.
+# Both layouts get the same synthetic data; pgbench then measures history lookups and inserts on each.
+#
+#   BENCH_ROWS=100000000 BENCH_CONTACTS=1000000 ./scripts/bench-partitioning.sh
+#
+# Requires the compose stack with orchestrator migrations applied (uses uuid_v7()/uuid_v7_at() from V2).
+# The 100M-row default needs ~40 GB of disk and takes a while to load; use smaller values for a quick run.
+
+rows="${BENCH_ROWS:-100000000}"
+contacts="${BENCH_CONTACTS:-1000000}"
+partitions="${BENCH_PARTITIONS:-16}"
+clients="${BENCH_CLIENTS:-16}"
+duration="${BENCH_SECONDS:-60}"
+db="${ORCHESTRATOR_DB_NAME:-tagmind}"
+user="${ORCHESTRATOR_DB_USER:-tagmind}"
+
+compose_dir="$(cd "$(dirname "$0")/../infra/compose" && pwd)"
+
+psql_exec() {
+  (cd "${compose_dir}" && docker compose exec -T postgres psql -v ON_ERROR_STOP=1 -q -U "${user}" -d "${db}" "$@")
+}
+
+pgbench_exec() {
+  (cd "${compose_dir}" && docker compose exec -T postgres pgbench -n -U "${user}" -d "${db}" "$@")
+}
+
+echo "== TagMind partitioning benchmark: rows=${rows} contacts=${contacts} partitions=${partitions} =="
+
+echo "[1/4] create schemas..."
+psql_exec <<SQL
+DROP SCHEMA IF EXISTS bench_flat CASCADE;
+DROP SCHEMA IF EXISTS bench_part CASCADE;
+CREATE SCHEMA bench_flat;
+CREATE SCHEMA bench_part;
+
+CREATE TABLE bench_flat.conversation_messages (
+  id uuid PRIMARY KEY,
+  session_id uuid NOT NULL,
+  direction text NOT NULL,
+  message_text text NOT NULL,
+  created_at timestamptz NOT NULL,
+  request_id text NULL
+);
+
+CREATE TABLE bench_part.conversation_messages (
+  id uuid NOT NULL,
+  session_id uuid NOT NULL,
+  direction text NOT NULL,
+  message_text text NOT NULL,
+  created_at timestamptz NOT NULL,
+  request_id text NULL,
+  PRIMARY KEY (session_id, id)
+) PARTITION BY HASH (session_id);
+
+DO \$\$
+BEGIN
+  FOR i IN 0..${partitions} - 1 LOOP
+    EXECUTE format(
+      'CREATE TABLE bench_part.conversation_messages_p%s PARTITION OF bench_part.conversation_messages FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+      lpad(i::text, 3, '0'), ${partitions}, i
+    );
+  END LOOP;
+END
+\$\$;
+SQL
+
+echo "[2/4] load ${rows} rows into each layout..."
+for schema in bench_flat bench_part; do
+  psql_exec <<SQL
+INSERT INTO ${schema}.conversation_messages (id, session_id, direction, message_text, created_at, request_id)
+SELECT uuid_v7_at(ts), md5('contact' || (1 + (n % ${contacts})))::uuid,
+       CASE WHEN n % 2 = 0 THEN 'IN' ELSE 'OUT' END,
+       repeat('x', 40 + (n % 200)), ts, 'req_bench'
+FROM (
+  SELECT n, now() - interval '1 second' * (${rows} - n) AS ts
+  FROM generate_series(1, ${rows}) AS n
+) src;
+CREATE INDEX ON ${schema}.conversation_messages (session_id, created_at);
+VACUUM ANALYZE ${schema}.conversation_messages;
+SQL
+done
+
+echo "[3/4] pgbench scripts..."
+for schema in bench_flat bench_part; do
+  psql_exec -c "SELECT '${schema}' AS layout, pg_size_pretty(pg_total_relation_size(c.oid)) AS total
+                FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = '${schema}' AND c.relname = 'conversation_messages';"
+  (cd "${compose_dir}" && docker compose exec -T postgres sh -c "cat > /tmp/${schema}_history.sql" <<SQL
+\set contact random(1, ${contacts})
+SELECT direction, message_text, created_at FROM (
+  SELECT direction, message_text, created_at FROM ${schema}.conversation_messages
+  WHERE session_id = md5('contact' || :contact)::uuid
+  ORDER BY created_at DESC LIMIT 10
+) latest ORDER BY created_at ASC;
+SQL
+)
+  (cd "${compose_dir}" && docker compose exec -T postgres sh -c "cat > /tmp/${schema}_insert.sql" <<SQL
+\set contact random(1, ${contacts})
+INSERT INTO ${schema}.conversation_messages (id, session_id, direction, message_text, created_at, request_id)
+VALUES (uuid_v7(), md5('contact' || :contact)::uuid, 'IN', 'bench insert', now(), 'req_bench');
+SQL
+)
+done
+
+echo "[4/4] run (${clients} clients, ${duration}s each)..."
+for schema in bench_flat bench_part; do
+  for kind in history insert; do
+    echo "-- ${schema} ${kind}"
+    pgbench_exec -c "${clients}" -j "${clients}" -T "${duration}" -P 0 -r -f "/tmp/${schema}_${kind}.sql" \
+      | grep -E "latency average|tps =|latency stddev"
+  done
+done
+
+if [[ "${BENCH_KEEP:-}" != "1" ]]; then
+  psql_exec -c "DROP SCHEMA bench_flat CASCADE; DROP SCHEMA bench_part CASCADE;"
+fi
+echo "done"
@@ -0,0 +1,76 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Orchestrator cold start: plain jar vs CDS vs Spring AOT vs AOT+CDS (and native image when BENCH_NATIVE=1).
+# Each variant is started BENCH_RUNS times against the compose Postgres; we record the time until
+# /actuator/health answers UP and the process RSS at that moment, and print the median of each.
+#
+#   docker compose -f infra/compose/docker-compose.yml up -d postgres
+#   BENCH_RUNS=5 ./scripts/bench-startup.sh
+#
+# Native needs GraalVM 21+ as JAVA_HOME (BENCH_NATIVE=1 builds it with mvn -Pnative native:compile).
+
+runs="${BENCH_RUNS:-5}"
+port="${BENCH_PORT:-18082}"
+native="${BENCH_NATIVE:-0}"
+jdbc_url="${ORCHESTRATOR_JDBC_URL:-jdbc:postgresql://localhost:5432/tagmind}"
+
+stub_dir="$(cd "$(dirname "$0")/../services/orchestrator-api/stub" && pwd)"
+target="${stub_dir}/target"
+jar="orchestrator-api-0.0.1.jar"
+
+echo "== TagMind orchestrator startup benchmark: runs=${runs} =="
+
+echo "[1/2] build (-Paot,cds)..."
+(cd "${stub_dir}" && mvn -B -q -DskipTests -Paot,cds package)
+if [[ "${native}" == "1" ]]; then
+  echo "[1/2] build native image..."
+  (cd "${stub_dir}" && mvn -B -q -DskipTests -Pnative native:compile)
+fi
+
+# Starts "$@" in target/cds, waits for health UP, prints "<millis> <rss_kb>" and stops the process.
+measure() {
+  local start pid elapsed rss
+  start=$(date +%s%N)
+  (cd "${target}/cds" && exec env ORCHESTRATOR_JDBC_URL="${jdbc_url}" "$@" --server.port="${port}" >/dev/null 2>&1) &
+  pid=$!
+  for _ in $(seq 1 1200); do
+    if curl -fsS "http://localhost:${port}/actuator/health" 2>/dev/null | grep -q '"UP"'; then
+      break
+    fi
+    if ! kill -0 "${pid}" 2>/dev/null; then
+      echo "process exited before becoming healthy: $*" >&2
+      return 1
+    fi
+    sleep 0.05
+  done
+  elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+  rss=$(awk '/VmRSS/ {print $2}' "/proc/${pid}/status" 2>/dev/null || ps -o rss= -p "${pid}")
+  kill "${pid}" && wait "${pid}" 2>/dev/null || true
+  echo "${elapsed} ${rss}"
+}
+
+median() {
+  sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}'
+}
+
+bench() {
+  local name="$1"; shift
+  local samples=()
+  for _ in $(seq 1 "${runs}"); do
+    samples+=("$(measure "$@")")
+  done
+  local ms rss
+  ms=$(printf '%s\n' "${samples[@]}" | awk '{print $1}' | median)
+  rss=$(printf '%s\n' "${samples[@]}" | awk '{print $2}' | median)
+  printf '%-12s %10s ms %10s MB\n' "${name}" "${ms}" "$(( rss / 1024 ))"
+}
+
+echo "[2/2] measure (median time to healthy, RSS when healthy)..."
+bench "jar"     java -jar "../${jar}"
+bench "cds"     java -XX:SharedArchiveFile=app.jsa -jar "${jar}"
+bench "aot"     java -Dspring.aot.enabled=true -jar "${jar}"
+bench "aot+cds" java -Dspring.aot.enabled=true -XX:SharedArchiveFile=app.jsa -jar "${jar}"
+if [[ "${native}" == "1" ]]; then
+  bench "native" "${target}/orchestrator-api"
+fi
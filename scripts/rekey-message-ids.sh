@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Optional, out of band: gives conversation_messages rows that predate V2 time-ordered ids (uuid_v7_at(created_at)),
+# so the whole primary key follows insertion order. Nothing references message ids, so the service can keep running.
+#
+#   REKEY_BATCH=5000 REKEY_PAUSE=0.2 ./scripts/rekey-message-ids.sh
+#
+# Walks the primary key in batches of REKEY_BATCH, one short transaction each, and re-keys only ids that are not
+# version 7 yet, so it is safe to stop and run again. Runs against the compose Postgres like bench-partitioning.sh.
+# Finishes with VACUUM (ANALYZE); set REKEY_REINDEX=1 to also rebuild the primary key with REINDEX CONCURRENTLY.
+
+batch="${REKEY_BATCH:-5000}"
+pause="${REKEY_PAUSE:-0.2}"
+db="${ORCHESTRATOR_DB_NAME:-tagmind}"
+user="${ORCHESTRATOR_DB_USER:-tagmind}"
+
+compose_dir="$(cd "$(dirname "$0")/../infra/compose" && pwd)"
+
+psql_exec() {
+  (cd "${compose_dir}" && docker compose exec -T postgres psql -v ON_ERROR_STOP=1 -q -U "${user}" -d "${db}" "$@")
+}
+
+last="00000000-0000-0000-0000-000000000000"
+batches=0
+while :; do
+  # The data-modifying CTE runs even though the final SELECT does not read it. Rows it re-keys can move ahead of
+  # the cursor; they are version 7 by then and are skipped when the walk reaches them again.
+  next="$(psql_exec -At -v last="${last}" -v batch="${batch}" <<'SQL'
+WITH scanned AS (
+  SELECT id FROM conversation_messages WHERE id > :'last' ORDER BY id LIMIT :batch
+), rekeyed AS (
+  UPDATE conversation_messages m
+  SET id = uuid_v7_at(m.created_at)
+  FROM scanned s
+  WHERE m.id = s.id AND substring(m.id::text, 15, 1) <> '7'
+)
+SELECT max(id) FROM scanned;
+SQL
+)"
+  if [[ -z "${next}" ]]; then
+    break
+  fi
+  last="${next}"
+  batches=$((batches + 1))
+  if (( batches % 100 == 0 )); then
+    echo "  ${batches} batches, at ${last}"
+  fi
+  sleep "${pause}"
+done
+echo "re-keyed in ${batches} batches"
+
+psql_exec -c "VACUUM (ANALYZE) conversation_messages"
+if [[ "${REKEY_REINDEX:-0}" == "1" ]]; then
+  psql_exec -c "REINDEX INDEX CONCURRENTLY conversation_messages_pkey"
+fi
@@ -0,0 +1,15 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Replays an orchestrator traffic capture (tagmind.capture.enabled=true) against a test instance at 1x-10x speed,
+# then prints per-route status counts and latency percentiles next to the captured ones.
+#
+#   ./scripts/replay-traffic.sh --file /tmp/tagmind-capture.tsv --target http://localhost:8082 --speed 5
+#
+# Point the target at an instance wired to the local llm-gateway/web-retriever stubs (compose stack), never at
+# production. Other options: --max-idle 60s, --max-in-flight 512, --timeout 30s, --no-prime.
+
+stub_dir="$(cd "$(dirname "$0")/../services/orchestrator-api/stub" && pwd)"
+
+(cd "${stub_dir}" && mvn -q -DskipTests compile)
+exec java -cp "${stub_dir}/target/classes" dev.tagmind.orchestrator.capture.TrafficReplay "$@"
@@ -5,11 +5,20 @@ use axum::{
     routing::{get, post},
     Router,
 };
-use std::{net::SocketAddr, sync::Arc};
+use std::{
+    collections::HashMap,
+    net::SocketAddr,
+    sync::{Arc, Mutex},
+};
 use tokio::signal;
 
-#[derive(Clone)]
-struct AppState {}
+// Prompt prefixes by id. Ids are content hashes chosen by the caller, so an entry never goes stale;
+// the map is simply cleared when full and callers resend the text on PREFIX_UNKNOWN.
+struct AppState {
+    prefixes: Mutex<HashMap<String, String>>,
+}
+
+const MAX_PREFIXES: usize = 1024;
 
 #[derive(serde::Deserialize)]
 #[serde(rename_all = "camelCase")]
@@ -28,6 +37,8 @@ struct CompleteRequest {
     temperature: Option<f64>,
     max_tokens: Option<u32>,
     citations: Option<Vec<Citation>>,
+    prefix_id: Option<String>,
+    prefix: Option<String>,
 }
 
 #[derive(serde::Serialize)]
@@ -36,8 +47,54 @@ struct CompleteResponse {
     request_id: String,
     text: String,
     usage: serde_json::Value,
+    #[serde(skip_serializing_if = "Option::is_none")]
+    prefix_id: Option<String>,
+}
+
+#[derive(serde::Deserialize)]
+#[serde(rename_all = "camelCase")]
+struct BatchItem {
+    id: String,
+    request_id: Option<String>,
+    #[serde(flatten)]
+    request: CompleteRequest,
+}
+
+#[derive(serde::Deserialize)]
+struct BatchRequest {
+    items: Vec<BatchItem>,
+}
+
+#[derive(serde::Serialize)]
+#[serde(rename_all = "camelCase")]
+struct BatchResult {
+    id: String,
+    request_id: String,
+    #[serde(skip_serializing_if = "Option::is_none")]
+    text: Option<String>,
+    #[serde(skip_serializing_if = "Option::is_none")]
+    usage: Option<serde_json::Value>,
+    #[serde(skip_serializing_if = "Option::is_none")]
+    prefix_id: Option<String>,
+    #[serde(skip_serializing_if = "Option::is_none")]
+    error: Option<BatchError>,
+}
+
+#[derive(serde::Serialize)]
+struct BatchError {
+    code: String,
+    message: String,
 }
 
+#[derive(serde::Serialize)]
+#[serde(rename_all = "camelCase")]
+struct BatchResponse {
+    request_id: String,
+    results: Vec<BatchResult>,
+}
+
+const MAX_BATCH_ITEMS: usize = 64;
+
 #[derive(serde::Serialize)]
 #[serde(rename_all = "camelCase")]
 struct ErrorResponse {
@@ -70,25 +127,34 @@ async fn healthz(headers: HeaderMap) -> impl IntoResponse {
     (resp_headers, "ok\n")
 }
 
-async fn complete(
-    State(_state): State<Arc<AppState>>,
-    headers: HeaderMap,
-    Json(body): Json<CompleteRequest>,
-) -> impl IntoResponse {
-    let request_id = get_or_create_request_id(&headers);
+enum PrefixError {
+    Unknown,
+}
 
-    if body.prompt.trim().is_empty() {
-        let err = ErrorResponse {
-            request_id: request_id.clone(),
-            code: "BAD_REQUEST".to_string(),
-            message: "prompt is required".to_string(),
-        };
-        let mut resp_headers = HeaderMap::new();
-        resp_headers.insert("x-request-id", request_id.parse().unwrap());
-        return (StatusCode::BAD_REQUEST, resp_headers, Json(err)).into_response();
+// Stores a prefix sent with its text, or looks one up by id. Returns the prefix length in chars.
+fn resolve_prefix(state: &AppState, body: &CompleteRequest) -> Result<usize, PrefixError> {
+    let mut prefixes = state.prefixes.lock().unwrap();
+    match (&body.prefix_id, &body.prefix) {
+        (Some(id), Some(text)) => {
+            if prefixes.len() >= MAX_PREFIXES && !prefixes.contains_key(id) {
+                prefixes.clear();
+            }
+            prefixes.insert(id.clone(), text.clone());
+            Ok(text.chars().count())
+        }
+        (None, Some(text)) => Ok(text.chars().count()),
+        (Some(id), None) => prefixes
+            .get(id)
+            .map(|text| text.chars().count())
+            .ok_or(PrefixError::Unknown),
+        (None, None) => Ok(0),
     }
+}
 
-    // Phase 4 stub: no Gemini call yet.
+// Phase 4 stub: no Gemini call yet.
+fn generate(body: CompleteRequest, prefix_chars: usize) -> (String, serde_json::Value) {
+    let prompt_chars = prefix_chars + body.prompt.chars().count();
+    let prefix_id = body.prefix_id.clone();
     let locale = body.locale.unwrap_or_else(|| "ru-RU".to_string());
     let model = body.model.unwrap_or_else(|| "stub".to_string());
     let temperature = body.temperature.unwrap_or(0.7);
@@ -120,17 +186,58 @@ async fn complete(
         model, locale, temperature, max_tokens, citations_count, citations_preview
     );
 
+    let usage = serde_json::json!({
+        "model": model,
+        "locale": locale,
+        "temperature": temperature,
+        "maxTokens": max_tokens,
+        "citations": citations_count,
+        "promptChars": prompt_chars,
+        "prefixId": prefix_id,
+        "stub": true
+    });
+    (text, usage)
+}
+
+async fn complete(
+    State(state): State<Arc<AppState>>,
+    headers: HeaderMap,
+    Json(body): Json<CompleteRequest>,
+) -> impl IntoResponse {
+    let request_id = get_or_create_request_id(&headers);
+
+    let prefix_chars = match resolve_prefix(&state, &body) {
+        Ok(n) => n,
+        Err(PrefixError::Unknown) => {
+            let err = ErrorResponse {
+                request_id: request_id.clone(),
+                code: "PREFIX_UNKNOWN".to_string(),
+                message: "prefixId is not cached, resend it with prefix".to_string(),
+            };
+            let mut resp_headers = HeaderMap::new();
+            resp_headers.insert("x-request-id", request_id.parse().unwrap());
+            return (StatusCode::CONFLICT, resp_headers, Json(err)).into_response();
+        }
+    };
+
+    if prefix_chars == 0 && body.prompt.trim().is_empty() {
+        let err = ErrorResponse {
+            request_id: request_id.clone(),
+            code: "BAD_REQUEST".to_string(),
+            message: "prompt is required".to_string(),
+        };
+        let mut resp_headers = HeaderMap::new();
+        resp_headers.insert("x-request-id", request_id.parse().unwrap());
+        return (StatusCode::BAD_REQUEST, resp_headers, Json(err)).into_response();
+    }
+
+    let prefix_id = body.prefix_id.clone();
+    let (text, usage) = generate(body, prefix_chars);
     let resp = CompleteResponse {
         request_id: request_id.clone(),
         text,
-        usage: serde_json::json!({
-            "model": model,
-            "locale": locale,
-            "temperature": temperature,
-            "maxTokens": max_tokens,
-            "citations": citations_count,
-            "stub": true
-        }),
+        usage,
+        prefix_id,
     };
 
     let mut resp_headers = HeaderMap::new();
@@ -138,13 +245,80 @@ async fn complete(
     (StatusCode::OK, resp_headers, Json(resp)).into_response()
 }
 
+async fn complete_batch(
+    State(state): State<Arc<AppState>>,
+    headers: HeaderMap,
+    Json(body): Json<BatchRequest>,
+) -> impl IntoResponse {
+    let request_id = get_or_create_request_id(&headers);
+    let mut resp_headers = HeaderMap::new();
+    resp_headers.insert("x-request-id", request_id.parse().unwrap());
+
+    if body.items.is_empty() || body.items.len() > MAX_BATCH_ITEMS {
+        let err = ErrorResponse {
+            request_id: request_id.clone(),
+            code: "BAD_REQUEST".to_string(),
+            message: format!("items must contain 1..={} entries", MAX_BATCH_ITEMS),
+        };
+        return (StatusCode::BAD_REQUEST, resp_headers, Json(err)).into_response();
+    }
+
+    // Items fail independently: a bad prompt yields an error entry, the rest of the batch still completes.
+    let results = body
+        .items
+        .into_iter()
+        .map(|item| {
+            let item_request_id = item.request_id.unwrap_or_else(|| request_id.clone());
+            let failed = |code: &str, message: &str| BatchResult {
+                id: item.id.clone(),
+                request_id: item_request_id.clone(),
+                text: None,
+                usage: None,
+                prefix_id: None,
+                error: Some(BatchError {
+                    code: code.to_string(),
+                    message: message.to_string(),
+                }),
+            };
+            let prefix_chars = match resolve_prefix(&state, &item.request) {
+                Ok(n) => n,
+                Err(PrefixError::Unknown) => {
+                    return failed("PREFIX_UNKNOWN", "prefixId is not cached, resend it with prefix")
+                }
+            };
+            if prefix_chars == 0 && item.request.prompt.trim().is_empty() {
+                return failed("BAD_REQUEST", "prompt is required");
+            }
+            let prefix_id = item.request.prefix_id.clone();
+            let (text, usage) = generate(item.request, prefix_chars);
+            BatchResult {
+                id: item.id,
+                request_id: item_request_id,
+                text: Some(text),
+                usage: Some(usage),
+                prefix_id,
+                error: None,
+            }
+        })
+        .collect();
+
+    let resp = BatchResponse {
+        request_id: request_id.clone(),
+        results,
+    };
+    (StatusCode::OK, resp_headers, Json(resp)).into_response()
+}
+
 #[tokio::main]
 async fn main() {
-    let state = Arc::new(AppState {});
+    let state = Arc::new(AppState {
+        prefixes: Mutex::new(HashMap::new()),
+    });
 
     let app = Router::new()
         .route("/healthz", get(healthz))
         .route("/v1/complete", post(complete))
+        .route("/v1/complete/batch", post(complete_batch))
         .with_state(state);
 
     let addr: SocketAddr = "0.0.0.0:8084".parse().unwrap();
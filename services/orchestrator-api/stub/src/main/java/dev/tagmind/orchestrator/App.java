@@ -1,11 +1,15 @@
 package dev.tagmind.orchestrator;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @SpringBootApplication
+@EnableScheduling
+@ImportRuntimeHints(NativeHints.class)
 public class App {
   public static void main(String[] args) {
     SpringApplication.run(App.class, args);
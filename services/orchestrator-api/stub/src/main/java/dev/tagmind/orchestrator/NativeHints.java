@@ -0,0 +1,62 @@
+package dev.tagmind.orchestrator;
+
+import dev.tagmind.orchestrator.conversations.AdmissionControl;
+import dev.tagmind.orchestrator.conversations.ErrorResponse;
+import dev.tagmind.orchestrator.conversations.LlmGatewayClient;
+import dev.tagmind.orchestrator.conversations.MessageResponse;
+import dev.tagmind.orchestrator.conversations.RetrieverClient;
+import dev.tagmind.orchestrator.conversations.SearchResponse;
+import dev.tagmind.orchestrator.conversations.TagJobResponse;
+import dev.tagmind.orchestrator.conversations.TagRateLimiter;
+import dev.tagmind.orchestrator.conversations.TagRegistry;
+import dev.tagmind.orchestrator.conversations.TagResponse;
+import dev.tagmind.orchestrator.conversations.UpsertConversationResponse;
+import dev.tagmind.orchestrator.conversations.UpstreamBulkheads;
+import dev.tagmind.orchestrator.conversations.UpstreamRetries;
+import dev.tagmind.orchestrator.persistence.UuidV7Generator;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.boot.context.properties.bind.BindableRuntimeHintsRegistrar;
+
+/**
+ * Reflection and resource hints for the native image (-Pnative); the JVM ignores them.
+ * <p>
+ * Controllers return {@code ResponseEntity<?>} and clients read JSON into records, so Jackson types are not
+ * inferred and are listed here, as are the records bound with {@code Binder} and the resources read by path.
+ */
+class NativeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(
+                hints.reflection(),
+                ErrorResponse.class,
+                UpsertConversationResponse.class,
+                MessageResponse.class,
+                TagResponse.class,
+                SearchResponse.class,
+                TagJobResponse.class,
+                LlmGatewayClient.LlmResponse.class,
+                LlmGatewayClient.BatchResponse.class,
+                RetrieverClient.RetrieverResponse.class,
+                OrchestratorController.RetrieverResponse.class,
+                OrchestratorController.LlmResponse.class
+        );
+        BindableRuntimeHintsRegistrar.forTypes(
+                TagRegistry.TagProperties.class,
+                UpstreamBulkheads.ClassProperties.class,
+                TagRateLimiter.Properties.class,
+                UpstreamRetries.PolicyProperties.class,
+                UpstreamRetries.BudgetProperties.class,
+                LlmGatewayClient.BatchProperties.class,
+                AdmissionControl.Properties.class
+        ).registerHints(hints, classLoader);
+        hints.reflection().registerType(UuidV7Generator.class, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+
+        hints.resources()
+                .registerPattern("prompts/*.txt")
+                .registerPattern("db/layout/*/*");
+    }
+}
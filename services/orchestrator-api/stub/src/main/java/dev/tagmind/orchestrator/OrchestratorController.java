@@ -1,5 +1,9 @@
 package dev.tagmind.orchestrator;
 
+import dev.tagmind.orchestrator.conversations.AdmissionControl;
+import dev.tagmind.orchestrator.conversations.UpstreamRetries;
+import dev.tagmind.orchestrator.tracing.Span;
+import dev.tagmind.orchestrator.tracing.TraceParent;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.*;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
@@ -7,22 +11,20 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 
-import java.security.SecureRandom;
 import java.time.Duration;
 import java.util.HexFormat;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 @RestController
 public class OrchestratorController {
 
-    private static final SecureRandom RNG = new SecureRandom();
     private static final HexFormat HEX = HexFormat.of();
     private static final int RETRIEVER_MAX_RESULTS = 3;
     private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(2);
@@ -30,8 +32,12 @@ public class OrchestratorController {
     private final RestTemplate restTemplate;
     private final String retrieverUrl;
     private final String llmUrl;
+    private final UpstreamRetries retries;
+    private final AdmissionControl admission;
 
-    public OrchestratorController() {
+    public OrchestratorController(UpstreamRetries retries, AdmissionControl admission) {
+        this.retries = retries;
+        this.admission = admission;
         SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
         factory.setConnectTimeout(CONNECT_TIMEOUT);
         factory.setReadTimeout(READ_TIMEOUT);
@@ -41,9 +47,8 @@ public class OrchestratorController {
     }
 
     private static String newRequestId() {
-        byte[] b = new byte[12];
-        RNG.nextBytes(b);
-        return "req_" + HEX.formatHex(b);
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        return "req_" + HEX.toHexDigits(rnd.nextLong()) + HEX.toHexDigits(rnd.nextInt());
     }
 
     private static String getOrCreateRequestId(HttpServletRequest req) {
@@ -81,6 +86,30 @@ public class OrchestratorController {
                     ));
         }
 
+        AdmissionControl.Ticket ticket = admission.enter(AdmissionControl.Priority.NORMAL);
+        if (!ticket.admitted()) {
+            responseHeaders.set(HttpHeaders.RETRY_AFTER, AdmissionControl.retryAfterSeconds(ticket.retryAfter()));
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .headers(responseHeaders)
+                    .body(Map.of(
+                            "requestId", requestId,
+                            "code", "OVERLOADED",
+                            "message", "server is at capacity, retry later"
+                    ));
+        }
+        try {
+            return orchestrate(body, requestId, responseHeaders, ticket);
+        } finally {
+            ticket.release();
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> orchestrate(
+            OrchestrateRequest body,
+            String requestId,
+            HttpHeaders responseHeaders,
+            AdmissionControl.Ticket ticket
+    ) {
         String mode = body.mode() == null || body.mode().trim().isEmpty() ? "chat" : body.mode().trim();
         String locale = body.locale() == null || body.locale().trim().isEmpty() ? "ru-RU" : body.locale().trim();
         String message = body.message().trim();
@@ -108,6 +137,7 @@ public class OrchestratorController {
         try {
             llmResponse = callLlmGateway(message, locale, citations, requestId);
         } catch (RestClientResponseException ex) {
+            ticket.failed(ex);
             String errorMessage = "llm-gateway call failed (status=" + ex.getStatusCode().value() + ")";
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .headers(responseHeaders)
@@ -117,6 +147,7 @@ public class OrchestratorController {
                             "message", errorMessage
                     ));
         } catch (RestClientException ex) {
+            ticket.failed(ex);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .headers(responseHeaders)
                     .body(Map.of(
@@ -153,7 +184,7 @@ public class OrchestratorController {
         payload.put("safe", true);
         payload.put("allowNoContext", true);
 
-        ResponseEntity<RetrieverResponse> response = postWithRetry(retrieverUrl, payload, RetrieverResponse.class, requestId);
+        ResponseEntity<RetrieverResponse> response = post(UpstreamRetries.WEB_RETRIEVER, retrieverUrl, payload, RetrieverResponse.class, requestId);
         return response.getBody();
     }
 
@@ -166,7 +197,7 @@ public class OrchestratorController {
             payload.put("citations", citations);
         }
 
-        ResponseEntity<LlmResponse> response = postWithRetry(llmUrl, payload, LlmResponse.class, requestId);
+        ResponseEntity<LlmResponse> response = post(UpstreamRetries.LLM_GATEWAY, llmUrl, payload, LlmResponse.class, requestId);
         LlmResponse body = response.getBody();
         if (body == null) {
             throw new RestClientException("llm-gateway response missing body");
@@ -178,26 +209,24 @@ public class OrchestratorController {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.set("X-Request-Id", requestId);
+        String traceparent = Span.traceparent();
+        if (traceparent != null) {
+            headers.set(TraceParent.HEADER, traceparent);
+        }
         return headers;
     }
 
-    private <T> ResponseEntity<T> postWithRetry(String url, Object body, Class<T> type, String requestId) {
-        RestClientException lastError = null;
-        for (int attempt = 0; attempt < 2; attempt++) {
-            try {
-                HttpEntity<Object> entity = new HttpEntity<>(body, outboundHeaders(requestId));
-                return restTemplate.exchange(url, HttpMethod.POST, entity, type);
-            } catch (RestClientResponseException ex) {
-                throw ex;
-            } catch (RestClientException ex) {
-                lastError = ex;
-                if (!(ex instanceof ResourceAccessException) || attempt == 1) {
-                    throw ex;
-                }
-            }
+    private <T> ResponseEntity<T> post(String upstream, String url, Object body, Class<T> type, String requestId) {
+        Span span = Span.startClient(UpstreamRetries.LLM_GATEWAY.equals(upstream) ? "llm" : "retriever");
+        try {
+            HttpEntity<Object> entity = new HttpEntity<>(body, outboundHeaders(requestId));
+            return retries.call(upstream, () -> restTemplate.exchange(url, HttpMethod.POST, entity, type));
+        } catch (RestClientException ex) {
+            span.error(ex);
+            throw ex;
+        } finally {
+            span.close();
         }
-        if (lastError != null) throw lastError;
-        throw new RestClientException("unexpected retry loop exit");
     }
 
     record RetrieverResponse(String requestId, List<RetrieverResult> results) {}
@@ -0,0 +1,79 @@
+package dev.tagmind.orchestrator.capture;
+
+import java.util.Optional;
+
+/**
+ * One captured request envelope: what was called, for which (hashed) contact, how big it was and how it went.
+ * Message and payload texts are never recorded, only their lengths. Serialized as one tab-separated line;
+ * {@code -} marks an absent value.
+ */
+public record CaptureRecord(
+        long epochMillis,
+        String route,
+        String contact,
+        String mode,
+        String tag,
+        Integer count,
+        int payloadLength,
+        int textLength,
+        boolean async,
+        int status,
+        long durationMillis
+) {
+
+    public static final String HEADER = "#tagmind-capture v1\tepoch_ms\troute\tcontact\tmode\ttag\tcount\tpayload_len\ttext_len\tasync\tstatus\tdur_ms";
+
+    private static final int MAX_TOKEN = 64;
+
+    public String format() {
+        return epochMillis + "\t" + route + "\t" + token(contact) + "\t" + token(mode) + "\t" + token(tag) + "\t"
+                + (count == null ? "-" : count.toString()) + "\t" + payloadLength + "\t" + textLength + "\t"
+                + (async ? "1" : "0") + "\t" + status + "\t" + durationMillis;
+    }
+
+    /** Parses one line written by {@link #format()}; comments, blank and malformed lines are empty. */
+    public static Optional<CaptureRecord> parse(String line) {
+        if (line == null || line.isBlank() || line.startsWith("#")) {
+            return Optional.empty();
+        }
+        String[] f = line.split("\t", -1);
+        if (f.length != 11) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new CaptureRecord(
+                    Long.parseLong(f[0]),
+                    f[1],
+                    absent(f[2]),
+                    absent(f[3]),
+                    absent(f[4]),
+                    f[5].equals("-") ? null : Integer.valueOf(f[5]),
+                    Integer.parseInt(f[6]),
+                    Integer.parseInt(f[7]),
+                    f[8].equals("1"),
+                    Integer.parseInt(f[9]),
+                    Long.parseLong(f[10])
+            ));
+        } catch (NumberFormatException ex) {
+            return Optional.empty();
+        }
+    }
+
+    // Client-supplied tags and modes may hold anything; keep the line format intact.
+    private static String token(String value) {
+        if (value == null || value.isBlank()) {
+            return "-";
+        }
+        String trimmed = value.trim();
+        StringBuilder sb = new StringBuilder(Math.min(trimmed.length(), MAX_TOKEN));
+        for (int i = 0; i < trimmed.length() && sb.length() < MAX_TOKEN; i++) {
+            char c = trimmed.charAt(i);
+            sb.append(Character.isWhitespace(c) || Character.isISOControl(c) ? '_' : c);
+        }
+        return sb.toString();
+    }
+
+    private static String absent(String value) {
+        return value.equals("-") ? null : value;
+    }
+}
@@ -0,0 +1,133 @@
+package dev.tagmind.orchestrator.capture;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends captured envelopes to {@code tagmind.capture.file} from a background thread. Records beyond the bounded
+ * queue are dropped, and capture stops for good after {@code max-records}, so a forgotten capture cannot fill the disk.
+ */
+@Component
+public class CaptureWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(CaptureWriter.class);
+    private static final int MAX_BATCH = 512;
+
+    private final boolean enabled;
+    private final Path file;
+    private final long maxRecords;
+    private final BlockingQueue<CaptureRecord> queue;
+    private final AtomicLong accepted = new AtomicLong();
+    private final Counter written;
+    private final Counter dropped;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public CaptureWriter(
+            @Value("${tagmind.capture.enabled:false}") boolean enabled,
+            @Value("${tagmind.capture.file:/tmp/tagmind-capture.tsv}") String file,
+            @Value("${tagmind.capture.max-records:1000000}") long maxRecords,
+            @Value("${tagmind.capture.queue-size:8192}") int queueSize,
+            MeterRegistry registry
+    ) {
+        this.enabled = enabled;
+        this.file = Path.of(file);
+        this.maxRecords = maxRecords;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.written = Counter.builder("tagmind.capture.records").tag("outcome", "written").register(registry);
+        this.dropped = Counter.builder("tagmind.capture.records").tag("outcome", "dropped").register(registry);
+        this.worker = enabled
+                ? Thread.ofPlatform().daemon().name("traffic-capture").start(this::drainLoop)
+                : null;
+        if (enabled) {
+            log.info("capturing request envelopes to {} (max {} records)", this.file, maxRecords);
+        }
+    }
+
+    boolean enabled() {
+        return enabled && accepted.get() < maxRecords;
+    }
+
+    void record(CaptureRecord record) {
+        if (worker == null) {
+            return;
+        }
+        long n = accepted.incrementAndGet();
+        if (n > maxRecords) {
+            if (n == maxRecords + 1) {
+                log.info("traffic capture reached {} records and stopped", maxRecords);
+            }
+            return;
+        }
+        if (!queue.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(Duration.ofSeconds(5));
+        }
+    }
+
+    private void drainLoop() {
+        List<CaptureRecord> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                CaptureRecord first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException ex) {
+                // Shutting down: flush what is queued, then stop.
+                running = false;
+            }
+            queue.drainTo(batch, MAX_BATCH - batch.size());
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<CaptureRecord> batch) {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+            if (Files.size(file) == 0) {
+                out.write(CaptureRecord.HEADER);
+                out.newLine();
+            }
+            for (CaptureRecord record : batch) {
+                out.write(record.format());
+                out.newLine();
+            }
+            written.increment(batch.size());
+        } catch (IOException ex) {
+            dropped.increment(batch.size());
+            log.warn("traffic capture write to {} failed: {}", file, ex.getMessage());
+        }
+    }
+}
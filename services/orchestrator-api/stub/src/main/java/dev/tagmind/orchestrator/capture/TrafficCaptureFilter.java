@@ -0,0 +1,156 @@
+package dev.tagmind.orchestrator.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Opt-in capture of request envelopes for {@code /v1/conversations/*} and {@code /v1/orchestrate}, the input of
+ * {@link TrafficReplay}. Contact ids are replaced by a keyed hash (stable within one capture, so contact skew
+ * survives), and texts by their lengths.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class TrafficCaptureFilter extends OncePerRequestFilter {
+
+    private static final int MAX_BODY = 1 << 20;
+    private static final HexFormat HEX = HexFormat.of();
+
+    // "METHOD path" -> route name in the capture file.
+    private static final Map<String, String> ROUTES = Map.of(
+            "POST /v1/conversations/upsert", "upsert",
+            "POST /v1/conversations/message", "message",
+            "POST /v1/conversations/tag", "tag",
+            "GET /v1/conversations/search", "search",
+            "POST /v1/orchestrate", "orchestrate"
+    );
+
+    private final CaptureWriter writer;
+    private final ObjectMapper mapper;
+    private final byte[] salt;
+    private final ThreadLocal<Mac> macs;
+
+    public TrafficCaptureFilter(
+            CaptureWriter writer,
+            ObjectMapper mapper,
+            @Value("${tagmind.capture.salt:}") String salt
+    ) {
+        this.writer = writer;
+        this.mapper = mapper;
+        if (salt.isEmpty()) {
+            this.salt = new byte[32];
+            new SecureRandom().nextBytes(this.salt);
+        } else {
+            this.salt = salt.getBytes(StandardCharsets.UTF_8);
+        }
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !writer.enabled() || route(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String route = route(request);
+        ContentCachingRequestWrapper cached = new ContentCachingRequestWrapper(request, MAX_BODY);
+        long startedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(cached, response);
+        } finally {
+            long durationMillis = (System.nanoTime() - start) / 1_000_000;
+            writer.record(envelope(route, cached, startedAt, response.getStatus(), durationMillis));
+        }
+    }
+
+    private CaptureRecord envelope(String route, ContentCachingRequestWrapper request, long startedAt, int status, long durationMillis) {
+        if (route.equals("search")) {
+            return new CaptureRecord(startedAt, route, hash(request.getParameter("contactId")), null, null,
+                    intOrNull(request.getParameter("limit")), length(request.getParameter("q")), 0, false,
+                    status, durationMillis);
+        }
+        JsonNode body = readBody(request);
+        return switch (route) {
+            case "upsert" -> new CaptureRecord(startedAt, route, hash(text(body, "contactId")), text(body, "mode"), null,
+                    null, 0, 0, false, status, durationMillis);
+            case "message" -> new CaptureRecord(startedAt, route, hash(text(body, "contactId")), null, null,
+                    null, length(text(body, "message")), 0, false, status, durationMillis);
+            case "tag" -> new CaptureRecord(startedAt, route, hash(text(body, "contactId")), null, text(body, "tag"),
+                    body.path("count").isInt() ? body.path("count").intValue() : null,
+                    length(text(body, "payload")), length(text(body, "text")), body.path("async").asBoolean(false),
+                    status, durationMillis);
+            default -> new CaptureRecord(startedAt, route, hash(text(body, "userId")), text(body, "mode"), null,
+                    null, length(text(body, "message")), 0, false, status, durationMillis);
+        };
+    }
+
+    private JsonNode readBody(ContentCachingRequestWrapper request) {
+        byte[] content = request.getContentAsByteArray();
+        try {
+            return content.length == 0 ? mapper.createObjectNode() : mapper.readTree(content);
+        } catch (IOException ex) {
+            // Malformed or over MAX_BODY: keep the envelope without body fields.
+            return mapper.createObjectNode();
+        }
+    }
+
+    String hash(String contactId) {
+        if (contactId == null || contactId.isBlank()) {
+            return null;
+        }
+        byte[] digest = macs.get().doFinal(contactId.trim().getBytes(StandardCharsets.UTF_8));
+        return HEX.formatHex(digest, 0, 8);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(salt, "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 is not available", ex);
+        }
+    }
+
+    private static String route(HttpServletRequest request) {
+        return ROUTES.get(request.getMethod() + " " + request.getRequestURI());
+    }
+
+    private static String text(JsonNode body, String field) {
+        JsonNode value = body.path(field);
+        return value.isTextual() ? value.textValue() : null;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.trim().length();
+    }
+
+    private static Integer intOrNull(String value) {
+        try {
+            return value == null ? null : Integer.valueOf(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
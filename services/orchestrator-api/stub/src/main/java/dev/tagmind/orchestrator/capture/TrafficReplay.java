@@ -0,0 +1,377 @@
+package dev.tagmind.orchestrator.capture;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a {@link TrafficCaptureFilter} capture against a test instance, keeping the original mix of routes, tags,
+ * counts, sizes and per-contact skew, with inter-arrival times divided by {@code --speed}. Texts are synthetic
+ * filler of the captured length and contacts are {@code replay-<hash>}. Plain JDK only, so it runs from
+ * {@code target/classes} (see scripts/replay-traffic.sh):
+ * <pre>
+ *   TrafficReplay --file capture.tsv [--target http://localhost:8082] [--speed 1] [--max-idle 60s]
+ *                 [--max-in-flight 512] [--timeout 30s] [--no-prime]
+ * </pre>
+ * Before the clock starts every contact gets a SUGGEST session unless its first captured request is an upsert.
+ * Idle gaps longer than {@code --max-idle} (e.g. between capture runs) are shortened to it.
+ */
+public final class TrafficReplay {
+
+    private static final String FILLER = "lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod tempor ";
+
+    private final Options options;
+    private final HttpClient client;
+    private final Map<String, RouteStats> stats = new ConcurrentHashMap<>();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    private TrafficReplay(Options options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println("usage: TrafficReplay --file <capture.tsv> [--target <url>] [--speed <x>] [--max-idle <duration>]"
+                    + " [--max-in-flight <n>] [--timeout <duration>] [--no-prime]");
+            System.exit(2);
+            return;
+        }
+        List<CaptureRecord> records;
+        try (var lines = Files.lines(options.file(), StandardCharsets.UTF_8)) {
+            records = lines.map(CaptureRecord::parse).flatMap(Optional::stream).toList();
+        }
+        if (records.isEmpty()) {
+            System.err.println("no records in " + options.file());
+            System.exit(1);
+        }
+        new TrafficReplay(options).run(records);
+    }
+
+    private void run(List<CaptureRecord> records) throws InterruptedException {
+        if (options.prime()) {
+            prime(records);
+        }
+        long[] offsets = schedule(records, options.speed(), options.maxIdle());
+        System.out.printf("replaying %d requests over %.1fs at %.2fx against %s%n",
+                records.size(), offsets[offsets.length - 1] / 1e9, options.speed(), options.target());
+
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < records.size(); i++) {
+                long due = start + offsets[i];
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.acquire();
+                maxLagNanos.accumulateAndGet(System.nanoTime() - due, Math::max);
+                CaptureRecord record = records.get(i);
+                executor.execute(() -> {
+                    try {
+                        send(record);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        report(records, System.nanoTime() - start);
+    }
+
+    /**
+     * Replay start offsets in nanoseconds: capture inter-arrival times divided by speed, each gap capped at maxIdle.
+     * Records are taken in file order; out-of-order timestamps (concurrent requests) count as no gap.
+     */
+    static long[] schedule(List<CaptureRecord> records, double speed, Duration maxIdle) {
+        long[] offsets = new long[records.size()];
+        long capMillis = maxIdle.toMillis();
+        double elapsedMillis = 0;
+        for (int i = 1; i < records.size(); i++) {
+            long gap = Math.max(0, records.get(i).epochMillis() - records.get(i - 1).epochMillis());
+            elapsedMillis += Math.min(gap, capMillis) / speed;
+            offsets[i] = (long) (elapsedMillis * 1_000_000);
+        }
+        return offsets;
+    }
+
+    private void prime(List<CaptureRecord> records) throws InterruptedException {
+        Set<String> seen = new LinkedHashSet<>();
+        List<String> contacts = new ArrayList<>();
+        for (CaptureRecord record : records) {
+            if (record.contact() != null && !record.route().equals("orchestrate") && seen.add(record.contact())
+                    && !record.route().equals("upsert")) {
+                contacts.add(record.contact());
+            }
+        }
+        System.out.printf("priming %d contacts...%n", contacts.size());
+        Semaphore inFlight = new Semaphore(Math.min(64, options.maxInFlight()));
+        AtomicLong failed = new AtomicLong();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String contact : contacts) {
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        HttpResponse<Void> response = client.send(
+                                post("/v1/conversations/upsert", "{\"contactId\":" + json(contactId(contact)) + ",\"mode\":\"SUGGEST\"}"),
+                                HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() / 100 != 2) {
+                            failed.incrementAndGet();
+                        }
+                    } catch (IOException ex) {
+                        failed.incrementAndGet();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        if (failed.get() > 0) {
+            System.out.printf("warning: %d priming upserts failed%n", failed.get());
+        }
+    }
+
+    private void send(CaptureRecord record) {
+        RouteStats route = stats.computeIfAbsent(record.route(), r -> new RouteStats());
+        HttpRequest request = request(record);
+        if (request == null) {
+            route.skipped.incrementAndGet();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            route.completed(response.statusCode(), System.nanoTime() - start);
+        } catch (IOException ex) {
+            route.completed(0, System.nanoTime() - start);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpRequest request(CaptureRecord r) {
+        String contact = r.contact() == null ? null : contactId(r.contact());
+        return switch (r.route()) {
+            case "upsert" -> post("/v1/conversations/upsert",
+                    "{\"contactId\":" + json(contact) + ",\"mode\":" + json(r.mode() == null ? "SUGGEST" : r.mode()) + "}");
+            case "message" -> post("/v1/conversations/message",
+                    "{\"contactId\":" + json(contact) + ",\"message\":" + json(filler(r.payloadLength())) + "}");
+            case "tag" -> {
+                StringBuilder body = new StringBuilder("{\"contactId\":").append(json(contact))
+                        .append(",\"tag\":").append(json(r.tag()));
+                if (r.count() != null) {
+                    body.append(",\"count\":").append(r.count());
+                }
+                if (r.payloadLength() > 0) {
+                    body.append(",\"payload\":").append(json(filler(r.payloadLength())));
+                }
+                if (r.textLength() > 0) {
+                    body.append(",\"text\":").append(json(filler(r.textLength())));
+                }
+                if (r.async()) {
+                    body.append(",\"async\":true");
+                }
+                yield post("/v1/conversations/tag", body.append('}').toString());
+            }
+            case "search" -> {
+                String query = "?contactId=" + URLEncoder.encode(contact == null ? "" : contact, StandardCharsets.UTF_8)
+                        + "&q=" + URLEncoder.encode(filler(r.payloadLength()), StandardCharsets.UTF_8)
+                        + (r.count() == null ? "" : "&limit=" + r.count());
+                yield HttpRequest.newBuilder(options.target().resolve("/v1/conversations/search" + query))
+                        .timeout(options.timeout())
+                        .GET()
+                        .build();
+            }
+            case "orchestrate" -> post("/v1/orchestrate",
+                    "{\"userId\":" + json(contact) + ",\"chatId\":" + json(contact)
+                            + ",\"message\":" + json(filler(r.payloadLength()))
+                            + (r.mode() == null ? "" : ",\"mode\":" + json(r.mode())) + "}");
+            default -> null;
+        };
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(options.target().resolve(path))
+                .timeout(options.timeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private void report(List<CaptureRecord> records, long elapsedNanos) {
+        Map<String, List<Long>> captured = new TreeMap<>();
+        for (CaptureRecord record : records) {
+            captured.computeIfAbsent(record.route(), r -> new ArrayList<>()).add(record.durationMillis());
+        }
+        System.out.printf("%nsent %d in %.1fs (%.1f req/s), max dispatch lag %dms%n",
+                records.size(), elapsedNanos / 1e9, records.size() / (elapsedNanos / 1e9), maxLagNanos.get() / 1_000_000);
+        System.out.printf("%-12s %7s %7s %7s %7s %7s %7s %8s %8s %8s %8s | %10s %10s%n",
+                "route", "sent", "2xx", "4xx", "429", "5xx", "error", "p50ms", "p95ms", "p99ms", "maxms",
+                "capt p50", "capt p95");
+        captured.forEach((route, durations) -> {
+            RouteStats s = stats.getOrDefault(route, new RouteStats());
+            List<Long> latencies = s.latenciesMillis();
+            durations.sort(null);
+            System.out.printf("%-12s %7d %7d %7d %7d %7d %7d %8d %8d %8d %8d | %10d %10d%n",
+                    route, latencies.size(), s.status2xx.get(), s.status4xx.get(), s.status429.get(), s.status5xx.get(),
+                    s.errors.get() + s.skipped.get(),
+                    percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                    percentile(latencies, 1.0),
+                    percentile(durations, 0.50), percentile(durations, 0.95));
+        });
+    }
+
+    static long percentile(List<Long> sorted, double q) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(q * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+
+    static String filler(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(FILLER, 0, Math.min(FILLER.length(), length - sb.length()));
+        }
+        // Validation trims texts; keep the length exact and the text non-blank.
+        if (length > 0) {
+            sb.setCharAt(0, 'x');
+            sb.setCharAt(length - 1, 'x');
+        }
+        return sb.toString();
+    }
+
+    private static String contactId(String hash) {
+        return "replay-" + hash;
+    }
+
+    private static String json(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static final class RouteStats {
+        private final AtomicLong status2xx = new AtomicLong();
+        private final AtomicLong status4xx = new AtomicLong();
+        private final AtomicLong status429 = new AtomicLong();
+        private final AtomicLong status5xx = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final List<Long> latencies = new ArrayList<>();
+
+        void completed(int status, long nanos) {
+            switch (status / 100) {
+                case 2 -> status2xx.incrementAndGet();
+                case 4 -> (status == 429 ? status429 : status4xx).incrementAndGet();
+                case 5 -> status5xx.incrementAndGet();
+                default -> errors.incrementAndGet();
+            }
+            synchronized (latencies) {
+                latencies.add(TimeUnit.NANOSECONDS.toMillis(nanos));
+            }
+        }
+
+        List<Long> latenciesMillis() {
+            synchronized (latencies) {
+                List<Long> sorted = new ArrayList<>(latencies);
+                sorted.sort(null);
+                return sorted;
+            }
+        }
+    }
+
+    record Options(Path file, URI target, double speed, Duration maxIdle, int maxInFlight, Duration timeout, boolean prime) {
+
+        static Options parse(String[] args) {
+            Path file = null;
+            URI target = URI.create("http://localhost:8082");
+            double speed = 1.0;
+            Duration maxIdle = Duration.ofSeconds(60);
+            int maxInFlight = 512;
+            Duration timeout = Duration.ofSeconds(30);
+            boolean prime = true;
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--no-prime")) {
+                    prime = false;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--file" -> file = Path.of(value);
+                    case "--target" -> target = URI.create(value);
+                    case "--speed" -> speed = Double.parseDouble(value);
+                    case "--max-idle" -> maxIdle = duration(value);
+                    case "--max-in-flight" -> maxInFlight = Integer.parseInt(value);
+                    case "--timeout" -> timeout = duration(value);
+                    default -> throw new IllegalArgumentException("unknown option " + arg);
+                }
+            }
+            if (file == null) {
+                throw new IllegalArgumentException("--file is required");
+            }
+            if (!(speed > 0) || maxInFlight <= 0) {
+                throw new IllegalArgumentException("--speed and --max-in-flight must be positive");
+            }
+            return new Options(file, target, speed, maxIdle, maxInFlight, timeout, prime);
+        }
+
+        // 500ms, 30s, 5m or an ISO-8601 duration.
+        private static Duration duration(String value) {
+            String v = value.trim().toLowerCase();
+            if (v.startsWith("p")) return Duration.parse(v.toUpperCase());
+            if (v.endsWith("ms")) return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+            if (v.endsWith("s")) return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+            if (v.endsWith("m")) return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+            throw new IllegalArgumentException("invalid duration " + value);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Front-door admission for the public endpoints, with a concurrency limit that follows observed latency.
+ * <p>
+ * {@code NORMAL} requests (LLM work, searches) are admitted while fewer than {@code limit} requests are in flight;
+ * beyond that they wait in a short queue ({@code max-queue}, {@code max-wait}) and are shed with 429 when it is
+ * full or the wait expires, rather than piling up until everything times out. The limit moves like a gradient
+ * controller: a fast and a slow moving average of request latency are compared, the limit shrinks when the fast one
+ * runs above {@code tolerance} times the slow one, grows by about its square root otherwise, and backs off by
+ * {@code backoff-ratio} whenever a request reports overload downstream. Only requests that opted in are sampled,
+ * so cheap reads do not drag the latency baseline down.
+ * <p>
+ * {@code CRITICAL} requests (OFF-mode message writes, mode changes) never call llm-gateway: they are admitted up to
+ * {@code max-limit}, go to the head of the queue and are not turned away by a full one.
+ */
+@Component
+public class AdmissionControl {
+
+    public enum Priority {
+        CRITICAL, NORMAL
+    }
+
+    private static final Comparator<Waiter> ORDER = Comparator
+            .comparingInt((Waiter w) -> w.priority.ordinal())
+            .thenComparingLong(w -> w.seq);
+    private static final long MAX_RETRY_AFTER_NANOS = Duration.ofSeconds(30).toNanos();
+
+    private final boolean enabled;
+    private final LongSupplier clock;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeSet<Waiter> waiting = new TreeSet<>(ORDER);
+    private final Counter rejectedFull;
+    private final Counter rejectedTimeout;
+    private final Counter rejectedCritical;
+    // Guarded by lock; the gauges read them racily, which is fine for metrics.
+    private volatile double limit;
+    private volatile int inFlight;
+    private double shortRttNanos;
+    private double longRttNanos;
+    private long nextSeq;
+
+    @Autowired
+    public AdmissionControl(Environment env, MeterRegistry registry) {
+        this(Binder.get(env).bind("tagmind.admission", Properties.class).orElse(Properties.DISABLED), registry, System::nanoTime);
+    }
+
+    AdmissionControl(Properties props, MeterRegistry registry, LongSupplier clock) {
+        this.enabled = !Boolean.FALSE.equals(props.enabled());
+        this.clock = clock;
+        this.minLimit = props.minLimit() == null || props.minLimit() < 1 ? 4 : props.minLimit();
+        this.maxLimit = props.maxLimit() == null || props.maxLimit() < minLimit ? Math.max(200, minLimit) : props.maxLimit();
+        this.maxQueue = props.maxQueue() == null || props.maxQueue() < 0 ? 50 : props.maxQueue();
+        this.maxWaitNanos = (props.maxWait() == null ? Duration.ofSeconds(1) : props.maxWait()).toNanos();
+        this.tolerance = props.tolerance() == null || props.tolerance() < 1 ? 1.5 : props.tolerance();
+        this.smoothing = props.smoothing() == null || props.smoothing() <= 0 || props.smoothing() > 1 ? 0.2 : props.smoothing();
+        this.backoffRatio = props.backoffRatio() == null || props.backoffRatio() <= 0 || props.backoffRatio() >= 1 ? 0.9 : props.backoffRatio();
+        int initial = props.initialLimit() == null ? 20 : props.initialLimit();
+        this.limit = Math.clamp(initial, minLimit, maxLimit);
+
+        Gauge.builder("tagmind.admission.limit", this, a -> a.limit).register(registry);
+        Gauge.builder("tagmind.admission.inflight", this, a -> a.inFlight).register(registry);
+        Gauge.builder("tagmind.admission.queued", waiting, TreeSet::size).register(registry);
+        this.rejectedFull = Counter.builder("tagmind.admission.rejected").tag("reason", "queue_full").register(registry);
+        this.rejectedTimeout = Counter.builder("tagmind.admission.rejected").tag("reason", "timeout").register(registry);
+        this.rejectedCritical = Counter.builder("tagmind.admission.rejected").tag("reason", "max_limit").register(registry);
+    }
+
+    /** Waits for a slot; the returned ticket is either rejected or must be released once the request is done. */
+    public Ticket enter(Priority priority) {
+        if (!enabled) {
+            return new Ticket(this, priority, clock.getAsLong(), true, Duration.ZERO);
+        }
+        Waiter waiter = null;
+        lock.lock();
+        try {
+            if ((priority == Priority.CRITICAL || waiting.isEmpty()) && hasRoom(priority)) {
+                inFlight++;
+                return new Ticket(this, priority, clock.getAsLong(), true, Duration.ZERO);
+            }
+            if (priority == Priority.NORMAL && waiting.size() >= maxQueue) {
+                rejectedFull.increment();
+                return new Ticket(this, priority, 0, false, retryAfter());
+            }
+            waiter = new Waiter(priority, nextSeq++, lock.newCondition());
+            waiting.add(waiter);
+            dispatch();
+            long remaining = maxWaitNanos;
+            while (!waiter.granted && remaining > 0) {
+                remaining = waiter.ready.awaitNanos(remaining);
+            }
+            if (!waiter.granted) {
+                waiting.remove(waiter);
+                (priority == Priority.CRITICAL ? rejectedCritical : rejectedTimeout).increment();
+                return new Ticket(this, priority, 0, false, retryAfter());
+            }
+            return new Ticket(this, priority, clock.getAsLong(), true, Duration.ZERO);
+        } catch (InterruptedException ex) {
+            // Nobody will release a slot for this caller: give back one granted before the interrupt, or leave the queue.
+            if (waiter.granted) {
+                inFlight--;
+                dispatch();
+            } else {
+                waiting.remove(waiter);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for admission", ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** A {@code Retry-After} header value: whole seconds, rounded up, at least 1. */
+    public static String retryAfterSeconds(Duration delay) {
+        long seconds = delay.toSeconds() + (delay.toNanosPart() > 0 ? 1 : 0);
+        return Long.toString(Math.max(1, seconds));
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    private void release(Ticket ticket) {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            inFlight--;
+            if (ticket.dropped) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (ticket.sampled && ticket.priority == Priority.NORMAL) {
+                sample(clock.getAsLong() - ticket.startNanos);
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock.
+    private void sample(long rttNanos) {
+        shortRttNanos = shortRttNanos == 0 ? rttNanos : shortRttNanos * 0.9 + rttNanos * 0.1;
+        longRttNanos = longRttNanos == 0 ? rttNanos : longRttNanos * (1 - 1 / 600.0) + rttNanos / 600.0;
+        if (longRttNanos > 2 * shortRttNanos) {
+            // Latency dropped for good (a faster upstream, a warmed cache): let the baseline catch up.
+            longRttNanos *= 0.95;
+        }
+        if (inFlight * 2 < limit) {
+            // Not using half the limit: latency says nothing about what a higher limit would do.
+            return;
+        }
+        double gradient = Math.clamp(tolerance * longRttNanos / shortRttNanos, 0.5, 1.0);
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.clamp(limit * (1 - smoothing) + target * smoothing, minLimit, maxLimit);
+    }
+
+    // Caller holds the lock. Grants slots in queue order; a NORMAL waiter at the limit blocks those behind it.
+    private void dispatch() {
+        Iterator<Waiter> it = waiting.iterator();
+        while (it.hasNext()) {
+            Waiter waiter = it.next();
+            if (!hasRoom(waiter.priority)) {
+                break;
+            }
+            it.remove();
+            inFlight++;
+            waiter.granted = true;
+            waiter.ready.signal();
+        }
+    }
+
+    private boolean hasRoom(Priority priority) {
+        return inFlight < (priority == Priority.CRITICAL ? maxLimit : (int) limit);
+    }
+
+    // Caller holds the lock. Roughly how long the current queue needs to drain.
+    private Duration retryAfter() {
+        double perRequest = shortRttNanos == 0 ? maxWaitNanos : shortRttNanos;
+        long nanos = (long) (perRequest * (waiting.size() + 1) / Math.max(1, limit));
+        return Duration.ofNanos(Math.clamp(nanos, Duration.ofSeconds(1).toNanos(), MAX_RETRY_AFTER_NANOS));
+    }
+
+    public static final class Ticket {
+        private final AdmissionControl owner;
+        private final Priority priority;
+        private final long startNanos;
+        private final boolean admitted;
+        private final Duration retryAfter;
+        private boolean sampled = true;
+        private boolean dropped;
+        private boolean released;
+
+        private Ticket(AdmissionControl owner, Priority priority, long startNanos, boolean admitted, Duration retryAfter) {
+            this.owner = owner;
+            this.priority = priority;
+            this.startNanos = startNanos;
+            this.admitted = admitted;
+            this.retryAfter = retryAfter;
+        }
+
+        public boolean admitted() {
+            return admitted;
+        }
+
+        public Duration retryAfter() {
+            return retryAfter;
+        }
+
+        /** The request was cheap or did not reach llm-gateway; its latency says nothing about capacity. */
+        public void skipSample() {
+            sampled = false;
+        }
+
+        /** The request failed because something downstream was overloaded or timed out. */
+        public void dropped() {
+            dropped = true;
+        }
+
+        /** Counts an upstream failure as a drop when it looks like overload rather than a bad request. */
+        public void failed(RestClientException ex) {
+            if (!(ex instanceof RestClientResponseException response)) {
+                dropped = true;
+                return;
+            }
+            int status = response.getStatusCode().value();
+            if (status == 429 || status == 502 || status == 503 || status == 504) {
+                dropped = true;
+            }
+        }
+
+        public void release() {
+            if (admitted && !released) {
+                released = true;
+                owner.release(this);
+            }
+        }
+    }
+
+    private static final class Waiter {
+        final Priority priority;
+        final long seq;
+        final Condition ready;
+        boolean granted;
+
+        Waiter(Priority priority, long seq, Condition ready) {
+            this.priority = priority;
+            this.seq = seq;
+            this.ready = ready;
+        }
+    }
+
+    public record Properties(
+            Boolean enabled,
+            Integer initialLimit,
+            Integer minLimit,
+            Integer maxLimit,
+            Integer maxQueue,
+            Duration maxWait,
+            Double tolerance,
+            Double smoothing,
+            Double backoffRatio
+    ) {
+        static final Properties DISABLED = new Properties(false, null, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,161 @@
+package dev.tagmind.orchestrator.conversations;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dev.tagmind.orchestrator.tracing.Span;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs work for the same contact one item at a time while different contacts proceed in parallel.
+ * <p>
+ * Each active contact has a mailbox: the tail of a future chain whose tasks run on virtual threads. A mailbox is
+ * dropped as soon as its last task finishes. In {@code advisory} mode every task additionally holds a Postgres
+ * advisory lock keyed by the contact, which serializes the contact across orchestrator replicas. The lock is held
+ * on a connection from a dedicated pool of {@code max-locked} connections, never from the application pool the task
+ * itself uses, and at most {@code max-locked} tasks hold a lock at once; the others wait for a free lock connection
+ * (up to {@code lock-timeout}) before they start. The lock covers the whole task, upstream calls included, so the
+ * pool has to be sized to the number of contacts a replica is expected to work on at once.
+ */
+@Component
+public class ContactMailbox {
+
+    public enum Mode {
+        OFF,
+        LOCAL,
+        ADVISORY
+    }
+
+    private static final String LOCK_SQL = "select pg_advisory_lock(hashtextextended(?, 0))";
+    private static final String UNLOCK_SQL = "select pg_advisory_unlock(hashtextextended(?, 0))";
+
+    private final Mode mode;
+    private final int lockTimeoutSeconds;
+    private final HikariDataSource lockPool;
+    private final Semaphore lockPermits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    public ContactMailbox(
+            @Value("${tagmind.mailbox.mode:local}") String mode,
+            @Value("${tagmind.mailbox.lock-timeout:30s}") Duration lockTimeout,
+            @Value("${tagmind.mailbox.max-locked:40}") int maxLocked,
+            DataSourceProperties dataSource,
+            MeterRegistry registry
+    ) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase());
+        this.lockTimeoutSeconds = (int) Math.max(1, lockTimeout.toSeconds());
+        if (this.mode == Mode.ADVISORY) {
+            if (maxLocked < 1) {
+                throw new IllegalArgumentException("tagmind.mailbox.max-locked must be at least 1");
+            }
+            this.lockPool = new HikariDataSource();
+            lockPool.setPoolName("mailbox-locks");
+            lockPool.setJdbcUrl(dataSource.determineUrl());
+            lockPool.setUsername(dataSource.determineUsername());
+            lockPool.setPassword(dataSource.determinePassword());
+            lockPool.setMaximumPoolSize(maxLocked);
+            lockPool.setMinimumIdle(0);
+            lockPool.setMetricRegistry(registry);
+            this.lockPermits = new Semaphore(maxLocked, true);
+        } else {
+            this.lockPool = null;
+            this.lockPermits = null;
+        }
+        Gauge.builder("tagmind.mailbox.active", tails, ConcurrentHashMap::size).register(registry);
+    }
+
+    public <T> T run(String contactId, Supplier<T> task) {
+        if (mode == Mode.OFF) {
+            return task.get();
+        }
+        Supplier<T> traced = Span.wrap(task);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<?> slot = tails.compute(contactId, (key, tail) -> {
+            CompletableFuture<?> previous = tail == null ? CompletableFuture.completedFuture(null) : tail;
+            return previous.handleAsync((ignored, error) -> {
+                execute(contactId, traced, result);
+                return null;
+            }, executor);
+        });
+        slot.whenComplete((ignored, error) -> tails.remove(contactId, slot));
+        return await(result);
+    }
+
+    private <T> void execute(String contactId, Supplier<T> task, CompletableFuture<T> result) {
+        try {
+            result.complete(mode == Mode.ADVISORY ? withAdvisoryLock(contactId, task) : task.get());
+        } catch (Throwable ex) {
+            result.completeExceptionally(ex);
+        }
+    }
+
+    private <T> T withAdvisoryLock(String contactId, Supplier<T> task) {
+        try {
+            if (!lockPermits.tryAcquire(lockTimeoutSeconds, TimeUnit.SECONDS)) {
+                throw new DataAccessResourceFailureException("no free lock connection for contact mailbox");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a mailbox lock connection", ex);
+        }
+        try (Connection connection = lockPool.getConnection()) {
+            try (PreparedStatement lock = connection.prepareStatement(LOCK_SQL)) {
+                lock.setString(1, contactId);
+                lock.setQueryTimeout(lockTimeoutSeconds);
+                lock.execute();
+            }
+            try {
+                return task.get();
+            } finally {
+                try (PreparedStatement unlock = connection.prepareStatement(UNLOCK_SQL)) {
+                    unlock.setString(1, contactId);
+                    unlock.execute();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessResourceFailureException("advisory lock failed for contact mailbox", ex);
+        } finally {
+            lockPermits.release();
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for contact mailbox", ex);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        if (lockPool != null) {
+            lockPool.close();
+        }
+    }
+}
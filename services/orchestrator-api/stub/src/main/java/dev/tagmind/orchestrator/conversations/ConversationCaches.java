@@ -0,0 +1,142 @@
+package dev.tagmind.orchestrator.conversations;
+
+import dev.tagmind.orchestrator.persistence.ConversationMode;
+import dev.tagmind.orchestrator.persistence.ConversationSessionEntity;
+import dev.tagmind.orchestrator.persistence.InvalidationBus;
+import dev.tagmind.orchestrator.persistence.ReadYourWrites;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Per-replica caches of sessions (by contact) and of the latest history window (by session), kept coherent across
+ * replicas by {@link InvalidationBus}: mode changes and history appends are published on commit, and every replica
+ * drops the affected entry. Both caches are bypassed while the bus is not listening.
+ * <p>
+ * Also exposed as the {@code caches} actuator endpoint, whose DELETE purges every cache on every replica.
+ */
+@Component
+@Endpoint(id = "caches")
+public class ConversationCaches {
+
+    static final String SESSION_TOPIC = "session";
+    static final String HISTORY_TOPIC = "history";
+    static final String TAG_RESPONSE_TOPIC = "tag-response";
+
+    private final InvalidationBus bus;
+    private final LocalCache<SessionRef> sessions;
+    private final LocalCache<HistoryWindow> history;
+
+    @Autowired
+    public ConversationCaches(
+            InvalidationBus bus,
+            ReadYourWrites readYourWrites,
+            TagResponseCache responseCache,
+            @Value("${tagmind.cache.sessions.max-entries:100000}") int maxSessions,
+            @Value("${tagmind.cache.history.max-entries:2000}") int maxHistories,
+            MeterRegistry registry
+    ) {
+        this.bus = bus;
+        this.sessions = new LocalCache<>("sessions", maxSessions, bus::connected, registry);
+        this.history = new LocalCache<>("history", maxHistories, bus::connected, registry);
+        bus.subscribe(SESSION_TOPIC, sessions);
+        bus.subscribe(HISTORY_TOPIC, new InvalidationBus.Listener() {
+            @Override
+            public void invalidate(String key) {
+                UUID sessionId = UUID.fromString(key);
+                history.invalidate(key);
+                // Written elsewhere: keep this replica's reads of the session off a lagging read replica for a while.
+                readYourWrites.recordWrite(sessionId);
+            }
+
+            @Override
+            public void invalidateAll() {
+                history.invalidateAll();
+            }
+        });
+        bus.subscribe(TAG_RESPONSE_TOPIC, new InvalidationBus.Listener() {
+            @Override
+            public void invalidate(String key) {
+            }
+
+            @Override
+            public void invalidateAll() {
+                responseCache.clear();
+            }
+        });
+    }
+
+    private ConversationCaches() {
+        this.bus = null;
+        SimpleMeterRegistry scratch = new SimpleMeterRegistry();
+        this.sessions = new LocalCache<>("sessions", 0, () -> false, scratch);
+        this.history = new LocalCache<>("history", 0, () -> false, scratch);
+    }
+
+    /** Caches nothing and publishes nothing. */
+    static ConversationCaches disabled() {
+        return new ConversationCaches();
+    }
+
+    public Optional<SessionRef> session(String contactId, Supplier<Optional<SessionRef>> load) {
+        return Optional.ofNullable(sessions.get(contactId, ref -> true, () -> load.get().orElse(null)));
+    }
+
+    /** The session if it is cached; never touches the database. */
+    public Optional<SessionRef> cachedSession(String contactId) {
+        return Optional.ofNullable(sessions.peek(contactId));
+    }
+
+    /** The latest {@code limit} messages oldest first; {@code load} must return exactly that for a cache miss. */
+    public List<TagPromptBuilder.HistoryEntry> latestHistory(
+            UUID sessionId,
+            int limit,
+            Supplier<List<TagPromptBuilder.HistoryEntry>> load
+    ) {
+        HistoryWindow window = history.get(
+                sessionId.toString(),
+                w -> w.limit() >= limit || w.entries().size() < w.limit(),
+                () -> new HistoryWindow(limit, List.copyOf(load.get()))
+        );
+        List<TagPromptBuilder.HistoryEntry> entries = window.entries();
+        return entries.size() <= limit ? entries : entries.subList(entries.size() - limit, entries.size());
+    }
+
+    /** Call inside the transaction that changes the session. */
+    public void sessionChanged(String contactId) {
+        if (bus != null) {
+            bus.publish(SESSION_TOPIC, contactId);
+        }
+    }
+
+    /** Call inside the transaction that appends messages to the session. */
+    public void historyAppended(UUID sessionId) {
+        if (bus != null) {
+            bus.publish(HISTORY_TOPIC, sessionId.toString());
+        }
+    }
+
+    @DeleteOperation
+    public void purge() {
+        if (bus != null) {
+            bus.publishAll();
+        }
+    }
+
+    public record SessionRef(UUID id, String contactId, ConversationMode mode) {
+        public static SessionRef of(ConversationSessionEntity session) {
+            return new SessionRef(session.getId(), session.getContactId(), session.getMode());
+        }
+    }
+
+    private record HistoryWindow(int limit, List<TagPromptBuilder.HistoryEntry> entries) {}
+}
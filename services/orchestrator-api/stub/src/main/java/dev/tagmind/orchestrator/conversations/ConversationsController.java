@@ -1,43 +1,85 @@
 package dev.tagmind.orchestrator.conversations;
 
+import dev.tagmind.orchestrator.persistence.ConversationHistoryQueries;
 import dev.tagmind.orchestrator.persistence.ConversationMode;
 import dev.tagmind.orchestrator.persistence.ConversationSessionEntity;
+import dev.tagmind.orchestrator.persistence.SearchCursor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestClientResponseException;
 
-import java.security.SecureRandom;
-import java.util.HashMap;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HexFormat;
-import java.util.Map;
-import java.util.Set;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 
 @RestController
 public class ConversationsController {
 
-    private static final SecureRandom RNG = new SecureRandom();
     private static final HexFormat HEX = HexFormat.of();
-    private static final Set<String> SUPPORTED_TAGS = Set.of(
-            "help", "llm", "web", "recap", "judge", "fix", "plan", "safe"
-    );
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final String NDJSON = "application/x-ndjson";
+    private static final Duration EXPORT_RETRY_AFTER = Duration.ofSeconds(5);
 
     private final ConversationsService service;
+    private final TagRegistry tags;
+    private final ContactMailbox mailbox;
+    private final TagRateLimiter rateLimiter;
+    private final TagJobs jobs;
+    private final AdmissionControl admission;
+    private final SuggestionDebouncer debouncer;
+    private final ObjectMapper mapper;
+    private final Semaphore exports;
+    private final DebugLevel defaultDebugLevel;
 
-    public ConversationsController(ConversationsService service) {
+    public ConversationsController(
+            ConversationsService service,
+            TagRegistry tags,
+            ContactMailbox mailbox,
+            TagRateLimiter rateLimiter,
+            TagJobs jobs,
+            AdmissionControl admission,
+            SuggestionDebouncer debouncer,
+            ObjectMapper mapper,
+            @Value("${tagmind.debug.default:none}") String defaultDebugLevel,
+            @Value("${tagmind.export.max-concurrent:4}") int maxConcurrentExports
+    ) {
         this.service = service;
+        this.tags = tags;
+        this.mailbox = mailbox;
+        this.rateLimiter = rateLimiter;
+        this.jobs = jobs;
+        this.admission = admission;
+        this.debouncer = debouncer;
+        this.mapper = mapper;
+        this.exports = new Semaphore(maxConcurrentExports);
+        this.defaultDebugLevel = DebugLevel.parse(defaultDebugLevel)
+                .orElseThrow(() -> new IllegalArgumentException("tagmind.debug.default must be none, summary or full"));
     }
 
     private static String newRequestId() {
-        byte[] b = new byte[12];
-        RNG.nextBytes(b);
-        return "req_" + HEX.formatHex(b);
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        return "req_" + HEX.toHexDigits(rnd.nextLong()) + HEX.toHexDigits(rnd.nextInt());
     }
 
     private static String getOrCreateRequestId(HttpServletRequest req) {
@@ -54,7 +96,7 @@ public class ConversationsController {
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<Map<String, Object>> upsert(@RequestBody UpsertConversationRequest body, HttpServletRequest req) {
+    public ResponseEntity<?> upsert(@RequestBody UpsertConversationRequest body, HttpServletRequest req) {
         String requestId = getOrCreateRequestId(req);
         HttpHeaders responseHeaders = new HttpHeaders();
         responseHeaders.set("X-Request-Id", requestId);
@@ -62,20 +104,12 @@ public class ConversationsController {
         if (body.contactId() == null || body.contactId().trim().isEmpty()) {
             return ResponseEntity.badRequest()
                     .headers(responseHeaders)
-                    .body(Map.of(
-                            "requestId", requestId,
-                            "code", "BAD_REQUEST",
-                            "message", "contactId is required"
-                    ));
+                    .body(new ErrorResponse(requestId, "BAD_REQUEST", "contactId is required"));
         }
         if (body.mode() == null) {
             return ResponseEntity.badRequest()
                     .headers(responseHeaders)
-                    .body(Map.of(
-                            "requestId", requestId,
-                            "code", "BAD_REQUEST",
-                            "message", "mode is required"
-                    ));
+                    .body(new ErrorResponse(requestId, "BAD_REQUEST", "mode is required"));
         }
 
         ConversationMode mode;
@@ -84,22 +118,28 @@ public class ConversationsController {
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest()
                     .headers(responseHeaders)
-                    .body(Map.of(
-                            "requestId", requestId,
-                            "code", "BAD_REQUEST",
-                            "message", "mode must be OFF or SUGGEST"
-                    ));
+                    .body(new ErrorResponse(requestId, "BAD_REQUEST", "mode must be OFF or SUGGEST"));
         }
 
-        ConversationSessionEntity session = service.upsert(body.contactId().trim(), mode);
+        String contactId = body.contactId().trim();
+        AdmissionControl.Ticket ticket = admission.enter(AdmissionControl.Priority.CRITICAL);
+        if (!ticket.admitted()) {
+            return shed(responseHeaders, requestId, ticket);
+        }
+        ConversationSessionEntity session;
+        try {
+            session = mailbox.run(contactId, () -> service.upsert(contactId, mode));
+        } finally {
+            ticket.release();
+        }
 
         return ResponseEntity.ok()
                 .headers(responseHeaders)
-                .body(Map.of(
-                        "requestId", requestId,
-                        "sessionId", session.getId().toString(),
-                        "contactId", session.getContactId(),
-                        "mode", session.getMode().name()
+                .body(new UpsertConversationResponse(
+                        requestId,
+                        session.getId().toString(),
+                        session.getContactId(),
+                        session.getMode().name()
                 ));
     }
 
@@ -108,7 +148,7 @@ public class ConversationsController {
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<Map<String, Object>> message(@RequestBody ConversationMessageRequest body, HttpServletRequest req) {
+    public ResponseEntity<?> message(@RequestBody ConversationMessageRequest body, HttpServletRequest req) {
         String requestId = getOrCreateRequestId(req);
         HttpHeaders responseHeaders = new HttpHeaders();
         responseHeaders.set("X-Request-Id", requestId);
@@ -117,47 +157,109 @@ public class ConversationsController {
                 || body.message() == null || body.message().trim().isEmpty()) {
             return ResponseEntity.badRequest()
                     .headers(responseHeaders)
-                    .body(Map.of(
-                            "requestId", requestId,
-                            "code", "BAD_REQUEST",
-                            "message", "contactId and message are required"
-                    ));
+                    .body(new ErrorResponse(requestId, "BAD_REQUEST", "contactId and message are required"));
         }
 
+        String contactId = body.contactId().trim();
+        String message = body.message().trim();
+        // OFF-mode messages are only stored; they must get through even while LLM work is being shed. Priority comes
+        // from the session cache so a shed request costs no query; a contact not cached yet is admitted as NORMAL.
+        boolean off = service.isOff(contactId);
+        AdmissionControl.Ticket ticket = admission.enter(off
+                ? AdmissionControl.Priority.CRITICAL
+                : AdmissionControl.Priority.NORMAL);
+        if (!ticket.admitted()) {
+            return shed(responseHeaders, requestId, ticket);
+        }
         ConversationsService.MessageResult result;
         try {
-            result = service.handleMessage(body.contactId().trim(), body.message().trim(), requestId);
+            if (debouncer.enabled() && !off) {
+                result = debouncedMessage(contactId, message, requestId, ticket);
+            } else {
+                result = mailbox.run(contactId, () -> service.handleMessage(contactId, message, requestId));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .headers(responseHeaders)
+                    .body(new ErrorResponse(requestId, "INTERNAL", "request interrupted"));
+        } catch (SuggestionShed ex) {
+            return shed(responseHeaders, requestId, ex.ticket);
         } catch (RestClientResponseException ex) {
+            ticket.failed(ex);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .headers(responseHeaders)
-                    .body(Map.of(
-                            "requestId", requestId,
-                            "code", "LLM_ERROR",
-                            "message", "llm-gateway call failed (status=" + ex.getStatusCode().value() + ")"
-                    ));
+                    .body(new ErrorResponse(requestId, "LLM_ERROR", "llm-gateway call failed (status=" + ex.getStatusCode().value() + ")"));
         } catch (RestClientException ex) {
+            ticket.failed(ex);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .headers(responseHeaders)
-                    .body(Map.of(
-                            "requestId", requestId,
-                            "code", "LLM_ERROR",
-                            "message", "llm-gateway call failed"
-                    ));
+                    .body(new ErrorResponse(requestId, "LLM_ERROR", "llm-gateway call failed"));
+        } finally {
+            ticket.release();
         }
 
         return ResponseEntity.ok()
                 .headers(responseHeaders)
-                .body(messageResponseBody(requestId, result));
+                .body(new MessageResponse(
+                        requestId,
+                        result.decision(),
+                        result.suggestedReply(),
+                        result.sessionId().toString(),
+                        result.used()
+                ));
+    }
+
+    // The message is stored at once, under the contact's mailbox and the request's admission ticket; the wait for the
+    // rest of the burst happens outside both so it holds up neither the contact's other requests nor an admission
+    // slot. Only the generation that actually runs is admitted again.
+    private ConversationsService.MessageResult debouncedMessage(
+            String contactId,
+            String message,
+            String requestId,
+            AdmissionControl.Ticket ticket
+    ) throws InterruptedException {
+        ConversationCaches.SessionRef session;
+        try {
+            session = mailbox.run(contactId, () -> service.recordIncoming(contactId, message, requestId));
+        } finally {
+            ticket.skipSample();
+            ticket.release();
+        }
+        String mode = session.mode().name();
+        if (session.mode() == ConversationMode.OFF) {
+            return new ConversationsService.MessageResult("DO_NOT_RESPOND", null, session.id(), new MessageResponse.Used(mode, false));
+        }
+        Optional<String> reply = debouncer.submit(contactId, message, combined -> admittedSuggestion(combined, requestId));
+        if (reply.isEmpty()) {
+            return new ConversationsService.MessageResult("SUPERSEDED", null, session.id(), new MessageResponse.Used(mode, false));
+        }
+        mailbox.run(contactId, () -> {
+            service.recordSuggestion(session.id(), reply.get(), requestId);
+            return null;
+        });
+        return new ConversationsService.MessageResult("SUGGEST", reply.get(), session.id(), new MessageResponse.Used(mode, true));
     }
 
-    private static Map<String, Object> messageResponseBody(String requestId, ConversationsService.MessageResult result) {
-        Map<String, Object> body = new HashMap<>();
-        body.put("requestId", requestId);
-        body.put("decision", result.decision());
-        body.put("suggestedReply", result.suggestedReply());
-        body.put("sessionId", result.sessionId().toString());
-        body.put("used", result.used());
-        return body;
+    private String admittedSuggestion(String messageText, String requestId) {
+        AdmissionControl.Ticket ticket = admission.enter(AdmissionControl.Priority.NORMAL);
+        if (!ticket.admitted()) {
+            throw new SuggestionShed(ticket);
+        }
+        try {
+            return service.suggestReply(messageText, requestId);
+        } catch (RestClientException ex) {
+            if (!Thread.currentThread().isInterrupted()) {
+                ticket.failed(ex);
+            }
+            throw ex;
+        } finally {
+            if (Thread.currentThread().isInterrupted()) {
+                // Cancelled by a newer message of the burst: the aborted call says nothing about upstream load.
+                ticket.skipSample();
+            }
+            ticket.release();
+        }
     }
 
     @PostMapping(
@@ -165,7 +267,7 @@ public class ConversationsController {
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<Map<String, Object>> tag(@RequestBody TagRequest body, HttpServletRequest req) {
+    public ResponseEntity<?> tag(@RequestBody TagRequest body, HttpServletRequest req) {
         String requestId = getOrCreateRequestId(req);
         HttpHeaders responseHeaders = new HttpHeaders();
         responseHeaders.set("X-Request-Id", requestId);
@@ -182,57 +284,239 @@ public class ConversationsController {
         if (tag.isEmpty()) {
             return badRequest(responseHeaders, requestId, "tag is required");
         }
-        if (!SUPPORTED_TAGS.contains(tag)) {
+        if (tags.find(tag).isEmpty()) {
             return badRequest(responseHeaders, requestId, "tag is not supported");
         }
         if (count != null && count <= 0) {
             return badRequest(responseHeaders, requestId, "count must be positive");
         }
+        DebugLevel debug = defaultDebugLevel;
+        if (body.debug() != null && !body.debug().trim().isEmpty()) {
+            Optional<DebugLevel> requested = DebugLevel.parse(body.debug());
+            if (requested.isEmpty()) {
+                return badRequest(responseHeaders, requestId, "debug must be none, summary or full");
+            }
+            debug = requested.get();
+        }
+
+        TagRateLimiter.Decision rate = rateLimiter.tryAcquire(contactId, tag);
+        if (!rate.allowed()) {
+            responseHeaders.set(HttpHeaders.RETRY_AFTER, AdmissionControl.retryAfterSeconds(rate.retryAfter()));
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .headers(responseHeaders)
+                    .body(new ErrorResponse(requestId, "RATE_LIMITED", "rate limit exceeded (" + rate.rejectedBy().name().toLowerCase() + ")"));
+        }
 
         String text = body.text() == null ? null : body.text().trim();
 
+        ConversationsService.TagInput input = new ConversationsService.TagInput(contactId, tag, count, payload, locale, text, debug);
+        AdmissionControl.Ticket ticket = admission.enter(AdmissionControl.Priority.NORMAL);
+        if (!ticket.admitted()) {
+            // Overload is not the contact's fault: a shed request does not use up its rate budget.
+            rateLimiter.refund(contactId, tag);
+            return shed(responseHeaders, requestId, ticket);
+        }
+        if (Boolean.TRUE.equals(body.async())) {
+            TagJobResponse job = jobs.submit(input, requestId, ticket);
+            responseHeaders.setLocation(URI.create("/v1/conversations/tag/jobs/" + job.jobId()));
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .headers(responseHeaders)
+                    .body(job);
+        }
         ConversationsService.TagResult result;
         try {
-            result = service.handleTag(
-                    new ConversationsService.TagInput(contactId, tag, count, payload, locale, text),
-                    requestId
-            );
+            result = mailbox.run(contactId, () -> service.handleTag(input, requestId));
+        } catch (UpstreamRejectedException ex) {
+            ticket.dropped();
+            rateLimiter.refund(contactId, tag);
+            responseHeaders.set(HttpHeaders.RETRY_AFTER, AdmissionControl.retryAfterSeconds(ex.retryAfter()));
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .headers(responseHeaders)
+                    .body(new ErrorResponse(requestId, "OVERLOADED", "too many " + ex.costClass() + " requests in flight, retry later"));
         } catch (RestClientResponseException ex) {
+            ticket.failed(ex);
             return upstreamError(responseHeaders, requestId, "LLM_ERROR", "llm-gateway call failed (status=" + ex.getStatusCode().value() + ")");
         } catch (RestClientException ex) {
+            ticket.failed(ex);
             return upstreamError(responseHeaders, requestId, "LLM_ERROR", "llm-gateway call failed");
+        } finally {
+            ticket.release();
         }
 
         return ResponseEntity.ok()
                 .headers(responseHeaders)
-                .body(Map.of(
-                        "requestId", requestId,
-                        "decision", result.decision(),
-                        "replyText", result.replyText(),
-                        "sessionId", result.sessionId().toString(),
-                        "contactId", result.contactId(),
-                        "tag", result.tag(),
-                        "used", result.used()
+                .body(TagResponse.of(requestId, result));
+    }
+
+    @GetMapping(value = "/v1/conversations/tag/jobs/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> tagJob(@PathVariable String jobId, HttpServletRequest req) {
+        String requestId = getOrCreateRequestId(req);
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set("X-Request-Id", requestId);
+
+        UUID id;
+        try {
+            id = UUID.fromString(jobId);
+        } catch (IllegalArgumentException ex) {
+            return badRequest(responseHeaders, requestId, "jobId must be a UUID");
+        }
+        Optional<TagJobResponse> job = jobs.find(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .headers(responseHeaders)
+                    .body(new ErrorResponse(requestId, "NOT_FOUND", "job not found or expired"));
+        }
+        return ResponseEntity.ok()
+                .headers(responseHeaders)
+                .body(job.get());
+    }
+
+    @GetMapping(value = "/v1/conversations/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> search(
+            @RequestParam(required = false) String contactId,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            HttpServletRequest req
+    ) {
+        String requestId = getOrCreateRequestId(req);
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set("X-Request-Id", requestId);
+
+        String contact = contactId == null ? "" : contactId.trim();
+        String query = q == null ? "" : q.trim();
+        if (contact.isEmpty()) {
+            return badRequest(responseHeaders, requestId, "contactId is required");
+        }
+        if (query.isEmpty()) {
+            return badRequest(responseHeaders, requestId, "q is required");
+        }
+        int pageSize = limit == null ? DEFAULT_SEARCH_LIMIT : limit;
+        if (pageSize <= 0 || pageSize > MAX_SEARCH_LIMIT) {
+            return badRequest(responseHeaders, requestId, "limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+        SearchCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            Optional<SearchCursor> decoded = SearchCursor.decode(cursor.trim());
+            if (decoded.isEmpty()) {
+                return badRequest(responseHeaders, requestId, "cursor is invalid");
+            }
+            after = decoded.get();
+        }
+
+        AdmissionControl.Ticket ticket = admission.enter(AdmissionControl.Priority.NORMAL);
+        if (!ticket.admitted()) {
+            return shed(responseHeaders, requestId, ticket);
+        }
+        ConversationHistoryQueries.SearchPage page;
+        try {
+            ticket.skipSample();
+            page = service.search(contact, query, pageSize, after);
+        } finally {
+            ticket.release();
+        }
+
+        return ResponseEntity.ok()
+                .headers(responseHeaders)
+                .body(new SearchResponse(
+                        requestId,
+                        contact,
+                        page.hits().stream()
+                                .map(hit -> new SearchResponse.Hit(
+                                        hit.id().toString(),
+                                        hit.direction(),
+                                        hit.text(),
+                                        hit.createdAt().toString(),
+                                        hit.rank()
+                                ))
+                                .toList(),
+                        page.next() == null ? null : page.next().encode()
                 ));
     }
 
-    private ResponseEntity<Map<String, Object>> badRequest(HttpHeaders headers, String requestId, String message) {
+    /**
+     * The contact's whole history as NDJSON, oldest first, written straight to the response while rows stream from
+     * the database; compressed by the server when the client accepts gzip. Each export holds a database connection
+     * until it finishes, so at most {@code tagmind.export.max-concurrent} run at once.
+     */
+    @GetMapping(value = "/v1/conversations/export")
+    public ResponseEntity<?> export(
+            @RequestParam(required = false) String contactId,
+            HttpServletRequest req,
+            HttpServletResponse res
+    ) throws IOException {
+        String requestId = getOrCreateRequestId(req);
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set("X-Request-Id", requestId);
+
+        String contact = contactId == null ? "" : contactId.trim();
+        if (contact.isEmpty()) {
+            return badRequest(responseHeaders, requestId, "contactId is required");
+        }
+        Optional<UUID> sessionId = service.findSessionId(contact);
+        if (sessionId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .headers(responseHeaders)
+                    .body(new ErrorResponse(requestId, "NOT_FOUND", "conversation not found"));
+        }
+        if (!exports.tryAcquire()) {
+            responseHeaders.set(HttpHeaders.RETRY_AFTER, AdmissionControl.retryAfterSeconds(EXPORT_RETRY_AFTER));
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .headers(responseHeaders)
+                    .body(new ErrorResponse(requestId, "OVERLOADED", "too many exports in progress, retry later"));
+        }
+        try {
+            res.setStatus(HttpStatus.OK.value());
+            res.setContentType(NDJSON);
+            res.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            res.setHeader("X-Request-Id", requestId);
+            res.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"conversation-" + sessionId.get() + ".ndjson\"");
+            try (JsonGenerator json = mapper.getFactory().createGenerator(res.getOutputStream())) {
+                json.setRootValueSeparator(null);
+                service.export(sessionId.get(), (id, direction, text, createdAt, messageRequestId) -> {
+                    json.writeStartObject();
+                    json.writeStringField("messageId", id.toString());
+                    json.writeStringField("direction", direction);
+                    json.writeStringField("text", text);
+                    json.writeStringField("createdAt", createdAt.toString());
+                    json.writeStringField("requestId", messageRequestId);
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                });
+            }
+        } finally {
+            exports.release();
+        }
+        // Written directly to the response.
+        return null;
+    }
+
+    private ResponseEntity<ErrorResponse> shed(HttpHeaders headers, String requestId, AdmissionControl.Ticket ticket) {
+        headers.set(HttpHeaders.RETRY_AFTER, AdmissionControl.retryAfterSeconds(ticket.retryAfter()));
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .headers(headers)
+                .body(new ErrorResponse(requestId, "OVERLOADED", "server is at capacity, retry later"));
+    }
+
+    private ResponseEntity<ErrorResponse> badRequest(HttpHeaders headers, String requestId, String message) {
         return ResponseEntity.badRequest()
                 .headers(headers)
-                .body(Map.of(
-                        "requestId", requestId,
-                        "code", "BAD_REQUEST",
-                        "message", message
-                ));
+                .body(new ErrorResponse(requestId, "BAD_REQUEST", message));
     }
 
-    private ResponseEntity<Map<String, Object>> upstreamError(HttpHeaders headers, String requestId, String code, String message) {
+    private ResponseEntity<ErrorResponse> upstreamError(HttpHeaders headers, String requestId, String code, String message) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .headers(headers)
-                .body(Map.of(
-                        "requestId", requestId,
-                        "code", code,
-                        "message", message
-                ));
+                .body(new ErrorResponse(requestId, code, message));
+    }
+
+    /** A debounced suggestion was not admitted; carries the rejected ticket for its Retry-After. */
+    private static final class SuggestionShed extends RuntimeException {
+        private final AdmissionControl.Ticket ticket;
+
+        private SuggestionShed(AdmissionControl.Ticket ticket) {
+            super(null, null, false, false);
+            this.ticket = ticket;
+        }
     }
 }
@@ -1,89 +1,121 @@
 package dev.tagmind.orchestrator.conversations;
 
+import dev.tagmind.orchestrator.persistence.ConversationHistoryQueries;
 import dev.tagmind.orchestrator.persistence.ConversationMode;
 import dev.tagmind.orchestrator.persistence.ConversationMessageEntity;
 import dev.tagmind.orchestrator.persistence.ConversationMessageRepository;
 import dev.tagmind.orchestrator.persistence.ConversationSessionEntity;
 import dev.tagmind.orchestrator.persistence.ConversationSessionRepository;
 import dev.tagmind.orchestrator.persistence.MessageDirection;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import dev.tagmind.orchestrator.persistence.ReadYourWrites;
+import dev.tagmind.orchestrator.persistence.SearchCursor;
+import dev.tagmind.orchestrator.persistence.SessionTouches;
+import dev.tagmind.orchestrator.tracing.Span;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestClientException;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @Service
 public class ConversationsService {
 
     private final ConversationSessionRepository sessions;
     private final ConversationMessageRepository messages;
+    private final ConversationHistoryQueries historyQueries;
+    private final ReadYourWrites readYourWrites;
+    private final TransactionTemplate writeTx;
     private final LlmGatewayClient llm;
     private final RetrieverClient retriever;
     private final TagPromptBuilder prompts;
+    private final TagRegistry tags;
+    private final TagResponseCache responseCache;
+    private final UpstreamBulkheads bulkheads;
+    private final TagRateLimiter rateLimiter;
+    private final ConversationCaches caches;
+    private final SessionTouches touches;
 
     public ConversationsService(
             ConversationSessionRepository sessions,
             ConversationMessageRepository messages,
+            ConversationHistoryQueries historyQueries,
+            ReadYourWrites readYourWrites,
+            TransactionTemplate writeTx,
             LlmGatewayClient llm,
             RetrieverClient retriever,
-            TagPromptBuilder prompts
+            TagPromptBuilder prompts,
+            TagRegistry tags,
+            TagResponseCache responseCache,
+            UpstreamBulkheads bulkheads,
+            TagRateLimiter rateLimiter,
+            ConversationCaches caches,
+            SessionTouches touches
     ) {
         this.sessions = sessions;
         this.messages = messages;
+        this.historyQueries = historyQueries;
+        this.readYourWrites = readYourWrites;
+        this.writeTx = writeTx;
         this.llm = llm;
         this.retriever = retriever;
         this.prompts = prompts;
+        this.tags = tags;
+        this.responseCache = responseCache;
+        this.bulkheads = bulkheads;
+        this.rateLimiter = rateLimiter;
+        this.caches = caches;
+        this.touches = touches;
     }
 
     @Transactional
     public ConversationSessionEntity upsert(String contactId, ConversationMode mode) {
-        ConversationSessionEntity session = sessions.findByContactId(contactId)
-                .orElseGet(() -> {
-                    ConversationSessionEntity s = new ConversationSessionEntity();
-                    s.setContactId(contactId);
-                    return s;
-                });
-
-        session.setMode(mode);
-        return sessions.save(session);
+        try (Span span = Span.start("session.upsert")) {
+            ConversationSessionEntity session = sessions.findByContactId(contactId)
+                    .orElseGet(() -> {
+                        ConversationSessionEntity s = new ConversationSessionEntity();
+                        s.setContactId(contactId);
+                        return s;
+                    });
+
+            session.setMode(mode);
+            session = sessions.save(session);
+            caches.sessionChanged(contactId);
+            return session;
+        }
+    }
+
+    /** Answers from the session cache only (false on a miss), so it is cheap enough to call before admission. */
+    public boolean isOff(String contactId) {
+        return caches.cachedSession(contactId)
+                .map(session -> session.mode() == ConversationMode.OFF)
+                .orElse(false);
     }
 
-    @Transactional
     public MessageResult handleMessage(String contactId, String messageText, String requestId) {
-        ConversationSessionEntity session = sessions.findByContactId(contactId)
-                .orElseGet(() -> {
-                    ConversationSessionEntity s = new ConversationSessionEntity();
-                    s.setContactId(contactId);
-                    s.setMode(ConversationMode.SUGGEST);
-                    return s;
-                });
-
-        session.touch();
-        session = sessions.save(session);
-
-        ConversationMessageEntity incoming = new ConversationMessageEntity();
-        incoming.setSession(session);
-        incoming.setDirection(MessageDirection.IN);
-        incoming.setMessageText(messageText);
-        incoming.setRequestId(requestId);
-        messages.save(incoming);
-
-        if (session.getMode() == ConversationMode.OFF) {
+        return retryOnStaleSession(contactId, () -> writeTx.execute(status -> handleMessageInTx(contactId, messageText, requestId)));
+    }
+
+    private MessageResult handleMessageInTx(String contactId, String messageText, String requestId) {
+        ConversationCaches.SessionRef session = storeIncoming(contactId, messageText, requestId);
+        // A stale session id fails here, before the llm-gateway call rather than at commit after it.
+        messages.flush();
+        ConversationSessionEntity ref = sessions.getReferenceById(session.id());
+
+        if (session.mode() == ConversationMode.OFF) {
             return new MessageResult(
                     "DO_NOT_RESPOND",
                     null,
-                    session.getId(),
-                    Map.of(
-                            "mode", session.getMode().name(),
-                            "llmCalled", false
-                    )
+                    session.id(),
+                    new MessageResponse.Used(session.mode().name(), false)
             );
         }
 
@@ -94,133 +126,223 @@ public class ConversationsService {
             throw ex;
         }
 
-        ConversationMessageEntity outgoing = new ConversationMessageEntity();
-        outgoing.setSession(session);
-        outgoing.setDirection(MessageDirection.OUT);
-        outgoing.setMessageText(suggestedReply);
-        outgoing.setRequestId(requestId);
-        messages.save(outgoing);
+        persistMessage(ref, MessageDirection.OUT, suggestedReply, requestId, null);
 
         return new MessageResult(
                 "SUGGEST",
                 suggestedReply,
-                session.getId(),
-                Map.of(
-                        "mode", session.getMode().name(),
-                        "llmCalled", true
-                )
+                session.id(),
+                new MessageResponse.Used(session.mode().name(), true)
         );
     }
 
+    /** Stores an incoming message without generating a reply; the debounced path generates separately. */
+    public ConversationCaches.SessionRef recordIncoming(String contactId, String messageText, String requestId) {
+        return retryOnStaleSession(contactId, () -> writeTx.execute(status -> storeIncoming(contactId, messageText, requestId)));
+    }
+
+    /** A suggested reply to {@code messageText}, which may be several burst messages joined by newlines. */
+    public String suggestReply(String messageText, String requestId) {
+        return llm.complete(messageText, requestId).text();
+    }
+
     @Transactional
-    public TagResult handleTag(TagInput input, String requestId) {
-        ConversationSessionEntity session = sessions.findByContactId(input.contactId())
-                .orElseGet(() -> {
-                    ConversationSessionEntity s = new ConversationSessionEntity();
-                    s.setContactId(input.contactId());
-                    s.setMode(ConversationMode.SUGGEST);
-                    return s;
-                });
-        session.touch();
-        session = sessions.save(session);
+    public void recordSuggestion(UUID sessionId, String suggestedReply, String requestId) {
+        persistMessage(sessions.getReferenceById(sessionId), MessageDirection.OUT, suggestedReply, requestId, null);
+        readYourWrites.recordWrite(sessionId);
+        caches.historyAppended(sessionId);
+    }
+
+    public ConversationHistoryQueries.SearchPage search(String contactId, String query, int limit, SearchCursor after) {
+        Optional<ConversationCaches.SessionRef> session = caches.session(
+                contactId,
+                () -> sessions.findByContactId(contactId).map(ConversationCaches.SessionRef::of)
+        );
+        if (session.isEmpty()) {
+            return new ConversationHistoryQueries.SearchPage(List.of(), null);
+        }
+        UUID sessionId = session.get().id();
+        return readYourWrites.read(sessionId, () -> historyQueries.search(sessionId, query, limit, after));
+    }
+
+    public Optional<UUID> findSessionId(String contactId) {
+        return caches.session(contactId, () -> sessions.findByContactId(contactId).map(ConversationCaches.SessionRef::of))
+                .map(ConversationCaches.SessionRef::id);
+    }
+
+    /** Streams the session's full history, oldest first; see {@link ConversationHistoryQueries#export}. */
+    public long export(UUID sessionId, ConversationHistoryQueries.ExportSink sink) throws IOException {
+        try (Span span = Span.start("export")) {
+            IOException[] failure = {null};
+            long written = readYourWrites.read(sessionId, () -> {
+                try {
+                    return historyQueries.export(sessionId, sink);
+                } catch (IOException ex) {
+                    failure[0] = ex;
+                    return -1L;
+                }
+            });
+            if (failure[0] != null) {
+                span.error(failure[0]);
+                throw failure[0];
+            }
+            span.tag("export.count", written);
+            return written;
+        }
+    }
 
+    public TagResult handleTag(TagInput input, String requestId) {
+        TagDefinition definition = tags.require(input.tag());
         String incomingText = resolveIncomingText(input);
-        persistMessage(session, MessageDirection.IN, incomingText, requestId);
+        OffsetDateTime receivedAt = OffsetDateTime.now(ZoneOffset.UTC);
+
+        ConversationCaches.SessionRef session;
+        try (Span span = Span.start("session.upsert")) {
+            session = retryOnStaleSession(input.contactId(), () -> writeTx.execute(status -> {
+                ConversationCaches.SessionRef s = findOrCreateSession(input.contactId());
+                if (s.mode() == ConversationMode.OFF) {
+                    persistMessage(sessions.getReferenceById(s.id()), MessageDirection.IN, incomingText, requestId, receivedAt);
+                    readYourWrites.recordWrite(s.id());
+                    caches.historyAppended(s.id());
+                }
+                return s;
+            }));
+        }
 
-        if (session.getMode() == ConversationMode.OFF) {
-            Map<String, Object> used = Map.of(
-                    "mode", session.getMode().name(),
-                    "llmCalled", false,
-                    "retrieverUsed", false
-            );
+        if (session.mode() == ConversationMode.OFF) {
             return new TagResult(
                     "DO_NOT_RESPOND",
                     null,
-                    session.getId(),
-                    session.getContactId(),
+                    session.id(),
+                    session.contactId(),
                     input.tag(),
-                    used
+                    TagResponse.Used.off(session.mode().name())
             );
         }
 
-        HistoryResult historyResult = fetchHistoryIfNeeded(session, input);
-        RetrieverContext retrieverContext = maybeCallRetriever(input, requestId);
-        TagPromptBuilder.TagPrompt prompt = prompts.build(input, historyResult.entries(), retrieverContext.results());
-
-        LlmGatewayClient.LlmResponse llmResponse = llm.complete(prompt.prompt(), input.locale(), requestId);
-
-        Map<String, Object> used = new HashMap<>();
-        used.put("tag", input.tag());
-        used.put("locale", input.locale());
-        used.put("requestedCount", input.count());
-        used.put("historyUsed", historyResult.entries().size());
-        used.put("llmCalled", true);
-        used.put("promptType", prompt.type());
-        used.put("promptTokens", prompt.tokenEstimate());
-        used.put("implemented", true);
-        used.putAll(prompt.debug());
-        used.put("retrieverUsed", retrieverContext.used());
-        used.put("citationsCount", retrieverContext.results().size());
-        if (!historyResult.entries().isEmpty()) {
-            used.put("historyLimit", historyResult.limit());
-            used.put("history", historyResult.asDebugHistory());
+        HistoryResult historyResult = fetchHistoryIfNeeded(session, definition, input);
+        Completion completion = bulkheads.run(definition.costClass(), () -> complete(definition, input, historyResult, requestId));
+        String replyText = completion.replyText();
+
+        TagResponse.Used used = usage(input, session, historyResult, completion.retrieverContext(), completion.prompt(), completion.cacheHit());
+
+        UUID sessionId;
+        // Inserts are flushed on commit, so "persist" is where the database time of both messages shows up. The
+        // session is resolved again (a cache hit) so that a retry after a stale id picks up the current one.
+        try (Span span = Span.start("persist")) {
+            sessionId = retryOnStaleSession(input.contactId(), () -> writeTx.execute(status -> {
+                UUID id = findOrCreateSession(input.contactId()).id();
+                ConversationSessionEntity ref = sessions.getReferenceById(id);
+                persistMessage(ref, MessageDirection.IN, incomingText, requestId, receivedAt);
+                persistMessage(ref, MessageDirection.OUT, replyText, requestId, null);
+                caches.historyAppended(id);
+                return id;
+            }));
         }
-        if (!retrieverContext.results().isEmpty()) {
-            used.put("citations", retrieverContext.results());
-        }
-
-        persistMessage(session, MessageDirection.OUT, llmResponse.text(), requestId);
+        readYourWrites.recordWrite(sessionId);
 
         return new TagResult(
                 "RESPOND",
-                llmResponse.text(),
-                session.getId(),
-                session.getContactId(),
+                replyText,
+                sessionId,
+                session.contactId(),
                 input.tag(),
                 used
         );
     }
 
-    private HistoryResult fetchHistoryIfNeeded(ConversationSessionEntity session, TagInput input) {
-        if (!requiresHistory(input.tag())) {
+    private Completion complete(TagDefinition definition, TagInput input, HistoryResult historyResult, String requestId) {
+        RetrieverContext retrieverContext = maybeCallRetriever(definition, input, requestId);
+        TagPromptBuilder.TagPrompt prompt;
+        try (Span span = Span.start("prompt")) {
+            prompt = prompts.build(definition, input, historyResult.entries(), retrieverContext.results());
+        }
+
+        Optional<String> cached = responseCache.get(definition, input.locale(), prompt.prompt());
+        if (cached.isPresent()) {
+            return new Completion(retrieverContext, prompt, cached.get(), true);
+        }
+        String replyText = llm.complete(prompt.prefix(), prompt.suffix(), input.locale(), definition.timeout(), requestId).text();
+        rateLimiter.chargePromptTokens(input.contactId(), prompt.tokenEstimate());
+        responseCache.put(definition, input.locale(), prompt.prompt(), replyText);
+        return new Completion(retrieverContext, prompt, replyText, false);
+    }
+
+    private HistoryResult fetchHistoryIfNeeded(ConversationCaches.SessionRef session, TagDefinition definition, TagInput input) {
+        if (!definition.requiresHistory()) {
             return new HistoryResult(0, List.of());
         }
-        int limit = effectiveCount(input.tag(), input.count());
-        PageRequest page = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
-        List<ConversationMessageEntity> latest = messages.findBySession(session, page);
-        if (latest.isEmpty()) {
-            return new HistoryResult(limit, List.of());
+        try (Span span = Span.start("history")) {
+            HistoryResult result = fetchHistory(session, definition, input);
+            span.tag("history.policy", definition.history()).tag("history.count", result.entries().size());
+            return result;
         }
-        List<ConversationMessageEntity> copy = new ArrayList<>(latest);
-        Collections.reverse(copy);
-        List<TagPromptBuilder.HistoryEntry> history = copy.stream()
-                .map(msg -> new TagPromptBuilder.HistoryEntry(
-                        msg.getDirection().name(),
-                        msg.getMessageText(),
-                        msg.getCreatedAt().toString()
-                ))
-                .toList();
-        return new HistoryResult(limit, history);
     }
 
-    private boolean requiresHistory(String tag) {
-        return switch (tag) {
-            case "recap", "judge", "fix" -> true;
-            default -> false;
-        };
+    private HistoryResult fetchHistory(ConversationCaches.SessionRef session, TagDefinition definition, TagInput input) {
+        int limit = definition.effectiveCount(input.count());
+        if (definition.history() == TagDefinition.HistoryPolicy.SEARCH) {
+            return new HistoryResult(limit, searchHistory(session.id(), input.payload(), limit));
+        }
+        if (definition.history() == TagDefinition.HistoryPolicy.RELEVANT) {
+            List<TagPromptBuilder.HistoryEntry> window = latestHistory(session.id(), Math.max(limit, definition.candidateWindow()));
+            return new HistoryResult(limit, RelevantHistorySelector.select(window, input.payload(), limit, definition.recentCount()));
+        }
+        return new HistoryResult(limit, latestHistory(session.id(), limit));
+    }
+
+    private List<TagPromptBuilder.HistoryEntry> latestHistory(UUID sessionId, int limit) {
+        return caches.latestHistory(sessionId, limit, () -> readYourWrites.read(sessionId, () -> historyQueries.findLatest(
+                sessionId,
+                limit,
+                (direction, text, createdAt) -> new TagPromptBuilder.HistoryEntry(direction, text, createdAt.toString())
+        )));
     }
 
-    private int effectiveCount(String tag, Integer requested) {
-        if (requested != null && requested > 0) return requested;
-        return switch (tag) {
-            case "judge" -> 8;
-            case "fix" -> 5;
-            default -> 10;
-        };
+    private List<TagPromptBuilder.HistoryEntry> searchHistory(UUID sessionId, String query, int limit) {
+        if (query == null || query.isEmpty()) {
+            return List.of();
+        }
+        ConversationHistoryQueries.SearchPage page = readYourWrites.read(sessionId, () -> historyQueries.search(sessionId, query, limit, null));
+        // Hits come best-first; the prompt reads them as a conversation, so present them in chat order.
+        return page.hits().stream()
+                .sorted(Comparator.comparing(ConversationHistoryQueries.SearchHit::createdAt))
+                .map(hit -> new TagPromptBuilder.HistoryEntry(hit.direction(), hit.text(), hit.createdAt().toString()))
+                .toList();
+    }
+
+    private static TagResponse.Used usage(
+            TagInput input,
+            ConversationCaches.SessionRef session,
+            HistoryResult historyResult,
+            RetrieverContext retrieverContext,
+            TagPromptBuilder.TagPrompt prompt,
+            boolean cacheHit
+    ) {
+        boolean summary = input.debug() != DebugLevel.NONE;
+        boolean full = input.debug() == DebugLevel.FULL;
+        boolean withHistory = !historyResult.entries().isEmpty();
+        boolean withCitations = !retrieverContext.results().isEmpty();
+        return new TagResponse.Used(
+                session.mode().name(),
+                !cacheHit,
+                cacheHit,
+                retrieverContext.used(),
+                historyResult.entries().size(),
+                retrieverContext.results().size(),
+                summary ? input.locale() : null,
+                summary ? input.count() : null,
+                summary && withHistory ? historyResult.limit() : null,
+                summary ? prompt.type() : null,
+                summary ? prompt.tokenEstimate() : null,
+                summary ? prompt.payloadLen() : null,
+                full && withHistory ? historyResult.entries() : null,
+                full && withCitations ? retrieverContext.results() : null
+        );
     }
 
-    private RetrieverContext maybeCallRetriever(TagInput input, String requestId) {
-        if (!"web".equals(input.tag())) {
+    private RetrieverContext maybeCallRetriever(TagDefinition definition, TagInput input, String requestId) {
+        if (!definition.retriever()) {
             return new RetrieverContext(false, List.of());
         }
         String query = (input.payload() == null || input.payload().trim().isEmpty())
@@ -233,23 +355,14 @@ public class ConversationsService {
         if (response == null || response.results() == null || response.results().isEmpty()) {
             return new RetrieverContext(false, List.of());
         }
-        List<Map<String, Object>> citations = response.results().stream()
-                .map(r -> Map.<String, Object>of(
-                        "title", r.title(),
-                        "snippet", r.snippet(),
-                        "url", r.url(),
-                        "source", r.source(),
-                        "publishedAt", r.publishedAt()
-                ))
-                .toList();
-        return new RetrieverContext(true, citations);
+        return new RetrieverContext(true, response.results());
     }
 
     public record MessageResult(
             String decision,
             String suggestedReply,
             UUID sessionId,
-            Map<String, Object> used
+            MessageResponse.Used used
     ) {}
 
     public record TagResult(
@@ -258,7 +371,7 @@ public class ConversationsService {
             UUID sessionId,
             String contactId,
             String tag,
-            Map<String, Object> used
+            TagResponse.Used used
     ) {}
 
     public record TagInput(
@@ -267,30 +380,73 @@ public class ConversationsService {
             Integer count,
             String payload,
             String locale,
-            String text
+            String text,
+            DebugLevel debug
     ) {}
 
-    private record HistoryResult(int limit, List<TagPromptBuilder.HistoryEntry> entries) {
-        List<Map<String, Object>> asDebugHistory() {
-            return entries.stream()
-                    .map(entry -> Map.<String, Object>of(
-                            "direction", entry.direction(),
-                            "text", entry.text(),
-                            "createdAt", entry.createdAt()
-                    ))
-                    .toList();
+    private record HistoryResult(int limit, List<TagPromptBuilder.HistoryEntry> entries) {}
+
+    private record Completion(RetrieverContext retrieverContext, TagPromptBuilder.TagPrompt prompt, String replyText, boolean cacheHit) {}
+
+    private record RetrieverContext(boolean used, List<RetrieverClient.RetrieverResult> results) {}
+
+    private ConversationCaches.SessionRef storeIncoming(String contactId, String messageText, String requestId) {
+        ConversationCaches.SessionRef session;
+        try (Span span = Span.start("session.upsert")) {
+            session = findOrCreateSession(contactId);
+        }
+        persistMessage(sessions.getReferenceById(session.id()), MessageDirection.IN, messageText, requestId, null);
+        readYourWrites.recordWrite(session.id());
+        caches.historyAppended(session.id());
+        return session;
+    }
+
+    // The session cache only hears about sessions changed through this service. One deleted or re-created behind
+    // its back (a manual cleanup, a restore) leaves a cached id that the next message insert rejects with a foreign-key
+    // violation: drop the entry everywhere and run the transaction once more against a fresh lookup.
+    private <T> T retryOnStaleSession(String contactId, Supplier<T> transaction) {
+        try {
+            return transaction.get();
+        } catch (DataIntegrityViolationException ex) {
+            caches.sessionChanged(contactId);
+            return transaction.get();
         }
     }
 
-    private record RetrieverContext(boolean used, List<Map<String, Object>> results) {}
+    // Existing sessions come from the session cache and get a coalesced touch instead of a row update per message.
+    private ConversationCaches.SessionRef findOrCreateSession(String contactId) {
+        Optional<ConversationCaches.SessionRef> existing = caches.session(
+                contactId,
+                () -> sessions.findByContactId(contactId).map(ConversationCaches.SessionRef::of)
+        );
+        if (existing.isPresent()) {
+            touches.touch(existing.get().id());
+            return existing.get();
+        }
+        ConversationSessionEntity created = new ConversationSessionEntity();
+        created.setContactId(contactId);
+        created.setMode(ConversationMode.SUGGEST);
+        ConversationCaches.SessionRef session = ConversationCaches.SessionRef.of(sessions.save(created));
+        caches.sessionChanged(contactId);
+        return session;
+    }
 
-    private void persistMessage(ConversationSessionEntity session, MessageDirection direction, String text, String requestId) {
-        ConversationMessageEntity message = new ConversationMessageEntity();
-        message.setSession(session);
-        message.setDirection(direction);
-        message.setMessageText(text);
-        message.setRequestId(requestId);
-        messages.save(message);
+    private void persistMessage(
+            ConversationSessionEntity session,
+            MessageDirection direction,
+            String text,
+            String requestId,
+            OffsetDateTime createdAt
+    ) {
+        try (Span span = Span.start("message.insert")) {
+            ConversationMessageEntity message = new ConversationMessageEntity();
+            message.setCreatedAt(createdAt);
+            message.setSession(session);
+            message.setDirection(direction);
+            message.setMessageText(text);
+            message.setRequestId(requestId);
+            messages.save(message);
+        }
     }
 
     private String resolveIncomingText(TagInput input) {
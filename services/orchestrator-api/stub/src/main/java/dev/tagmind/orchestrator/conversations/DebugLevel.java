@@ -0,0 +1,21 @@
+package dev.tagmind.orchestrator.conversations;
+
+import java.util.Optional;
+
+public enum DebugLevel {
+    NONE,
+    SUMMARY,
+    FULL;
+
+    public static Optional<DebugLevel> parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "none" -> Optional.of(NONE);
+            case "summary" -> Optional.of(SUMMARY);
+            case "full" -> Optional.of(FULL);
+            default -> Optional.empty();
+        };
+    }
+}
@@ -0,0 +1,7 @@
+package dev.tagmind.orchestrator.conversations;
+
+public record ErrorResponse(
+        String requestId,
+        String code,
+        String message
+) {}
@@ -1,68 +1,306 @@
 package dev.tagmind.orchestrator.conversations;
 
+import dev.tagmind.orchestrator.tracing.Span;
+import dev.tagmind.orchestrator.tracing.TraceParent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
 import org.springframework.http.*;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Calls llm-gateway {@code /v1/complete}. With {@code tagmind.llm.batch.enabled} concurrent completions are grouped
+ * by a {@link MicroBatcher} and sent to {@code /v1/complete/batch}, each caller getting its own item back; if the
+ * gateway has no batch endpoint the client falls back to single calls for the rest of its life.
+ * <p>
+ * Tag prompts carry their constant instruction head as a {@link Prefix}, sent by id once llm-gateway has it cached.
+ */
 @Component
 public class LlmGatewayClient {
 
+    private static final Logger log = LoggerFactory.getLogger(LlmGatewayClient.class);
     private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(2);
     private static final Duration READ_TIMEOUT = Duration.ofSeconds(5);
+    private static final String PREFIX_UNKNOWN = "PREFIX_UNKNOWN";
+    // llm-gateway rejects larger batches with 400 (contracts/llm-gateway.yaml, maxItems).
+    private static final int MAX_BATCH_ITEMS = 64;
 
     private final RestTemplate restTemplate;
+    private final ConcurrentHashMap<Duration, RestTemplate> byReadTimeout = new ConcurrentHashMap<>();
     private final String llmUrl;
+    private final UpstreamRetries retries;
+    private final MicroBatcher<BatchRequest, BatchResult> batcher;
+    private final Duration batchMaxWait;
+    private volatile boolean batchUnsupported;
+    private final Set<String> acknowledgedPrefixes = ConcurrentHashMap.newKeySet();
+    private final Counter prefixTextSent;
+    private final Counter prefixIdOnly;
 
-    public LlmGatewayClient() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(CONNECT_TIMEOUT);
-        factory.setReadTimeout(READ_TIMEOUT);
-        this.restTemplate = new RestTemplate(factory);
-        String env = System.getenv("LLM_URL");
-        if (env != null && !env.trim().isEmpty()) {
-            this.llmUrl = env.trim();
+    public LlmGatewayClient(UpstreamRetries retries, Environment env, MeterRegistry registry) {
+        this.retries = retries;
+        this.restTemplate = newRestTemplate(READ_TIMEOUT);
+        byReadTimeout.put(READ_TIMEOUT, restTemplate);
+        String url = System.getenv("LLM_URL");
+        if (url != null && !url.trim().isEmpty()) {
+            this.llmUrl = url.trim();
         } else {
             String sys = System.getProperty("LLM_URL");
             this.llmUrl = (sys != null && !sys.trim().isEmpty())
                     ? sys.trim()
                     : "http://llm-gateway/v1/complete";
         }
+        BatchProperties batch = Binder.get(env).bind("tagmind.llm.batch", BatchProperties.class).orElse(BatchProperties.DISABLED);
+        this.batchMaxWait = batch.maxWait() == null ? Duration.ofMillis(5) : batch.maxWait();
+        int batchMaxSize = batch.maxSize() == null ? 16 : batch.maxSize();
+        if (batchMaxSize < 1 || batchMaxSize > MAX_BATCH_ITEMS) {
+            throw new IllegalArgumentException("tagmind.llm.batch.max-size must be between 1 and " + MAX_BATCH_ITEMS);
+        }
+        this.batcher = Boolean.TRUE.equals(batch.enabled())
+                ? new MicroBatcher<>("llm", batchMaxSize, batchMaxWait, this::sendBatch, registry)
+                : null;
+        this.prefixTextSent = Counter.builder("tagmind.llm.prefix").tag("sent", "text").register(registry);
+        this.prefixIdOnly = Counter.builder("tagmind.llm.prefix").tag("sent", "id").register(registry);
+    }
+
+    private static RestTemplate newRestTemplate(Duration readTimeout) {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(CONNECT_TIMEOUT);
+        factory.setReadTimeout(readTimeout);
+        return new RestTemplate(factory);
+    }
+
+    // GET /healthz on the same host: resolves DNS and leaves a keep-alive connection for the first real call.
+    public void warmUp() throws RestClientException {
+        restTemplate.getForEntity(URI.create(llmUrl).resolve("/healthz"), String.class);
     }
 
     public LlmResponse complete(String prompt, String locale, String requestId) throws RestClientException {
+        return complete(prompt, locale, READ_TIMEOUT, requestId);
+    }
+
+    public LlmResponse complete(String prompt, String locale, Duration timeout, String requestId) throws RestClientException {
+        return complete(null, prompt, locale, timeout, requestId);
+    }
+
+    /**
+     * Completes {@code prefix.text() + suffix}. The prefix text is sent until llm-gateway has acknowledged its id once;
+     * after that only the id travels. If the gateway has since forgotten it (409 / PREFIX_UNKNOWN), the call is
+     * repeated once with the text.
+     */
+    public LlmResponse complete(Prefix prefix, String suffix, String locale, Duration timeout, String requestId) throws RestClientException {
+        String effectiveLocale = (locale == null || locale.trim().isEmpty()) ? "ru-RU" : locale.trim();
+        boolean withText = prefix != null && !acknowledgedPrefixes.contains(prefix.id());
+        try (Span span = Span.startClient("llm")) {
+            try {
+                return send(prefix, withText, suffix, effectiveLocale, timeout, requestId);
+            } catch (HttpClientErrorException.Conflict | PrefixUnknownException ex) {
+                if (prefix == null || withText) throw ex;
+                acknowledgedPrefixes.remove(prefix.id());
+                span.tag("llm.prefix_resent", true);
+                return send(prefix, true, suffix, effectiveLocale, timeout, requestId);
+            } catch (RestClientException ex) {
+                span.error(ex);
+                throw ex;
+            }
+        }
+    }
+
+    private LlmResponse send(Prefix prefix, boolean withText, String prompt, String locale, Duration timeout, String requestId) {
+        if (prefix != null) {
+            (withText ? prefixTextSent : prefixIdOnly).increment();
+        }
+        if (batcher != null && !batchUnsupported) {
+            try {
+                return completeBatched(new BatchRequest(prefix, withText, prompt, locale, timeout == null ? READ_TIMEOUT : timeout, requestId, Span.traceparent()));
+            } catch (HttpClientErrorException.NotFound | HttpClientErrorException.MethodNotAllowed ex) {
+                batchUnsupported = true;
+                log.warn("llm-gateway has no batch endpoint ({}), sending completions one by one", ex.getStatusCode().value());
+            }
+        }
+
         Map<String, Object> payload = new HashMap<>();
         payload.put("prompt", prompt);
-        String effectiveLocale = (locale == null || locale.trim().isEmpty()) ? "ru-RU" : locale.trim();
-        payload.put("locale", effectiveLocale);
+        payload.put("locale", locale);
         payload.put("model", "stub");
+        putPrefix(payload, prefix, withText);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("X-Request-Id", requestId);
-
-        ResponseEntity<LlmResponse> response = restTemplate.exchange(
+        RestTemplate client = timeout == null
+                ? restTemplate
+                : byReadTimeout.computeIfAbsent(timeout, LlmGatewayClient::newRestTemplate);
+        ResponseEntity<LlmResponse> response = retries.call(UpstreamRetries.LLM_GATEWAY, () -> client.exchange(
                 llmUrl,
                 HttpMethod.POST,
-                new HttpEntity<>(payload, headers),
+                new HttpEntity<>(payload, headers(requestId, Span.traceparent())),
                 LlmResponse.class
-        );
+        ));
 
         LlmResponse body = response.getBody();
         if (body == null) {
             throw new RestClientException("llm-gateway response missing body");
         }
+        acknowledge(prefix, body.prefixId());
         return body;
     }
 
+    private static void putPrefix(Map<String, Object> payload, Prefix prefix, boolean withText) {
+        if (prefix != null) {
+            payload.put("prefixId", prefix.id());
+            if (withText) {
+                payload.put("prefix", prefix.text());
+            }
+        }
+    }
+
+    private void acknowledge(Prefix prefix, String acknowledgedId) {
+        if (prefix != null && prefix.id().equals(acknowledgedId)) {
+            acknowledgedPrefixes.add(prefix.id());
+        }
+    }
+
+    private LlmResponse completeBatched(BatchRequest request) {
+        BatchResult result;
+        try {
+            result = batcher.submit(request).get(request.timeout().plus(batchMaxWait).toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RestClientException rest) throw rest;
+            throw new RestClientException("llm-gateway batch call failed", ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new ResourceAccessException("llm-gateway batch call timed out");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("interrupted while waiting for llm-gateway batch");
+        }
+        if (result.error() != null && PREFIX_UNKNOWN.equals(result.error().code())) {
+            throw new PrefixUnknownException();
+        }
+        if (result.error() != null || result.text() == null) {
+            String code = result.error() == null ? "MISSING" : result.error().code();
+            throw new RestClientException("llm-gateway batch item failed (" + code + ")");
+        }
+        acknowledge(request.prefix(), result.prefixId());
+        return new LlmResponse(result.requestId() == null ? request.requestId() : result.requestId(), result.text(), result.usage(), result.prefixId());
+    }
+
+    // One POST for the whole batch; the read timeout is the longest any of its callers is willing to wait.
+    private List<BatchResult> sendBatch(List<BatchRequest> requests) {
+        List<Map<String, Object>> items = new ArrayList<>(requests.size());
+        Duration timeout = Duration.ZERO;
+        for (int i = 0; i < requests.size(); i++) {
+            BatchRequest request = requests.get(i);
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", Integer.toString(i));
+            item.put("requestId", request.requestId());
+            item.put("prompt", request.prompt());
+            item.put("locale", request.locale());
+            item.put("model", "stub");
+            putPrefix(item, request.prefix(), request.withPrefixText());
+            items.add(item);
+            timeout = timeout.compareTo(request.timeout()) >= 0 ? timeout : request.timeout();
+        }
+        RestTemplate client = byReadTimeout.computeIfAbsent(timeout, LlmGatewayClient::newRestTemplate);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(Map.of("items", items), headers(requests.get(0).requestId(), requests.get(0).traceparent()));
+        ResponseEntity<BatchResponse> response = retries.call(UpstreamRetries.LLM_GATEWAY, () -> client.exchange(
+                llmUrl + "/batch",
+                HttpMethod.POST,
+                entity,
+                BatchResponse.class
+        ));
+
+        BatchResult[] ordered = new BatchResult[requests.size()];
+        BatchResponse body = response.getBody();
+        if (body != null && body.results() != null) {
+            for (BatchResult result : body.results()) {
+                int index = parseIndex(result.id());
+                if (index >= 0 && index < ordered.length) {
+                    ordered[index] = result;
+                }
+            }
+        }
+        List<BatchResult> results = new ArrayList<>(ordered.length);
+        for (int i = 0; i < ordered.length; i++) {
+            results.add(ordered[i] != null ? ordered[i] : new BatchResult(Integer.toString(i), null, null, null, null, null));
+        }
+        return results;
+    }
+
+    private static int parseIndex(String id) {
+        try {
+            return id == null ? -1 : Integer.parseInt(id);
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static HttpHeaders headers(String requestId, String traceparent) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Request-Id", requestId);
+        if (traceparent != null) {
+            headers.set(TraceParent.HEADER, traceparent);
+        }
+        return headers;
+    }
+
     public LlmResponse complete(String prompt, String requestId) throws RestClientException {
         return complete(prompt, "ru-RU", requestId);
     }
 
-    public record LlmResponse(String requestId, String text, Map<String, Object> usage) {}
+    @PreDestroy
+    void shutdown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
+    public record LlmResponse(String requestId, String text, Map<String, Object> usage, String prefixId) {}
+
+    /** Constant head of a prompt, cached by llm-gateway under {@code id}; the id must change whenever the text does. */
+    public record Prefix(String id, String text) {}
+
+    private record BatchRequest(
+            Prefix prefix,
+            boolean withPrefixText,
+            String prompt,
+            String locale,
+            Duration timeout,
+            String requestId,
+            String traceparent
+    ) {}
+
+    public record BatchResponse(String requestId, List<BatchResult> results) {}
+
+    public record BatchResult(String id, String requestId, String text, Map<String, Object> usage, String prefixId, BatchError error) {}
+
+    public record BatchError(String code, String message) {}
+
+    private static final class PrefixUnknownException extends RestClientException {
+        PrefixUnknownException() {
+            super("llm-gateway does not know the prompt prefix");
+        }
+    }
+
+    public record BatchProperties(Boolean enabled, Integer maxSize, Duration maxWait) {
+        static final BatchProperties DISABLED = new BatchProperties(false, null, null);
+    }
 }
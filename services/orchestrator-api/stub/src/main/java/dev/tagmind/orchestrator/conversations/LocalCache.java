@@ -0,0 +1,103 @@
+package dev.tagmind.orchestrator.conversations;
+
+import dev.tagmind.orchestrator.persistence.InvalidationBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache whose entries are dropped by {@link InvalidationBus} events. Every invalidation bumps
+ * a generation counter for the key's stripe, and a value loaded while its stripe moved on is not kept, so a load
+ * racing an invalidation cannot bring back the old value. While {@code live} is false the cache is bypassed.
+ */
+final class LocalCache<V> implements InvalidationBus.Listener {
+
+    private static final int STRIPES = 64;
+
+    private final int maxEntries;
+    private final BooleanSupplier live;
+    private final ConcurrentHashMap<String, V> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypassed;
+
+    LocalCache(String name, int maxEntries, BooleanSupplier live, MeterRegistry registry) {
+        this.maxEntries = maxEntries;
+        this.live = live;
+        this.hits = Counter.builder("tagmind.cache.requests").tag("cache", name).tag("result", "hit").register(registry);
+        this.misses = Counter.builder("tagmind.cache.requests").tag("cache", name).tag("result", "miss").register(registry);
+        this.bypassed = Counter.builder("tagmind.cache.requests").tag("cache", name).tag("result", "bypass").register(registry);
+        Gauge.builder("tagmind.cache.size", entries, ConcurrentHashMap::size).tag("cache", name).register(registry);
+    }
+
+    /** Returns the cached value if {@code usable} accepts it, otherwise loads and caches a fresh one (null is not cached). */
+    V get(String key, Predicate<V> usable, Supplier<V> load) {
+        if (maxEntries <= 0 || !live.getAsBoolean()) {
+            bypassed.increment();
+            return load.get();
+        }
+        V cached = entries.get(key);
+        if (cached != null && usable.test(cached)) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        int stripe = stripe(key);
+        long generation = generations.get(stripe);
+        V loaded = load.get();
+        if (loaded == null) {
+            return null;
+        }
+        if (entries.size() >= maxEntries) {
+            evictOne();
+        }
+        entries.put(key, loaded);
+        // Put first, then check: an invalidation either bumped the stripe before this read or removes the entry after.
+        if (generations.get(stripe) != generation || !live.getAsBoolean()) {
+            entries.remove(key, loaded);
+        }
+        return loaded;
+    }
+
+    /** The cached value, or null on a miss; never loads. */
+    V peek(String key) {
+        if (maxEntries <= 0 || !live.getAsBoolean()) {
+            return null;
+        }
+        return entries.get(key);
+    }
+
+    @Override
+    public void invalidate(String key) {
+        generations.incrementAndGet(stripe(key));
+        entries.remove(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        entries.clear();
+    }
+
+    private void evictOne() {
+        Iterator<String> keys = entries.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & 0x7fffffff) % STRIPES;
+    }
+}
@@ -0,0 +1,12 @@
+package dev.tagmind.orchestrator.conversations;
+
+public record MessageResponse(
+        String requestId,
+        String decision,
+        String suggestedReply,
+        String sessionId,
+        Used used
+) {
+
+    public record Used(String mode, boolean llmCalled) {}
+}
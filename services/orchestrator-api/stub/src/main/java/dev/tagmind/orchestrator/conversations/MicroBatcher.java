@@ -0,0 +1,137 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects concurrently submitted items into batches of at most {@code maxSize} and hands each batch to one call.
+ * <p>
+ * The collection window adapts to the arrival rate: the dispatcher keeps a moving average of the gap between
+ * submissions and, when the next item is not expected within {@code maxWait}, sends what it has at once, so a
+ * lone request never waits for company. Under load it waits for up to {@code maxWait}, or less when the average
+ * gap says the batch will fill sooner. Batches are sent on virtual threads, so collection continues while earlier
+ * batches are in flight.
+ */
+final class MicroBatcher<I, O> {
+
+    private static final double SMOOTHING = 0.2;
+
+    private final int maxSize;
+    private final long maxWaitNanos;
+    private final Function<List<I>, List<O>> batchCall;
+    private final DistributionSummary batchSizes;
+    private final LinkedBlockingQueue<Pending<I, O>> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Object arrivals = new Object();
+    private Thread dispatcher;
+    private volatile boolean stopped;
+    // Guarded by arrivals.
+    private long lastArrival;
+    private double averageGapNanos;
+
+    /** {@code batchCall} must return one result per item, in item order, or throw for the whole batch. */
+    MicroBatcher(String name, int maxSize, Duration maxWait, Function<List<I>, List<O>> batchCall, MeterRegistry registry) {
+        this.maxSize = Math.max(1, maxSize);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.batchCall = batchCall;
+        this.averageGapNanos = 2.0 * maxWaitNanos;
+        this.batchSizes = DistributionSummary.builder("tagmind.batch.size").tag("batcher", name).register(registry);
+    }
+
+    CompletableFuture<O> submit(I item) {
+        if (stopped) {
+            throw new IllegalStateException("batcher is shut down");
+        }
+        long now = System.nanoTime();
+        synchronized (arrivals) {
+            if (dispatcher == null) {
+                dispatcher = Thread.ofVirtual().name("micro-batcher").start(this::dispatchLoop);
+            } else {
+                double gap = Math.min(now - lastArrival, 2.0 * maxWaitNanos);
+                averageGapNanos += SMOOTHING * (gap - averageGapNanos);
+            }
+            lastArrival = now;
+        }
+        Pending<I, O> pending = new Pending<>(item, new CompletableFuture<>());
+        queue.add(pending);
+        return pending.result();
+    }
+
+    void shutdown() {
+        stopped = true;
+        synchronized (arrivals) {
+            if (dispatcher != null) {
+                dispatcher.interrupt();
+            }
+        }
+        senders.shutdown();
+        for (Pending<I, O> pending; (pending = queue.poll()) != null; ) {
+            pending.result().completeExceptionally(new IllegalStateException("batcher is shut down"));
+        }
+    }
+
+    private void dispatchLoop() {
+        try {
+            while (!stopped) {
+                List<Pending<I, O>> batch = new ArrayList<>(maxSize);
+                batch.add(queue.take());
+                queue.drainTo(batch, maxSize - batch.size());
+                long window = window(batch.size());
+                long deadline = System.nanoTime() + window;
+                while (batch.size() < maxSize && window > 0) {
+                    Pending<I, O> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, maxSize - batch.size());
+                }
+                senders.execute(() -> send(batch));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // How long to keep collecting once `collected` items are in hand.
+    private long window(int collected) {
+        if (collected >= maxSize) {
+            return 0;
+        }
+        double gap;
+        synchronized (arrivals) {
+            gap = averageGapNanos;
+        }
+        if (gap >= maxWaitNanos) {
+            return 0;
+        }
+        return (long) Math.min(maxWaitNanos, gap * (maxSize - collected));
+    }
+
+    private void send(List<Pending<I, O>> batch) {
+        batchSizes.record(batch.size());
+        try {
+            List<O> results = batchCall.apply(batch.stream().map(Pending::item).toList());
+            if (results.size() != batch.size()) {
+                throw new IllegalStateException("batch returned " + results.size() + " results for " + batch.size() + " items");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        } catch (Throwable ex) {
+            for (Pending<I, O> pending : batch) {
+                pending.result().completeExceptionally(ex);
+            }
+        }
+    }
+
+    private record Pending<I, O>(I item, CompletableFuture<O> result) {}
+}
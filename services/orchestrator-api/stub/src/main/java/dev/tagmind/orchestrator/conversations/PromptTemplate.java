@@ -0,0 +1,242 @@
+package dev.tagmind.orchestrator.conversations;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Prompt template parsed once into literal and slot segments.
+ * <p>
+ * Syntax: {@code {payload}}, {@code {payload|fallback}}, {@code {history}}, {@code {citations}}, {@code {count}},
+ * and optional sections {@code {?history}...{/history}} rendered only when the slot has a value.
+ * <p>
+ * The literal text before the first slot or section is the template's {@link #prefix()}: every render starts with
+ * it, so llm-gateway can cache it under {@link #prefixHash()} and the rest is sent as the variable suffix.
+ */
+public final class PromptTemplate {
+
+    static final String EMPTY_HISTORY = "не найдено сообщений";
+
+    public enum Slot {
+        PAYLOAD, HISTORY, CITATIONS, COUNT;
+
+        static Slot of(String name) {
+            return switch (name) {
+                case "payload" -> PAYLOAD;
+                case "history" -> HISTORY;
+                case "citations" -> CITATIONS;
+                case "count" -> COUNT;
+                default -> throw new IllegalArgumentException("unknown template slot: " + name);
+            };
+        }
+    }
+
+    private sealed interface Segment permits Literal, Placeholder, Section {}
+
+    private record Literal(String text) implements Segment {}
+
+    private record Placeholder(Slot slot, String fallback) implements Segment {}
+
+    private record Section(Slot slot, List<Segment> body) implements Segment {}
+
+    public record Values(
+            String payload,
+            List<TagPromptBuilder.HistoryEntry> history,
+            List<RetrieverClient.RetrieverResult> citations,
+            Integer count
+    ) {
+        boolean present(Slot slot) {
+            return switch (slot) {
+                case PAYLOAD -> payload != null && !payload.isEmpty();
+                case HISTORY -> history != null && !history.isEmpty();
+                case CITATIONS -> citations != null && !citations.isEmpty();
+                case COUNT -> count != null;
+            };
+        }
+    }
+
+    private final List<Segment> segments;
+    private final Set<Slot> slots;
+    private final int literalLength;
+    private final String prefix;
+    private final String prefixHash;
+
+    private PromptTemplate(List<Segment> segments, Set<Slot> slots, int literalLength) {
+        this.segments = segments;
+        this.slots = slots;
+        this.literalLength = literalLength;
+        StringBuilder leading = new StringBuilder();
+        for (Segment segment : segments) {
+            if (!(segment instanceof Literal literal)) break;
+            leading.append(literal.text());
+        }
+        this.prefix = leading.toString();
+        this.prefixHash = sha256(prefix);
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public static PromptTemplate parse(String source) {
+        Deque<List<Segment>> stack = new ArrayDeque<>();
+        Deque<Slot> open = new ArrayDeque<>();
+        stack.push(new ArrayList<>());
+        Set<Slot> slots = EnumSet.noneOf(Slot.class);
+        int literalLength = 0;
+
+        int pos = 0;
+        while (pos < source.length()) {
+            int start = source.indexOf('{', pos);
+            if (start < 0) {
+                stack.peek().add(new Literal(source.substring(pos)));
+                literalLength += source.length() - pos;
+                break;
+            }
+            if (start > pos) {
+                stack.peek().add(new Literal(source.substring(pos, start)));
+                literalLength += start - pos;
+            }
+            int end = source.indexOf('}', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("unterminated placeholder at " + start);
+            }
+            String token = source.substring(start + 1, end);
+            if (token.startsWith("?")) {
+                Slot slot = Slot.of(token.substring(1));
+                slots.add(slot);
+                open.push(slot);
+                stack.push(new ArrayList<>());
+            } else if (token.startsWith("/")) {
+                Slot slot = Slot.of(token.substring(1));
+                if (open.isEmpty() || open.peek() != slot) {
+                    throw new IllegalArgumentException("unbalanced section close: " + token);
+                }
+                open.pop();
+                List<Segment> body = List.copyOf(stack.pop());
+                stack.peek().add(new Section(slot, body));
+            } else {
+                int bar = token.indexOf('|');
+                Slot slot = Slot.of(bar < 0 ? token : token.substring(0, bar));
+                String fallback = bar < 0 ? "" : token.substring(bar + 1);
+                slots.add(slot);
+                stack.peek().add(new Placeholder(slot, fallback));
+            }
+            pos = end + 1;
+        }
+        if (!open.isEmpty()) {
+            throw new IllegalArgumentException("unclosed section: " + open.peek());
+        }
+        return new PromptTemplate(List.copyOf(stack.pop()), slots, literalLength);
+    }
+
+    public String prefix() {
+        return prefix;
+    }
+
+    /** First 64 bits of the prefix's SHA-256, hex; changes whenever the prefix text does. */
+    public String prefixHash() {
+        return prefixHash;
+    }
+
+    public boolean uses(Slot slot) {
+        return slots.contains(slot);
+    }
+
+    public String render(Values values) {
+        StringBuilder out = new StringBuilder(estimateLength(values));
+        renderInto(out, segments, values);
+        return out.toString();
+    }
+
+    private int estimateLength(Values values) {
+        int size = literalLength;
+        if (values.payload() != null) {
+            size += values.payload().length();
+        }
+        if (slots.contains(Slot.HISTORY) && values.history() != null) {
+            for (TagPromptBuilder.HistoryEntry entry : values.history()) {
+                size += entry.direction().length() + entry.text().length() + 3;
+            }
+        }
+        if (slots.contains(Slot.CITATIONS) && values.citations() != null) {
+            for (RetrieverClient.RetrieverResult c : values.citations()) {
+                size += 16 + length(c.title()) + length(c.snippet()) + length(c.url());
+            }
+        }
+        return size + 16;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static void renderInto(StringBuilder out, List<Segment> segments, Values values) {
+        for (Segment segment : segments) {
+            switch (segment) {
+                case Literal literal -> out.append(literal.text());
+                case Section section -> {
+                    if (values.present(section.slot())) {
+                        renderInto(out, section.body(), values);
+                    }
+                }
+                case Placeholder placeholder -> appendSlot(out, placeholder, values);
+            }
+        }
+    }
+
+    private static void appendSlot(StringBuilder out, Placeholder placeholder, Values values) {
+        switch (placeholder.slot()) {
+            case PAYLOAD -> out.append(values.present(Slot.PAYLOAD) ? values.payload() : placeholder.fallback());
+            case COUNT -> {
+                if (values.count() != null) {
+                    out.append(values.count().intValue());
+                } else {
+                    out.append(placeholder.fallback());
+                }
+            }
+            case HISTORY -> {
+                if (!values.present(Slot.HISTORY)) {
+                    out.append(placeholder.fallback().isEmpty() ? EMPTY_HISTORY : placeholder.fallback());
+                    return;
+                }
+                List<TagPromptBuilder.HistoryEntry> history = values.history();
+                for (int i = 0; i < history.size(); i++) {
+                    if (i > 0) out.append('\n');
+                    TagPromptBuilder.HistoryEntry entry = history.get(i);
+                    out.append(entry.direction()).append(": ").append(entry.text());
+                }
+            }
+            case CITATIONS -> {
+                if (!values.present(Slot.CITATIONS)) {
+                    out.append(placeholder.fallback());
+                    return;
+                }
+                List<RetrieverClient.RetrieverResult> citations = values.citations();
+                for (int i = 0; i < citations.size(); i++) {
+                    if (i > 0) out.append('\n');
+                    RetrieverClient.RetrieverResult c = citations.get(i);
+                    out.append('[').append(i + 1).append("] ")
+                            .append(c.title() == null ? "Без названия" : c.title())
+                            .append(" — ")
+                            .append(c.snippet() == null ? "" : c.snippet())
+                            .append(" (")
+                            .append(c.url() == null ? "" : c.url())
+                            .append(')');
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package dev.tagmind.orchestrator.conversations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Picks the history entries that matter for a payload: the top-K by BM25 plus the most recent few, in chat order.
+ * <p>
+ * The index is built per call over the candidate window of one session; a few hundred short messages index in well
+ * under a millisecond, so there is nothing to keep in sync with new writes. Terms are lower-cased and cut to a
+ * fixed prefix, which is a crude but language-agnostic stand-in for stemming Russian and English word forms.
+ */
+final class RelevantHistorySelector {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int STEM_PREFIX = 5;
+
+    private RelevantHistorySelector() {}
+
+    static List<TagPromptBuilder.HistoryEntry> select(
+            List<TagPromptBuilder.HistoryEntry> candidates,
+            String query,
+            int topK,
+            int recent
+    ) {
+        int n = candidates.size();
+        List<String> terms = query == null ? List.of() : terms(query);
+        if (terms.isEmpty()) {
+            // Nothing to score against: behave like last-N.
+            return candidates.subList(Math.max(0, n - topK), n);
+        }
+        if (n <= topK + recent) {
+            return candidates;
+        }
+        TreeSet<Integer> picked = new TreeSet<>();
+        for (int i = n - recent; i < n; i++) {
+            picked.add(i);
+        }
+        picked.addAll(topScoring(candidates, terms, topK, picked));
+        List<TagPromptBuilder.HistoryEntry> out = new ArrayList<>(picked.size());
+        for (int i : picked) {
+            out.add(candidates.get(i));
+        }
+        return out;
+    }
+
+    private static List<Integer> topScoring(
+            List<TagPromptBuilder.HistoryEntry> candidates,
+            List<String> queryTerms,
+            int topK,
+            TreeSet<Integer> exclude
+    ) {
+        int n = candidates.size();
+        List<Map<String, Integer>> docs = new ArrayList<>(n);
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        long totalLength = 0;
+        for (TagPromptBuilder.HistoryEntry entry : candidates) {
+            List<String> docTerms = terms(entry.text());
+            Map<String, Integer> tf = new HashMap<>();
+            for (String term : docTerms) {
+                tf.merge(term, 1, Integer::sum);
+            }
+            for (String term : tf.keySet()) {
+                documentFrequency.merge(term, 1, Integer::sum);
+            }
+            docs.add(tf);
+            totalLength += docTerms.size();
+        }
+        double avgLength = Math.max(1.0, (double) totalLength / n);
+
+        // Min-heap on score; ties go to the newer message.
+        PriorityQueue<double[]> best = new PriorityQueue<>((a, c) -> a[0] != c[0] ? Double.compare(a[0], c[0]) : Double.compare(a[1], c[1]));
+        for (int i = 0; i < n; i++) {
+            if (exclude.contains(i)) continue;
+            Map<String, Integer> tf = docs.get(i);
+            int length = tf.values().stream().mapToInt(Integer::intValue).sum();
+            double score = 0;
+            for (String term : queryTerms) {
+                Integer f = tf.get(term);
+                if (f == null) continue;
+                int df = documentFrequency.get(term);
+                double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+                score += idf * f * (K1 + 1) / (f + K1 * (1 - B + B * length / avgLength));
+            }
+            if (score <= 0) continue;
+            best.add(new double[]{score, i});
+            if (best.size() > topK) best.poll();
+        }
+        List<Integer> indices = new ArrayList<>(best.size());
+        for (double[] hit : best) {
+            indices.add((int) hit[1]);
+        }
+        return indices;
+    }
+
+    static List<String> terms(String text) {
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                if (i - start > 1) {
+                    String token = text.substring(start, Math.min(i, start + STEM_PREFIX)).toLowerCase().replace('ё', 'е');
+                    out.add(token);
+                }
+                start = -1;
+            }
+        }
+        return out;
+    }
+}
@@ -1,5 +1,7 @@
 package dev.tagmind.orchestrator.conversations;
 
+import dev.tagmind.orchestrator.tracing.Span;
+import dev.tagmind.orchestrator.tracing.TraceParent;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -11,6 +13,7 @@ import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
@@ -24,8 +27,10 @@ public class RetrieverClient {
 
     private final RestTemplate restTemplate;
     private final String retrieverUrl;
+    private final UpstreamRetries retries;
 
-    public RetrieverClient() {
+    public RetrieverClient(UpstreamRetries retries) {
+        this.retries = retries;
         SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
         factory.setConnectTimeout(CONNECT_TIMEOUT);
         factory.setReadTimeout(READ_TIMEOUT);
@@ -41,6 +46,11 @@ public class RetrieverClient {
         }
     }
 
+    // GET /healthz on the same host: resolves DNS and leaves a keep-alive connection for the first real call.
+    public void warmUp() throws RestClientException {
+        restTemplate.getForEntity(URI.create(retrieverUrl).resolve("/healthz"), String.class);
+    }
+
     public RetrieverResponse search(String query, String locale, int maxResults, String requestId) throws RestClientException {
         Map<String, Object> payload = new HashMap<>();
         payload.put("query", query);
@@ -49,18 +59,31 @@ public class RetrieverClient {
         payload.put("safe", true);
         payload.put("allowNoContext", false);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("X-Request-Id", requestId);
+        Span span = Span.startClient("retriever");
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("X-Request-Id", requestId);
+            String traceparent = Span.traceparent();
+            if (traceparent != null) {
+                headers.set(TraceParent.HEADER, traceparent);
+            }
 
-        ResponseEntity<RetrieverResponse> response = restTemplate.exchange(
-                retrieverUrl,
-                HttpMethod.POST,
-                new HttpEntity<>(payload, headers),
-                RetrieverResponse.class
-        );
-
-        return response.getBody();
+            ResponseEntity<RetrieverResponse> response = retries.call(UpstreamRetries.WEB_RETRIEVER, () -> restTemplate.exchange(
+                    retrieverUrl,
+                    HttpMethod.POST,
+                    new HttpEntity<>(payload, headers),
+                    RetrieverResponse.class
+            ));
+            RetrieverResponse body = response.getBody();
+            span.tag("retriever.results", body == null || body.results() == null ? 0 : body.results().size());
+            return body;
+        } catch (RestClientException ex) {
+            span.error(ex);
+            throw ex;
+        } finally {
+            span.close();
+        }
     }
 
     public record RetrieverResponse(String requestId, List<RetrieverResult> results) {}
@@ -0,0 +1,21 @@
+package dev.tagmind.orchestrator.conversations;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+public record SearchResponse(
+        String requestId,
+        String contactId,
+        List<Hit> hits,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String nextCursor
+) {
+
+    public record Hit(
+            String messageId,
+            String direction,
+            String text,
+            String createdAt,
+            float rank
+    ) {}
+}
@@ -0,0 +1,182 @@
+package dev.tagmind.orchestrator.conversations;
+
+import dev.tagmind.orchestrator.tracing.Span;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+
+/**
+ * Collapses a burst of SUGGEST-mode messages from one contact into a single suggestion. Each message joins the
+ * contact's open burst and waits until no newer message has arrived for {@code window} (or the burst is
+ * {@code max-wait} old); only the newest message's request then generates, over all messages of the burst. Older
+ * requests return as superseded, and a message arriving while a suggestion is being generated cancels it (the
+ * generating thread is interrupted, which aborts its upstream call) and joins the burst, so nothing is answered twice
+ * or left out.
+ */
+@Component
+public class SuggestionDebouncer {
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final long maxWaitNanos;
+    private final ConcurrentHashMap<String, Burst> bursts = new ConcurrentHashMap<>();
+    private final Counter generated;
+    private final Counter superseded;
+    private final Counter cancelled;
+
+    public SuggestionDebouncer(
+            @Value("${tagmind.suggest.debounce.enabled:false}") boolean enabled,
+            @Value("${tagmind.suggest.debounce.window:1s}") Duration window,
+            @Value("${tagmind.suggest.debounce.max-wait:5s}") Duration maxWait,
+            MeterRegistry registry
+    ) {
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxWaitNanos = Math.max(window.toNanos(), maxWait.toNanos());
+        this.generated = Counter.builder("tagmind.suggest.debounce").tag("outcome", "generated").register(registry);
+        this.superseded = Counter.builder("tagmind.suggest.debounce").tag("outcome", "superseded").register(registry);
+        this.cancelled = Counter.builder("tagmind.suggest.debounce").tag("outcome", "cancelled").register(registry);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds {@code message} to the contact's burst and, if it turns out to be the burst's last message, returns
+     * {@code generate} applied to the burst's messages joined by newlines. Empty when a newer message took over.
+     * Exceptions from {@code generate} propagate unless the result was superseded anyway.
+     */
+    public <T> Optional<T> submit(String contactId, String message, Function<String, T> generate) throws InterruptedException {
+        long[] ticket = new long[1];
+        Burst burst = bursts.compute(contactId, (key, existing) -> {
+            Burst b = existing == null ? new Burst() : existing;
+            synchronized (b) {
+                long now = System.nanoTime();
+                if (b.messages.isEmpty()) {
+                    b.firstAt = now;
+                }
+                b.messages.add(message);
+                b.lastAt = now;
+                ticket[0] = ++b.latest;
+                if (b.inFlight != null) {
+                    b.inFlight.cancel(true);
+                    b.inFlight = null;
+                    cancelled.increment();
+                }
+                b.notifyAll();
+            }
+            return b;
+        });
+
+        FutureTask<T> task;
+        int taken;
+        try {
+            synchronized (burst) {
+                while (true) {
+                    if (burst.latest != ticket[0]) {
+                        superseded.increment();
+                        return Optional.empty();
+                    }
+                    long now = System.nanoTime();
+                    long due = Math.min(burst.lastAt + windowNanos, burst.firstAt + maxWaitNanos);
+                    if (now >= due) {
+                        break;
+                    }
+                    long waitNanos = due - now;
+                    burst.wait(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                }
+                taken = burst.messages.size();
+                String combined = String.join("\n", burst.messages);
+                task = new FutureTask<>(Span.wrap(() -> generate.apply(combined))::get);
+                burst.inFlight = task;
+            }
+        } catch (InterruptedException ex) {
+            abandon(contactId, burst, ticket[0]);
+            throw ex;
+        }
+
+        Thread.ofVirtual().name("suggest-", ticket[0]).start(task);
+        T result;
+        try {
+            result = task.get();
+        } catch (CancellationException ex) {
+            superseded.increment();
+            return Optional.empty();
+        } catch (InterruptedException ex) {
+            task.cancel(true);
+            settle(contactId, burst, ticket[0], taken);
+            throw ex;
+        } catch (ExecutionException ex) {
+            if (!settle(contactId, burst, ticket[0], taken)) {
+                superseded.increment();
+                return Optional.empty();
+            }
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+
+        if (!settle(contactId, burst, ticket[0], taken)) {
+            // A newer message arrived after generation finished; its suggestion will cover these messages too.
+            superseded.increment();
+            return Optional.empty();
+        }
+        generated.increment();
+        return Optional.of(result);
+    }
+
+    // Takes the messages this request answered (or failed on; they are not carried into the next burst) out of the
+    // burst and drops it if nothing is left. False when a newer message has taken the burst over and answers them.
+    private boolean settle(String contactId, Burst burst, long ticket, int taken) {
+        synchronized (burst) {
+            if (burst.latest != ticket) {
+                return false;
+            }
+            burst.inFlight = null;
+            burst.messages.subList(0, taken).clear();
+        }
+        release(contactId);
+        return true;
+    }
+
+    // The caller gave up during the debounce wait. If it was still the burst's newest request nobody is left to answer
+    // the burst, so its messages are dropped rather than folded into the contact's next prompt.
+    private void abandon(String contactId, Burst burst, long ticket) {
+        synchronized (burst) {
+            if (burst.latest != ticket) {
+                return;
+            }
+            burst.messages.clear();
+        }
+        release(contactId);
+    }
+
+    private void release(String contactId) {
+        bursts.computeIfPresent(contactId, (key, b) -> {
+            synchronized (b) {
+                return b.messages.isEmpty() && b.inFlight == null ? null : b;
+            }
+        });
+    }
+
+    private static final class Burst {
+        private final List<String> messages = new ArrayList<>();
+        private long latest;
+        private long firstAt;
+        private long lastAt;
+        private FutureTask<?> inFlight;
+    }
+}
@@ -0,0 +1,37 @@
+package dev.tagmind.orchestrator.conversations;
+
+import java.time.Duration;
+
+public record TagDefinition(
+        String name,
+        HistoryPolicy history,
+        int defaultCount,
+        int recentCount,
+        int candidateWindow,
+        boolean retriever,
+        String costClass,
+        Duration cacheTtl,
+        Duration timeout,
+        PromptTemplate template
+) {
+
+    public enum HistoryPolicy {
+        NONE,
+        LAST_N,
+        RELEVANT,
+        SEARCH
+    }
+
+    public boolean requiresHistory() {
+        return history != HistoryPolicy.NONE;
+    }
+
+    public int effectiveCount(Integer requested) {
+        if (requested != null && requested > 0) return requested;
+        return defaultCount;
+    }
+
+    public boolean cacheable() {
+        return !cacheTtl.isZero() && !cacheTtl.isNegative();
+    }
+}
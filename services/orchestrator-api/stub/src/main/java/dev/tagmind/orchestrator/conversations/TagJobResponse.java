@@ -0,0 +1,21 @@
+package dev.tagmind.orchestrator.conversations;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/**
+ * State of an asynchronous tag job. {@code result} is the body the synchronous endpoint would have returned and
+ * {@code error} its error body; both are stored as JSON and echoed verbatim.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TagJobResponse(
+        String jobId,
+        String status,
+        String requestId,
+        String contactId,
+        String tag,
+        @JsonRawValue String result,
+        @JsonRawValue String error,
+        String createdAt,
+        String completedAt
+) {}
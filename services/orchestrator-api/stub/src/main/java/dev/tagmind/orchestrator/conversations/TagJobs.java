@@ -0,0 +1,205 @@
+package dev.tagmind.orchestrator.conversations;
+
+import dev.tagmind.orchestrator.tracing.Span;
+import dev.tagmind.orchestrator.tracing.TraceParent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tagmind.orchestrator.persistence.TagJobStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs tag requests in the background. The job row is written before the request returns 202, the pipeline runs on
+ * a virtual thread through the same contact mailbox as synchronous calls, and the outcome is stored for polling and,
+ * when {@code tagmind.jobs.callback-url} is set, POSTed there. The request's admission ticket is handed to the job
+ * and held until the pipeline finishes, so background work counts against the same limit as synchronous tags.
+ * <p>
+ * Jobs still running when the process stops stay PENDING until they expire.
+ */
+@Component
+public class TagJobs {
+
+    private static final Logger log = LoggerFactory.getLogger(TagJobs.class);
+    private static final int CALLBACK_ATTEMPTS = 3;
+    private static final Duration CALLBACK_BACKOFF = Duration.ofMillis(500);
+
+    private final TagJobStore store;
+    private final ConversationsService service;
+    private final ContactMailbox mailbox;
+    private final TagRateLimiter rateLimiter;
+    private final ObjectMapper mapper;
+    private final String callbackUrl;
+    private final Duration ttl;
+    private final RestTemplate callbackClient;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TagJobs(
+            TagJobStore store,
+            ConversationsService service,
+            ContactMailbox mailbox,
+            TagRateLimiter rateLimiter,
+            ObjectMapper mapper,
+            @Value("${tagmind.jobs.callback-url:}") String callbackUrl,
+            @Value("${tagmind.jobs.ttl:1h}") Duration ttl
+    ) {
+        this.store = store;
+        this.service = service;
+        this.mailbox = mailbox;
+        this.rateLimiter = rateLimiter;
+        this.mapper = mapper;
+        this.callbackUrl = callbackUrl == null || callbackUrl.isBlank() ? null : callbackUrl.trim();
+        this.ttl = ttl;
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(Duration.ofSeconds(2));
+        factory.setReadTimeout(Duration.ofSeconds(5));
+        this.callbackClient = new RestTemplate(factory);
+    }
+
+    /** Takes over {@code ticket}: it is released when the job finishes, or right away if the job cannot be started. */
+    public TagJobResponse submit(ConversationsService.TagInput input, String requestId, AdmissionControl.Ticket ticket) {
+        TagJobStore.TagJob job;
+        try {
+            job = store.create(input.contactId(), input.tag(), requestId, ttl);
+            executor.execute(Span.wrap(() -> run(job, input, ticket)));
+        } catch (RuntimeException ex) {
+            ticket.skipSample();
+            ticket.release();
+            throw ex;
+        }
+        return toResponse(job);
+    }
+
+    public Optional<TagJobResponse> find(UUID jobId) {
+        return store.find(jobId).map(TagJobs::toResponse);
+    }
+
+    @Scheduled(fixedDelayString = "${tagmind.jobs.cleanup-interval:1m}")
+    void purgeExpired() {
+        int deleted = store.deleteExpired();
+        if (deleted > 0) {
+            log.debug("purged {} expired tag jobs", deleted);
+        }
+    }
+
+    private void run(TagJobStore.TagJob job, ConversationsService.TagInput input, AdmissionControl.Ticket ticket) {
+        String requestId = job.requestId();
+        String status;
+        String result = null;
+        String error = null;
+        try {
+            ConversationsService.TagResult tagResult = mailbox.run(input.contactId(), () -> service.handleTag(input, requestId));
+            result = json(TagResponse.of(requestId, tagResult));
+            status = TagJobStore.DONE;
+        } catch (UpstreamRejectedException ex) {
+            ticket.dropped();
+            rateLimiter.refund(input.contactId(), input.tag());
+            error = json(new ErrorResponse(requestId, "OVERLOADED", "too many " + ex.costClass() + " requests in flight, retry later"));
+            status = TagJobStore.FAILED;
+        } catch (RestClientResponseException ex) {
+            ticket.failed(ex);
+            error = json(new ErrorResponse(requestId, "LLM_ERROR", "llm-gateway call failed (status=" + ex.getStatusCode().value() + ")"));
+            status = TagJobStore.FAILED;
+        } catch (RestClientException ex) {
+            ticket.failed(ex);
+            error = json(new ErrorResponse(requestId, "LLM_ERROR", "llm-gateway call failed"));
+            status = TagJobStore.FAILED;
+        } catch (RuntimeException ex) {
+            log.warn("tag job {} failed", job.id(), ex);
+            error = json(new ErrorResponse(requestId, "INTERNAL", "Unexpected error"));
+            status = TagJobStore.FAILED;
+        } finally {
+            ticket.release();
+        }
+
+        try {
+            store.complete(job.id(), status, result, error, ttl);
+        } catch (RuntimeException ex) {
+            log.warn("tag job {} finished but could not be stored", job.id(), ex);
+        }
+        if (callbackUrl != null) {
+            deliver(new TagJobResponse(
+                    job.id().toString(),
+                    status,
+                    requestId,
+                    job.contactId(),
+                    job.tag(),
+                    result,
+                    error,
+                    job.createdAt().toString(),
+                    OffsetDateTime.now().toString()
+            ));
+        }
+    }
+
+    private void deliver(TagJobResponse body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Request-Id", body.requestId());
+        String traceparent = Span.traceparent();
+        if (traceparent != null) {
+            headers.set(TraceParent.HEADER, traceparent);
+        }
+        for (int attempt = 1; attempt <= CALLBACK_ATTEMPTS; attempt++) {
+            try {
+                callbackClient.postForEntity(callbackUrl, new HttpEntity<>(body, headers), Void.class);
+                return;
+            } catch (RestClientException ex) {
+                if (attempt == CALLBACK_ATTEMPTS) {
+                    log.warn("tag job {} callback failed after {} attempts: {}", body.jobId(), attempt, ex.getMessage());
+                    return;
+                }
+                try {
+                    Thread.sleep(CALLBACK_BACKOFF.toMillis() << (attempt - 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private String json(Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("cannot serialize tag job outcome", ex);
+        }
+    }
+
+    private static TagJobResponse toResponse(TagJobStore.TagJob job) {
+        return new TagJobResponse(
+                job.id().toString(),
+                job.status(),
+                job.requestId(),
+                job.contactId(),
+                job.tag(),
+                job.result(),
+                job.error(),
+                job.createdAt().toString(),
+                job.completedAt() == null ? null : job.completedAt().toString()
+        );
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,262 @@
+package dev.tagmind.orchestrator.conversations;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tagmind.orchestrator.persistence.ConversationHistoryQueries;
+import dev.tagmind.orchestrator.persistence.ConversationMessageRepository;
+import dev.tagmind.orchestrator.persistence.ConversationSessionRepository;
+import dev.tagmind.orchestrator.persistence.ReadYourWrites;
+import dev.tagmind.orchestrator.persistence.SessionTouches;
+import dev.tagmind.orchestrator.persistence.UuidV7;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drives synthetic tag requests through the pipeline before the instance reports ready, so the first real requests
+ * do not pay for class loading, interpreted code and cold connection pools.
+ * <p>
+ * Runs as an {@link ApplicationRunner}: the HTTP port is already open but the readiness probe keeps answering
+ * {@code REFUSING_TRAFFIC} until every runner has returned. Each iteration calls {@code handleTag} for every
+ * registered tag with stand-in llm-gateway and retriever clients, inside a transaction that is rolled back, so
+ * Hibernate, JDBC and the prompt templates run for real while nothing is persisted or sent upstream. The real
+ * outbound clients only get a {@code /healthz} round trip each. Warm-up stops at {@code iterations} or
+ * {@code max-duration}, whichever comes first, and never fails startup.
+ */
+@Component
+public class TagPipelineWarmUp implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TagPipelineWarmUp.class);
+
+    private static final String SAMPLE_REQUEST =
+            "{\"contactId\":\"warmup:0\",\"tag\":\"llm\",\"count\":5,\"payload\":\"прогрев\",\"locale\":\"ru-RU\",\"debug\":\"full\"}";
+    private static final String SAMPLE_COMPLETION =
+            "{\"requestId\":\"warmup\",\"text\":\"Прогрев завершён.\",\"usage\":{\"promptTokens\":12,\"completionTokens\":3}}";
+    private static final String SAMPLE_SEARCH =
+            "{\"requestId\":\"warmup\",\"results\":[{\"title\":\"TagMind\",\"snippet\":\"warm-up\",\"url\":\"https://example.org\",\"source\":\"stub\",\"publishedAt\":\"2024-01-01\"}]}";
+    private static final String[] PAYLOADS = {"прогрев", "what was agreed yesterday?", "кто прав в споре о сроках", ""};
+
+    private final boolean enabled;
+    private final int iterations;
+    private final Duration maxDuration;
+    private final int connections;
+    private final DataSource dataSource;
+    private final PlatformTransactionManager txManager;
+    private final LlmGatewayClient llm;
+    private final RetrieverClient retriever;
+    private final TagRegistry tags;
+    private final ObjectMapper mapper;
+    private final Environment env;
+    private final ConversationsService pipeline;
+
+    public TagPipelineWarmUp(
+            @Value("${tagmind.warmup.enabled:true}") boolean enabled,
+            @Value("${tagmind.warmup.iterations:200}") int iterations,
+            @Value("${tagmind.warmup.max-duration:20s}") Duration maxDuration,
+            @Value("${tagmind.warmup.connections:4}") int connections,
+            DataSource dataSource,
+            PlatformTransactionManager txManager,
+            ConversationSessionRepository sessions,
+            ConversationMessageRepository messages,
+            ConversationHistoryQueries historyQueries,
+            LlmGatewayClient llm,
+            RetrieverClient retriever,
+            UpstreamRetries retries,
+            TagPromptBuilder prompts,
+            TagRegistry tags,
+            ObjectMapper mapper,
+            Environment env
+    ) {
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.maxDuration = maxDuration;
+        this.connections = connections;
+        this.dataSource = dataSource;
+        this.txManager = txManager;
+        this.llm = llm;
+        this.retriever = retriever;
+        this.tags = tags;
+        this.mapper = mapper;
+        this.env = env;
+        // Private limiter, bulkheads, caches and session touches: warm-up traffic must not show up in their metrics or state.
+        SimpleMeterRegistry scratch = new SimpleMeterRegistry();
+        this.pipeline = new ConversationsService(
+                sessions,
+                messages,
+                historyQueries,
+                new ReadYourWrites("", Duration.ZERO, Duration.ZERO),
+                new TransactionTemplate(txManager),
+                new StandInLlm(retries, env),
+                new StandInRetriever(retries),
+                prompts,
+                tags,
+                new TagResponseCache(),
+                new UpstreamBulkheads(env, tags, Integer.MAX_VALUE, scratch),
+                new TagRateLimiter(TagRateLimiter.Properties.DISABLED, scratch, System::nanoTime),
+                ConversationCaches.disabled(),
+                // Never flushed: the warm-up contact's touches are simply dropped.
+                new SessionTouches(new JdbcTemplate(dataSource), txManager, true, scratch)
+        );
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+
+        openPools();
+        int done = 0;
+        try {
+            RestClient self = selfClient();
+            TransactionTemplate rollbackTx = new TransactionTemplate(txManager);
+            List<String> names = List.copyOf(tags.names());
+            while (done < iterations && System.nanoTime() < deadline) {
+                int iteration = done;
+                rollbackTx.executeWithoutResult(status -> {
+                    iterate(iteration, names);
+                    status.setRollbackOnly();
+                });
+                if (self != null) {
+                    roundTrip(self, iteration);
+                }
+                done++;
+            }
+        } catch (RuntimeException ex) {
+            log.warn("warm-up stopped after {} iterations: {}", done, ex.toString());
+        }
+        log.info("warm-up finished: {} iterations in {} ms", done, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    private void iterate(int iteration, List<String> names) {
+        String contactId = "warmup:" + UuidV7.next();
+        DebugLevel debug = DebugLevel.values()[iteration % DebugLevel.values().length];
+        for (String name : names) {
+            String payload = PAYLOADS[(iteration + name.length()) % PAYLOADS.length];
+            ConversationsService.TagInput input = new ConversationsService.TagInput(
+                    contactId, name, null, payload, "ru-RU", "@tagmind " + name + " " + payload, debug);
+            String requestId = "warmup-" + iteration + "-" + name;
+            ConversationsService.TagResult result = pipeline.handleTag(input, requestId);
+            json(TagResponse.of(requestId, result));
+        }
+        read(SAMPLE_REQUEST, TagRequest.class);
+    }
+
+    // Opens connections to Postgres in parallel so the pool does not have to grow under the first requests, and
+    // touches llm-gateway and web-retriever once each. Unreachable upstreams are not an error here.
+    private void openPools() {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<?>> pending = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                pending.add(executor.submit(() -> {
+                    try (Connection connection = dataSource.getConnection()) {
+                        connection.isValid(2);
+                    }
+                    return null;
+                }));
+            }
+            pending.add(executor.submit(() -> upstream("llm-gateway", llm::warmUp)));
+            pending.add(executor.submit(() -> upstream("web-retriever", retriever::warmUp)));
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            log.warn("warm-up could not open database connections: {}", ex.getCause().toString());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void upstream(String name, Runnable call) {
+        try {
+            call.run();
+        } catch (RestClientException ex) {
+            log.info("warm-up could not reach {}: {}", name, ex.getMessage());
+        }
+    }
+
+    // Requests against our own port warm the servlet, MVC and message converter paths. The tag request names an
+    // unknown tag, so it is rejected by validation before it reaches the mailbox or the rate limiter.
+    private void roundTrip(RestClient self, int iteration) {
+        self.get()
+                .uri("/v1/conversations/search?contactId={contactId}&q={q}", "warmup:" + iteration, PAYLOADS[iteration % PAYLOADS.length] + "x")
+                .exchange((request, response) -> response.getStatusCode());
+        self.post()
+                .uri("/v1/conversations/tag")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"contactId\":\"warmup:" + iteration + "\",\"tag\":\"warmup\"}")
+                .exchange((request, response) -> response.getStatusCode());
+    }
+
+    private RestClient selfClient() {
+        Integer port = env.getProperty("local.server.port", Integer.class);
+        return port == null ? null : RestClient.builder()
+                .baseUrl("http://127.0.0.1:" + port)
+                .defaultHeader("X-Request-Id", "warmup")
+                .build();
+    }
+
+    private String json(Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return mapper.readValue(json, type);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private final class StandInLlm extends LlmGatewayClient {
+        StandInLlm(UpstreamRetries retries, Environment env) {
+            super(retries, env, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public LlmResponse complete(Prefix prefix, String suffix, String locale, Duration timeout, String requestId) {
+            return read(SAMPLE_COMPLETION, LlmResponse.class);
+        }
+    }
+
+    private final class StandInRetriever extends RetrieverClient {
+        StandInRetriever(UpstreamRetries retries) {
+            super(retries);
+        }
+
+        @Override
+        public RetrieverResponse search(String query, String locale, int maxResults, String requestId) {
+            return read(SAMPLE_SEARCH, RetrieverResponse.class);
+        }
+    }
+}
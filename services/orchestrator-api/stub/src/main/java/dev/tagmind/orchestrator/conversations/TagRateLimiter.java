@@ -0,0 +1,302 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets in front of {@code /v1/conversations/tag}: one per contact, one per contact and tag, and one global.
+ * An optional fourth bucket per contact budgets estimated prompt tokens instead of requests; it is charged after the
+ * llm-gateway call and admits new requests while its balance is positive.
+ * <p>
+ * Per-contact buckets live in lock-striped LRU maps bounded by {@code max-buckets}. Each access also drops up to two
+ * least-recently-used buckets that have been idle long enough to refill completely, since a fresh bucket would behave
+ * the same; under memory pressure a busy bucket can be evicted early, which only ever errs towards admitting.
+ */
+@Component
+public class TagRateLimiter {
+
+    private static final int STRIPES = 64;
+    private static final int EVICT_PER_ACCESS = 2;
+
+    public enum Scope {
+        CONTACT, CONTACT_TAG, GLOBAL, PROMPT_TOKENS
+    }
+
+    public record Decision(Scope rejectedBy, Duration retryAfter) {
+        static final Decision ALLOWED = new Decision(null, Duration.ZERO);
+
+        public boolean allowed() {
+            return rejectedBy == null;
+        }
+    }
+
+    private final boolean enabled;
+    private final LongSupplier clock;
+    private final BucketSpec contactSpec;
+    private final BucketSpec contactTagSpec;
+    private final BucketSpec promptTokenSpec;
+    private final StripedBuckets contacts;
+    private final StripedBuckets contactTags;
+    private final StripedBuckets promptTokens;
+    private final TokenBucket global;
+    private final Map<Scope, Counter> rejected = new LinkedHashMap<>();
+
+    @Autowired
+    public TagRateLimiter(Environment env, MeterRegistry registry) {
+        this(Binder.get(env).bind("tagmind.ratelimit", Properties.class).orElse(Properties.DISABLED), registry, System::nanoTime);
+    }
+
+    TagRateLimiter(Properties props, MeterRegistry registry, LongSupplier clock) {
+        this.enabled = !Boolean.FALSE.equals(props.enabled());
+        this.clock = clock;
+        int maxBuckets = props.maxBuckets() == null || props.maxBuckets() <= 0 ? 200_000 : props.maxBuckets();
+        this.contactSpec = BucketSpec.of(props.contact());
+        this.contactTagSpec = BucketSpec.of(props.contactTag());
+        this.promptTokenSpec = BucketSpec.of(props.promptTokens());
+        this.contacts = new StripedBuckets(contactSpec, maxBuckets);
+        this.contactTags = new StripedBuckets(contactTagSpec, maxBuckets);
+        this.promptTokens = new StripedBuckets(promptTokenSpec, maxBuckets);
+        BucketSpec globalSpec = BucketSpec.of(props.global());
+        this.global = globalSpec == null ? null : new TokenBucket(globalSpec, clock.getAsLong());
+
+        for (Scope scope : Scope.values()) {
+            rejected.put(scope, Counter.builder("tagmind.ratelimit.rejected").tag("scope", scope.name().toLowerCase()).register(registry));
+        }
+        Gauge.builder("tagmind.ratelimit.buckets", contacts, StripedBuckets::size).tag("scope", "contact").register(registry);
+        Gauge.builder("tagmind.ratelimit.buckets", contactTags, StripedBuckets::size).tag("scope", "contact_tag").register(registry);
+        Gauge.builder("tagmind.ratelimit.buckets", promptTokens, StripedBuckets::size).tag("scope", "prompt_tokens").register(registry);
+    }
+
+    public Decision tryAcquire(String contactId, String tag) {
+        if (!enabled) {
+            return Decision.ALLOWED;
+        }
+        long now = clock.getAsLong();
+        long wait = promptTokens.waitForPositive(contactId, now);
+        if (wait > 0) {
+            return reject(Scope.PROMPT_TOKENS, wait);
+        }
+        wait = contacts.take(contactId, now);
+        if (wait > 0) {
+            return reject(Scope.CONTACT, wait);
+        }
+        wait = contactTags.take(contactId + '\u0000' + tag, now);
+        if (wait > 0) {
+            contacts.refund(contactId);
+            return reject(Scope.CONTACT_TAG, wait);
+        }
+        if (global != null) {
+            synchronized (global) {
+                wait = global.take(1, now);
+            }
+            if (wait > 0) {
+                contacts.refund(contactId);
+                contactTags.refund(contactId + '\u0000' + tag);
+                return reject(Scope.GLOBAL, wait);
+            }
+        }
+        return Decision.ALLOWED;
+    }
+
+    /** Gives back what an allowed {@link #tryAcquire} took, for a request that was then shed without doing any work. */
+    public void refund(String contactId, String tag) {
+        if (!enabled) {
+            return;
+        }
+        contacts.refund(contactId);
+        contactTags.refund(contactId + '\u0000' + tag);
+        if (global != null) {
+            synchronized (global) {
+                global.tokens = Math.min(global.spec.capacity(), global.tokens + 1);
+            }
+        }
+    }
+
+    public void chargePromptTokens(String contactId, int tokens) {
+        if (enabled && promptTokenSpec != null && tokens > 0) {
+            promptTokens.charge(contactId, tokens, clock.getAsLong());
+        }
+    }
+
+    private Decision reject(Scope scope, long waitNanos) {
+        rejected.get(scope).increment();
+        return new Decision(scope, Duration.ofNanos(waitNanos));
+    }
+
+    private record BucketSpec(double capacity, double tokensPerNano) {
+        static BucketSpec of(BucketProperties props) {
+            if (props == null || props.capacity() == null || props.capacity() <= 0 || props.perMinute() == null || props.perMinute() <= 0) {
+                return null;
+            }
+            return new BucketSpec(props.capacity(), props.perMinute() / TimeUnit.MINUTES.toNanos(1));
+        }
+
+        long nanosToFull(double tokens) {
+            return (long) Math.ceil((capacity - tokens) / tokensPerNano);
+        }
+    }
+
+    private static final class TokenBucket {
+        final BucketSpec spec;
+        double tokens;
+        long last;
+
+        TokenBucket(BucketSpec spec, long now) {
+            this.spec = spec;
+            this.tokens = spec.capacity();
+            this.last = now;
+        }
+
+        void refill(long now) {
+            if (now > last) {
+                tokens = Math.min(spec.capacity(), tokens + (now - last) * spec.tokensPerNano());
+                last = now;
+            }
+        }
+
+        long take(double cost, long now) {
+            refill(now);
+            if (tokens >= cost) {
+                tokens -= cost;
+                return 0;
+            }
+            return (long) Math.ceil((cost - tokens) / spec.tokensPerNano());
+        }
+
+        long waitForPositive(long now) {
+            refill(now);
+            return tokens > 0 ? 0 : (long) Math.ceil(-tokens / spec.tokensPerNano()) + 1;
+        }
+
+        void charge(double cost, long now) {
+            refill(now);
+            tokens = Math.max(-spec.capacity(), tokens - cost);
+        }
+
+        boolean idle(long now) {
+            return now - last >= spec.nanosToFull(tokens);
+        }
+    }
+
+    private static final class StripedBuckets {
+        final BucketSpec spec;
+        final Stripe[] stripes;
+
+        StripedBuckets(BucketSpec spec, int maxBuckets) {
+            this.spec = spec;
+            this.stripes = new Stripe[STRIPES];
+            int perStripe = Math.max(1, maxBuckets / STRIPES);
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe(perStripe);
+            }
+        }
+
+        long take(String key, long now) {
+            if (spec == null) return 0;
+            Stripe stripe = stripe(key);
+            synchronized (stripe) {
+                return stripe.bucket(key, spec, now).take(1, now);
+            }
+        }
+
+        void refund(String key) {
+            if (spec == null) return;
+            Stripe stripe = stripe(key);
+            synchronized (stripe) {
+                TokenBucket bucket = stripe.get(key);
+                if (bucket != null) {
+                    bucket.tokens = Math.min(spec.capacity(), bucket.tokens + 1);
+                }
+            }
+        }
+
+        long waitForPositive(String key, long now) {
+            if (spec == null) return 0;
+            Stripe stripe = stripe(key);
+            synchronized (stripe) {
+                TokenBucket bucket = stripe.get(key);
+                return bucket == null ? 0 : bucket.waitForPositive(now);
+            }
+        }
+
+        void charge(String key, double cost, long now) {
+            Stripe stripe = stripe(key);
+            synchronized (stripe) {
+                stripe.bucket(key, spec, now).charge(cost, now);
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    size += stripe.size();
+                }
+            }
+            return size;
+        }
+
+        private Stripe stripe(String key) {
+            int h = key.hashCode();
+            return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, TokenBucket> {
+        final int maxEntries;
+
+        Stripe(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        TokenBucket bucket(String key, BucketSpec spec, long now) {
+            evictIdle(now);
+            TokenBucket bucket = get(key);
+            if (bucket == null) {
+                bucket = new TokenBucket(spec, now);
+                put(key, bucket);
+            }
+            return bucket;
+        }
+
+        private void evictIdle(long now) {
+            Iterator<TokenBucket> it = values().iterator();
+            for (int i = 0; i < EVICT_PER_ACCESS && it.hasNext(); i++) {
+                TokenBucket eldest = it.next();
+                if (!eldest.idle(now)) return;
+                it.remove();
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+            return size() > maxEntries;
+        }
+    }
+
+    public record BucketProperties(Double capacity, Double perMinute) {}
+
+    public record Properties(
+            Boolean enabled,
+            Integer maxBuckets,
+            BucketProperties contact,
+            BucketProperties contactTag,
+            BucketProperties global,
+            BucketProperties promptTokens
+    ) {
+        static final Properties DISABLED = new Properties(false, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,99 @@
+package dev.tagmind.orchestrator.conversations;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Tags declared under {@code tagmind.tags.<name>.*}; templates are loaded from {@code prompts/<name>.txt}
+ * unless {@code template} points elsewhere on the classpath.
+ */
+@Component
+public class TagRegistry {
+
+    private static final int DEFAULT_COUNT = 10;
+    private static final int DEFAULT_RECENT = 3;
+    private static final int DEFAULT_WINDOW = 200;
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+
+    private final Map<String, TagDefinition> tags;
+
+    public TagRegistry(Environment env) {
+        Map<String, TagProperties> declared = Binder.get(env)
+                .bind("tagmind.tags", Bindable.mapOf(String.class, TagProperties.class))
+                .orElse(Map.of());
+        Map<String, TagDefinition> loaded = new LinkedHashMap<>();
+        declared.forEach((name, props) -> loaded.put(name.toLowerCase(), define(name.toLowerCase(), props)));
+        this.tags = Collections.unmodifiableMap(loaded);
+    }
+
+    public Optional<TagDefinition> find(String name) {
+        return Optional.ofNullable(tags.get(name));
+    }
+
+    public TagDefinition require(String name) {
+        TagDefinition definition = tags.get(name);
+        if (definition == null) {
+            throw new IllegalArgumentException("tag is not supported: " + name);
+        }
+        return definition;
+    }
+
+    public Set<String> names() {
+        return tags.keySet();
+    }
+
+    private static TagDefinition define(String name, TagProperties props) {
+        String location = props.template() == null || props.template().isBlank()
+                ? "prompts/" + name + ".txt"
+                : props.template().trim();
+        return new TagDefinition(
+                name,
+                props.history() == null ? TagDefinition.HistoryPolicy.NONE : props.history(),
+                props.defaultCount() == null || props.defaultCount() <= 0 ? DEFAULT_COUNT : props.defaultCount(),
+                props.recent() == null || props.recent() < 0 ? DEFAULT_RECENT : props.recent(),
+                props.window() == null || props.window() <= 0 ? DEFAULT_WINDOW : props.window(),
+                Boolean.TRUE.equals(props.retriever()),
+                props.costClass() == null || props.costClass().isBlank()
+                        ? UpstreamBulkheads.DEFAULT_CLASS
+                        : props.costClass().trim().toLowerCase(),
+                props.cacheTtl() == null ? Duration.ZERO : props.cacheTtl(),
+                props.timeout() == null ? DEFAULT_TIMEOUT : props.timeout(),
+                PromptTemplate.parse(readTemplate(location))
+        );
+    }
+
+    private static String readTemplate(String location) {
+        ClassPathResource resource = new ClassPathResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).strip();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read prompt template " + location, e);
+        }
+    }
+
+    public record TagProperties(
+            TagDefinition.HistoryPolicy history,
+            Integer defaultCount,
+            Integer recent,
+            Integer window,
+            Boolean retriever,
+            String costClass,
+            Duration cacheTtl,
+            Duration timeout,
+            String template
+    ) {}
+}
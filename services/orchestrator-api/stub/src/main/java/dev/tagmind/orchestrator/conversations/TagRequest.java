@@ -6,5 +6,7 @@ public record TagRequest(
         Integer count,
         String payload,
         String locale,
-        String text
+        String text,
+        String debug,
+        Boolean async
 ) {}
@@ -0,0 +1,55 @@
+package dev.tagmind.orchestrator.conversations;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+public record TagResponse(
+        String requestId,
+        String decision,
+        String replyText,
+        String sessionId,
+        String contactId,
+        String tag,
+        Used used
+) {
+
+    static TagResponse of(String requestId, ConversationsService.TagResult result) {
+        return new TagResponse(
+                requestId,
+                result.decision(),
+                result.replyText(),
+                result.sessionId().toString(),
+                result.contactId(),
+                result.tag(),
+                result.used()
+        );
+    }
+
+    /**
+     * Always carries the cheap flags; {@link DebugLevel#SUMMARY} adds prompt metadata and {@link DebugLevel#FULL}
+     * echoes the history and citations the prompt was built from.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Used(
+            String mode,
+            Boolean llmCalled,
+            Boolean cacheHit,
+            Boolean retrieverUsed,
+            Integer historyUsed,
+            Integer citationsCount,
+            String locale,
+            Integer requestedCount,
+            Integer historyLimit,
+            String promptType,
+            Integer promptTokens,
+            Integer payloadLen,
+            List<TagPromptBuilder.HistoryEntry> history,
+            List<RetrieverClient.RetrieverResult> citations
+    ) {
+
+        static Used off(String mode) {
+            return new Used(mode, false, null, false, null, null, null, null, null, null, null, null, null, null);
+        }
+    }
+}
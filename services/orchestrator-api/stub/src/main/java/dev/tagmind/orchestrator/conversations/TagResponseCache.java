@@ -0,0 +1,59 @@
+package dev.tagmind.orchestrator.conversations;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived cache of LLM replies for tags that declare a cache TTL. Keyed by the rendered prompt, so only
+ * tags whose prompt does not depend on per-chat state produce hits.
+ */
+@Component
+public class TagResponseCache {
+
+    private static final int MAX_ENTRIES = 1024;
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    public Optional<String> get(TagDefinition definition, String locale, String prompt) {
+        if (!definition.cacheable()) {
+            return Optional.empty();
+        }
+        Key key = new Key(definition.name(), locale, prompt);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.expiresAtNanos() - System.nanoTime() <= 0) {
+            entries.remove(key, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.text());
+    }
+
+    public void put(TagDefinition definition, String locale, String prompt, String text) {
+        if (!definition.cacheable() || text == null) {
+            return;
+        }
+        if (entries.size() >= MAX_ENTRIES) {
+            long now = System.nanoTime();
+            entries.values().removeIf(e -> e.expiresAtNanos() - now <= 0);
+            if (entries.size() >= MAX_ENTRIES) {
+                return;
+            }
+        }
+        entries.put(
+                new Key(definition.name(), locale, prompt),
+                new Entry(text, System.nanoTime() + definition.cacheTtl().toNanos())
+        );
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private record Key(String tag, String locale, String prompt) {}
+
+    private record Entry(String text, long expiresAtNanos) {}
+}
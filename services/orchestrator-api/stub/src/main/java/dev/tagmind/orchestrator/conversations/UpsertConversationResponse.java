@@ -0,0 +1,8 @@
+package dev.tagmind.orchestrator.conversations;
+
+public record UpsertConversationResponse(
+        String requestId,
+        String sessionId,
+        String contactId,
+        String mode
+) {}
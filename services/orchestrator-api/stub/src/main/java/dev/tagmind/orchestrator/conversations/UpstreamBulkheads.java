@@ -0,0 +1,202 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admits upstream work (retriever and llm-gateway calls) per cost class.
+ * <p>
+ * Every class declared under {@code tagmind.upstream.classes.<name>.*} has its own concurrency limit, queue bound
+ * and maximum wait, so a burst of heavy tags cannot occupy the slots of interactive ones. All classes also share
+ * {@code tagmind.upstream.max-concurrent}; when a slot frees up it goes to the waiter with the lowest
+ * {@code priority} value whose class still has room, first come first served within a class.
+ */
+@Component
+public class UpstreamBulkheads {
+
+    public static final String DEFAULT_CLASS = "interactive";
+
+    private static final Comparator<Waiter> ORDER = Comparator
+            .comparingInt((Waiter w) -> w.costClass.priority)
+            .thenComparingLong(w -> w.seq);
+
+    private final int maxConcurrent;
+    private final Map<String, CostClass> classes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeSet<Waiter> waiting = new TreeSet<>(ORDER);
+    private int inFlight;
+    private long nextSeq;
+
+    public UpstreamBulkheads(
+            Environment env,
+            TagRegistry tags,
+            @Value("${tagmind.upstream.max-concurrent:32}") int maxConcurrent,
+            MeterRegistry registry
+    ) {
+        this.maxConcurrent = maxConcurrent;
+        Map<String, ClassProperties> declared = Binder.get(env)
+                .bind("tagmind.upstream.classes", Bindable.mapOf(String.class, ClassProperties.class))
+                .orElse(Map.of());
+        Map<String, CostClass> loaded = new LinkedHashMap<>();
+        declared.forEach((name, props) -> loaded.put(name.toLowerCase(), new CostClass(name.toLowerCase(), props, maxConcurrent, registry)));
+        loaded.computeIfAbsent(DEFAULT_CLASS, name -> new CostClass(name, ClassProperties.EMPTY, maxConcurrent, registry));
+        this.classes = Collections.unmodifiableMap(loaded);
+
+        for (String tag : tags.names()) {
+            String costClass = tags.require(tag).costClass();
+            if (!classes.containsKey(costClass)) {
+                throw new IllegalStateException("tag " + tag + " uses undeclared cost class " + costClass);
+            }
+        }
+    }
+
+    public <T> T run(String costClass, Supplier<T> task) {
+        CostClass cls = classes.get(costClass);
+        if (cls == null) {
+            throw new IllegalArgumentException("unknown cost class: " + costClass);
+        }
+        acquire(cls);
+        try {
+            return task.get();
+        } finally {
+            release(cls);
+        }
+    }
+
+    private void acquire(CostClass cls) {
+        long start = System.nanoTime();
+        Waiter waiter = null;
+        lock.lock();
+        try {
+            if (cls.queued >= cls.maxQueue) {
+                cls.rejectedFull.increment();
+                throw new UpstreamRejectedException(cls.name, cls.maxWait);
+            }
+            waiter = new Waiter(cls, nextSeq++, lock.newCondition());
+            waiting.add(waiter);
+            cls.queued++;
+            dispatch();
+
+            long remaining = cls.maxWait.toNanos();
+            while (!waiter.granted && remaining > 0) {
+                remaining = waiter.ready.awaitNanos(remaining);
+            }
+            if (!waiter.granted) {
+                waiting.remove(waiter);
+                cls.queued--;
+                cls.rejectedTimeout.increment();
+                throw new UpstreamRejectedException(cls.name, cls.maxWait);
+            }
+        } catch (InterruptedException ex) {
+            // run() will not release for this caller: give back a slot granted before the interrupt, or leave the queue.
+            if (waiter.granted) {
+                cls.active--;
+                inFlight--;
+                dispatch();
+            } else {
+                waiting.remove(waiter);
+                cls.queued--;
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for upstream slot", ex);
+        } finally {
+            lock.unlock();
+        }
+        cls.waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void release(CostClass cls) {
+        lock.lock();
+        try {
+            cls.active--;
+            inFlight--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock. Grants slots in priority order, skipping classes that are at their own limit.
+    private void dispatch() {
+        Iterator<Waiter> it = waiting.iterator();
+        while (inFlight < maxConcurrent && it.hasNext()) {
+            Waiter waiter = it.next();
+            CostClass cls = waiter.costClass;
+            if (cls.active >= cls.maxConcurrent) continue;
+            it.remove();
+            cls.queued--;
+            cls.active++;
+            inFlight++;
+            waiter.granted = true;
+            waiter.ready.signal();
+        }
+    }
+
+    private static final class Waiter {
+        final CostClass costClass;
+        final long seq;
+        final Condition ready;
+        boolean granted;
+
+        Waiter(CostClass costClass, long seq, Condition ready) {
+            this.costClass = costClass;
+            this.seq = seq;
+            this.ready = ready;
+        }
+    }
+
+    private static final class CostClass {
+        final String name;
+        final int priority;
+        final int maxConcurrent;
+        final int maxQueue;
+        final Duration maxWait;
+        final Timer waitTimer;
+        final Counter rejectedFull;
+        final Counter rejectedTimeout;
+        // Guarded by UpstreamBulkheads.lock; the gauges read them racily, which is fine for metrics.
+        volatile int active;
+        volatile int queued;
+
+        CostClass(String name, ClassProperties props, int sharedLimit, MeterRegistry registry) {
+            this.name = name;
+            this.priority = props.priority() == null ? 0 : props.priority();
+            this.maxConcurrent = props.maxConcurrent() == null || props.maxConcurrent() <= 0 ? sharedLimit : props.maxConcurrent();
+            this.maxQueue = props.maxQueue() == null || props.maxQueue() < 0 ? 100 : props.maxQueue();
+            this.maxWait = props.maxWait() == null ? Duration.ofSeconds(5) : props.maxWait();
+            Gauge.builder("tagmind.upstream.active", this, c -> c.active).tag("class", name).register(registry);
+            Gauge.builder("tagmind.upstream.queued", this, c -> c.queued).tag("class", name).register(registry);
+            this.waitTimer = Timer.builder("tagmind.upstream.wait").tag("class", name).register(registry);
+            this.rejectedFull = Counter.builder("tagmind.upstream.rejected").tag("class", name).tag("reason", "queue_full").register(registry);
+            this.rejectedTimeout = Counter.builder("tagmind.upstream.rejected").tag("class", name).tag("reason", "timeout").register(registry);
+        }
+    }
+
+    public record ClassProperties(
+            Integer priority,
+            Integer maxConcurrent,
+            Integer maxQueue,
+            Duration maxWait
+    ) {
+        static final ClassProperties EMPTY = new ClassProperties(null, null, null, null);
+    }
+}
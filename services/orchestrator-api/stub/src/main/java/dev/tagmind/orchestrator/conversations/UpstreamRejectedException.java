@@ -0,0 +1,23 @@
+package dev.tagmind.orchestrator.conversations;
+
+import java.time.Duration;
+
+public class UpstreamRejectedException extends RuntimeException {
+
+    private final String costClass;
+    private final Duration retryAfter;
+
+    public UpstreamRejectedException(String costClass, Duration retryAfter) {
+        super("upstream capacity exhausted for cost class " + costClass);
+        this.costClass = costClass;
+        this.retryAfter = retryAfter;
+    }
+
+    public String costClass() {
+        return costClass;
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,240 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Retries calls to llm-gateway and web-retriever according to a per-upstream policy declared under
+ * {@code tagmind.retry.upstreams.<name>.*}.
+ * <p>
+ * Waits between attempts grow exponentially from {@code initial-backoff} up to {@code max-backoff} with full jitter,
+ * so replicas that failed together do not retry together; a {@code Retry-After} on 429/503 is honoured when it fits
+ * under {@code max-backoff}. Failures where the request never left this process (connect refused, DNS, connect
+ * timeout) are always retryable. Read timeouts and {@code retry-on-status} answers are retried only for upstreams
+ * marked {@code idempotent}, since the first attempt may already have been processed.
+ * <p>
+ * Every upstream also has a retry budget: each successful call deposits {@code tagmind.retry.budget.ratio} tokens,
+ * each retry spends one, and a small {@code min-per-second} trickle keeps low-traffic upstreams retryable. During a
+ * brownout successes stop, the budget drains, and the fleet falls back to single attempts instead of multiplying load.
+ */
+@Component
+public class UpstreamRetries {
+
+    public static final String LLM_GATEWAY = "llm-gateway";
+    public static final String WEB_RETRIEVER = "web-retriever";
+
+    /** Blocks for the given number of nanoseconds; replaced in tests. */
+    interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    private final Map<String, Upstream> upstreams;
+    private final LongSupplier clock;
+    private final Sleeper sleeper;
+
+    @Autowired
+    public UpstreamRetries(Environment env, MeterRegistry registry) {
+        this(
+                Binder.get(env).bind("tagmind.retry.upstreams", Bindable.mapOf(String.class, PolicyProperties.class)).orElse(Map.of()),
+                Binder.get(env).bind("tagmind.retry.budget", BudgetProperties.class).orElse(BudgetProperties.EMPTY),
+                registry,
+                System::nanoTime,
+                TimeUnit.NANOSECONDS::sleep
+        );
+    }
+
+    UpstreamRetries(
+            Map<String, PolicyProperties> declared,
+            BudgetProperties budget,
+            MeterRegistry registry,
+            LongSupplier clock,
+            Sleeper sleeper
+    ) {
+        this.clock = clock;
+        this.sleeper = sleeper;
+        Map<String, Upstream> loaded = new LinkedHashMap<>();
+        declared.forEach((name, props) -> loaded.put(name.toLowerCase(), new Upstream(name.toLowerCase(), props, budget, clock.getAsLong(), registry)));
+        for (String name : List.of(LLM_GATEWAY, WEB_RETRIEVER)) {
+            loaded.computeIfAbsent(name, n -> new Upstream(n, PolicyProperties.EMPTY, budget, clock.getAsLong(), registry));
+        }
+        this.upstreams = Collections.unmodifiableMap(loaded);
+    }
+
+    public <T> T call(String upstream, Supplier<T> attempt) {
+        Upstream target = upstreams.get(upstream);
+        if (target == null) {
+            throw new IllegalArgumentException("unknown upstream: " + upstream);
+        }
+        for (int n = 1; ; n++) {
+            try {
+                T result = attempt.get();
+                target.succeeded(n, clock.getAsLong());
+                return result;
+            } catch (RestClientException ex) {
+                if (n >= target.maxAttempts || !target.retryable(ex)) {
+                    target.failed.increment();
+                    throw ex;
+                }
+                if (!target.withdraw(clock.getAsLong())) {
+                    target.budgetExhausted.increment();
+                    target.failed.increment();
+                    throw ex;
+                }
+                target.retries.increment();
+                try {
+                    sleeper.sleep(target.backoff(n, ex));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    target.failed.increment();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private static final class Upstream {
+        final String name;
+        final int maxAttempts;
+        final long initialBackoff;
+        final long maxBackoff;
+        final double multiplier;
+        final boolean idempotent;
+        final Set<Integer> retryOnStatus;
+        final double ratio;
+        final double tokensPerNano;
+        final double maxTokens;
+        final Counter succeeded;
+        final Counter succeededAfterRetry;
+        final Counter failed;
+        final Counter retries;
+        final Counter budgetExhausted;
+        // Guarded by this.
+        double tokens;
+        long last;
+
+        Upstream(String name, PolicyProperties props, BudgetProperties budget, long now, MeterRegistry registry) {
+            this.name = name;
+            this.maxAttempts = props.maxAttempts() == null || props.maxAttempts() < 1 ? 2 : props.maxAttempts();
+            this.initialBackoff = (props.initialBackoff() == null ? Duration.ofMillis(100) : props.initialBackoff()).toNanos();
+            this.maxBackoff = Math.max(initialBackoff, (props.maxBackoff() == null ? Duration.ofSeconds(1) : props.maxBackoff()).toNanos());
+            this.multiplier = props.multiplier() == null || props.multiplier() < 1 ? 2.0 : props.multiplier();
+            this.idempotent = Boolean.TRUE.equals(props.idempotent());
+            this.retryOnStatus = props.retryOnStatus() == null ? Set.of(429, 502, 503, 504) : Set.copyOf(props.retryOnStatus());
+            this.ratio = budget.ratio() == null ? 0.1 : Math.max(0, budget.ratio());
+            double perSecond = budget.minPerSecond() == null ? 1.0 : Math.max(0, budget.minPerSecond());
+            this.tokensPerNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+            this.maxTokens = budget.maxTokens() == null || budget.maxTokens() <= 0 ? 20 : budget.maxTokens();
+            this.tokens = maxTokens;
+            this.last = now;
+
+            this.succeeded = outcome(registry, "success");
+            this.succeededAfterRetry = outcome(registry, "success_after_retry");
+            this.failed = outcome(registry, "failure");
+            this.retries = Counter.builder("tagmind.retry.retries").tag("upstream", name).register(registry);
+            this.budgetExhausted = Counter.builder("tagmind.retry.budget.exhausted").tag("upstream", name).register(registry);
+            Gauge.builder("tagmind.retry.budget.tokens", this, u -> u.tokens).tag("upstream", name).register(registry);
+        }
+
+        private Counter outcome(MeterRegistry registry, String outcome) {
+            return Counter.builder("tagmind.retry.calls").tag("upstream", name).tag("outcome", outcome).register(registry);
+        }
+
+        boolean retryable(RestClientException ex) {
+            if (ex instanceof RestClientResponseException response) {
+                int status = response.getStatusCode().value();
+                // 429 and 503 mean the upstream turned the request away without processing it.
+                boolean rejected = status == 429 || status == 503;
+                return retryOnStatus.contains(status) && (idempotent || rejected);
+            }
+            if (ex instanceof ResourceAccessException) {
+                return idempotent || notSent(ex.getCause());
+            }
+            return false;
+        }
+
+        private static boolean notSent(Throwable cause) {
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException || cause instanceof NoRouteToHostException) {
+                return true;
+            }
+            return cause instanceof SocketTimeoutException timeout
+                    && timeout.getMessage() != null
+                    && timeout.getMessage().toLowerCase().contains("connect");
+        }
+
+        long backoff(int attempt, RestClientException ex) {
+            if (ex instanceof RestClientResponseException response && response.getResponseHeaders() != null) {
+                String retryAfter = response.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+                if (retryAfter != null && retryAfter.trim().matches("\\d{1,6}")) {
+                    long nanos = TimeUnit.SECONDS.toNanos(Long.parseLong(retryAfter.trim()));
+                    if (nanos <= maxBackoff) {
+                        return nanos;
+                    }
+                }
+            }
+            double ceiling = Math.min(maxBackoff, initialBackoff * Math.pow(multiplier, attempt - 1));
+            return ThreadLocalRandom.current().nextLong((long) ceiling + 1);
+        }
+
+        synchronized void succeeded(int attempts, long now) {
+            refill(now);
+            tokens = Math.min(maxTokens, tokens + ratio);
+            (attempts == 1 ? succeeded : succeededAfterRetry).increment();
+        }
+
+        synchronized boolean withdraw(long now) {
+            refill(now);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        private void refill(long now) {
+            if (now > last) {
+                tokens = Math.min(maxTokens, tokens + (now - last) * tokensPerNano);
+                last = now;
+            }
+        }
+    }
+
+    public record PolicyProperties(
+            Integer maxAttempts,
+            Duration initialBackoff,
+            Duration maxBackoff,
+            Double multiplier,
+            Boolean idempotent,
+            List<Integer> retryOnStatus
+    ) {
+        static final PolicyProperties EMPTY = new PolicyProperties(null, null, null, null, null, null);
+    }
+
+    public record BudgetProperties(Double ratio, Double minPerSecond, Double maxTokens) {
+        static final BudgetProperties EMPTY = new BudgetProperties(null, null, null);
+    }
+}
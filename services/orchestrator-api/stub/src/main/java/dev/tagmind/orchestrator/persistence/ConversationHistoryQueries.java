@@ -0,0 +1,253 @@
+package dev.tagmind.orchestrator.persistence;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read-only projections over conversation_messages that bypass entity hydration.
+ * <p>
+ * Latest-history reads continue into conversation_message_archive when the hot table holds fewer messages than
+ * requested (see {@link MessageArchiver}); both reads share one repeatable-read snapshot, so a concurrent archive
+ * move can neither hide nor duplicate a message. Full-text search covers the hot table only.
+ * <p>
+ * Exports stream a whole history through server-side cursors, so they hold one connection for their duration.
+ */
+@Repository
+public class ConversationHistoryQueries {
+
+    private static final String LATEST_OLDEST_FIRST = """
+            select direction, message_text, created_at
+            from (
+              select direction, message_text, created_at
+              from conversation_messages
+              where session_id = ?
+              order by created_at desc
+              limit ?
+            ) latest
+            order by created_at asc
+            """;
+
+    // Both configurations are matched so a query stems correctly whichever language the chat is in.
+    // The session filter and the tsvector share one GIN index (btree_gin), so only matching rows are ranked.
+    private static final String SEARCH_HITS = """
+            with q as (
+              select websearch_to_tsquery('russian', ?) || websearch_to_tsquery('english', ?) as query
+            )
+            select id, direction, message_text, created_at, rank
+            from (
+              select m.id, m.direction, m.message_text, m.created_at, ts_rank_cd(m.message_tsv, q.query) as rank
+              from conversation_messages m, q
+              where m.session_id = ? and m.message_tsv @@ q.query
+            ) hits
+            """;
+
+    private static final String SEARCH_FIRST_PAGE = SEARCH_HITS + """
+            order by rank desc, id desc
+            limit ?
+            """;
+
+    private static final String SEARCH_NEXT_PAGE = SEARCH_HITS + """
+            where (rank, id) < (?::real, ?)
+            order by rank desc, id desc
+            limit ?
+            """;
+
+    // Chunks newest first; the reader stops fetching as soon as it has enough messages.
+    private static final String ARCHIVE_CHUNKS = """
+            select payload
+            from conversation_message_archive
+            where session_id = ?
+            order by last_created_at desc
+            """;
+
+    // Chunks never overlap in time, so ordering by either bound gives chronological order.
+    private static final String ARCHIVE_CHUNKS_OLDEST_FIRST = """
+            select payload
+            from conversation_message_archive
+            where session_id = ?
+            order by last_created_at asc
+            """;
+
+    private static final String ALL_OLDEST_FIRST = """
+            select id, direction, message_text, created_at, request_id
+            from conversation_messages
+            where session_id = ?
+            order by created_at asc
+            """;
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int ARCHIVE_FETCH_SIZE = 4;
+
+    private final JdbcTemplate jdbc;
+
+    public ConversationHistoryQueries(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public <T> List<T> findLatest(UUID sessionId, int limit, HistoryRowMapper<T> mapper) {
+        List<T> hot = jdbc.query(
+                LATEST_OLDEST_FIRST,
+                new RowMapperResultSetExtractor<>(
+                        (rs, rowNum) -> mapper.map(
+                                rs.getString(1),
+                                rs.getString(2),
+                                rs.getObject(3, OffsetDateTime.class)
+                        ),
+                        limit
+                ),
+                sessionId,
+                limit
+        );
+        if (hot.size() >= limit) {
+            return hot;
+        }
+        List<MessageArchiveCodec.ArchivedMessage> cold = latestArchived(sessionId, limit - hot.size());
+        if (cold.isEmpty()) {
+            return hot;
+        }
+        List<T> merged = new ArrayList<>(cold.size() + hot.size());
+        for (MessageArchiveCodec.ArchivedMessage m : cold) {
+            merged.add(mapper.map(m.direction(), m.text(), m.createdAt()));
+        }
+        merged.addAll(hot);
+        return merged;
+    }
+
+    // Archived messages are all older than the session's hot ones, so the newest `count` of them directly precede
+    // the hot history. Returned oldest first.
+    private List<MessageArchiveCodec.ArchivedMessage> latestArchived(UUID sessionId, int count) {
+        return jdbc.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(ARCHIVE_CHUNKS);
+                    ps.setObject(1, sessionId);
+                    ps.setFetchSize(ARCHIVE_FETCH_SIZE);
+                    return ps;
+                },
+                rs -> {
+                    Deque<MessageArchiveCodec.ArchivedMessage> collected = new ArrayDeque<>(count);
+                    while (collected.size() < count && rs.next()) {
+                        List<MessageArchiveCodec.ArchivedMessage> chunk = MessageArchiveCodec.decode(rs.getBytes(1));
+                        for (int i = chunk.size() - 1; i >= 0 && collected.size() < count; i--) {
+                            collected.addFirst(chunk.get(i));
+                        }
+                    }
+                    return List.copyOf(collected);
+                }
+        );
+    }
+
+    /**
+     * Streams a session's whole history to {@code sink}, archived messages first, oldest first, and returns how many
+     * were written. Hot rows are read through a cursor {@code EXPORT_FETCH_SIZE} rows at a time (Postgres only
+     * honours the fetch size inside a transaction) and archive chunks are decoded one at a time, so memory use
+     * does not depend on the length of the history.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public long export(UUID sessionId, ExportSink sink) throws IOException {
+        long[] written = {0};
+        try {
+            jdbc.query(
+                    con -> cursor(con.prepareStatement(ARCHIVE_CHUNKS_OLDEST_FIRST), sessionId, ARCHIVE_FETCH_SIZE),
+                    (RowCallbackHandler) rs -> {
+                        for (MessageArchiveCodec.ArchivedMessage m : MessageArchiveCodec.decode(rs.getBytes(1))) {
+                            emit(sink, m.id(), m.direction(), m.text(), m.createdAt(), m.requestId());
+                            written[0]++;
+                        }
+                    }
+            );
+            jdbc.query(
+                    con -> cursor(con.prepareStatement(ALL_OLDEST_FIRST), sessionId, EXPORT_FETCH_SIZE),
+                    (RowCallbackHandler) rs -> {
+                        emit(sink, rs.getObject(1, UUID.class), rs.getString(2), rs.getString(3),
+                                rs.getObject(4, OffsetDateTime.class), rs.getString(5));
+                        written[0]++;
+                    }
+            );
+        } catch (SinkFailure ex) {
+            throw ex.getCause();
+        }
+        return written[0];
+    }
+
+    private static PreparedStatement cursor(PreparedStatement ps, UUID sessionId, int fetchSize) throws SQLException {
+        ps.setObject(1, sessionId);
+        ps.setFetchSize(fetchSize);
+        return ps;
+    }
+
+    // RowCallbackHandler cannot throw IOException; export() unwraps it again. A distinct type keeps sink failures
+    // (usually a client gone away) apart from archive decoding errors.
+    private static void emit(ExportSink sink, UUID id, String direction, String text, OffsetDateTime createdAt, String requestId) {
+        try {
+            sink.accept(id, direction, text, createdAt, requestId);
+        } catch (IOException ex) {
+            throw new SinkFailure(ex);
+        }
+    }
+
+    private static final class SinkFailure extends RuntimeException {
+        SinkFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * Ranked full-text matches within one session, best first. Pages are keyed by {@code (rank, id)} so deep pages
+     * cost the same as the first one.
+     */
+    @Transactional(readOnly = true)
+    public SearchPage search(UUID sessionId, String query, int limit, SearchCursor after) {
+        RowMapper<SearchHit> mapper = (rs, rowNum) -> new SearchHit(
+                rs.getObject(1, UUID.class),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getObject(4, OffsetDateTime.class),
+                rs.getFloat(5)
+        );
+        // One extra row tells whether another page exists without a count query.
+        List<SearchHit> hits = after == null
+                ? jdbc.query(SEARCH_FIRST_PAGE, mapper, query, query, sessionId, limit + 1)
+                : jdbc.query(SEARCH_NEXT_PAGE, mapper, query, query, sessionId, after.rank(), after.id(), limit + 1);
+        if (hits.size() <= limit) {
+            return new SearchPage(hits, null);
+        }
+        List<SearchHit> page = List.copyOf(hits.subList(0, limit));
+        SearchHit last = page.get(limit - 1);
+        return new SearchPage(page, new SearchCursor(last.rank(), last.id()));
+    }
+
+    public record SearchHit(UUID id, String direction, String text, OffsetDateTime createdAt, float rank) {}
+
+    public record SearchPage(List<SearchHit> hits, SearchCursor next) {}
+
+    @FunctionalInterface
+    public interface ExportSink {
+        void accept(UUID id, String direction, String text, OffsetDateTime createdAt, String requestId) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface HistoryRowMapper<T> {
+        T map(String direction, String text, OffsetDateTime createdAt);
+    }
+}
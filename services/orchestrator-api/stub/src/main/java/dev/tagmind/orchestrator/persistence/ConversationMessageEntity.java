@@ -1,6 +1,7 @@
 package dev.tagmind.orchestrator.persistence;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
@@ -11,7 +12,7 @@ import java.util.UUID;
 public class ConversationMessageEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidGenerator(algorithm = UuidV7Generator.class)
     @Column(name = "id", nullable = false)
     private UUID id;
 
@@ -71,6 +72,10 @@ public class ConversationMessageEntity {
         return createdAt;
     }
 
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
     public String getRequestId() {
         return requestId;
     }
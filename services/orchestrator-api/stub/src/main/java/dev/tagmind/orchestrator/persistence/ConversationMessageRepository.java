@@ -1,11 +1,8 @@
 package dev.tagmind.orchestrator.persistence;
 
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-import java.util.List;
 import java.util.UUID;
 
 public interface ConversationMessageRepository extends JpaRepository<ConversationMessageEntity, UUID> {
-    List<ConversationMessageEntity> findBySession(ConversationSessionEntity session, Pageable pageable);
 }
@@ -1,6 +1,7 @@
 package dev.tagmind.orchestrator.persistence;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
@@ -16,7 +17,7 @@ import java.util.UUID;
 public class ConversationSessionEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidGenerator(algorithm = UuidV7Generator.class)
     @Column(name = "id", nullable = false)
     private UUID id;
 
@@ -73,8 +74,4 @@ public class ConversationSessionEntity {
     public OffsetDateTime getUpdatedAt() {
         return updatedAt;
     }
-
-    public void touch() {
-        this.updatedAt = OffsetDateTime.now(ZoneOffset.UTC);
-    }
 }
@@ -0,0 +1,229 @@
+package dev.tagmind.orchestrator.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Broadcasts cache invalidations to every orchestrator replica over Postgres {@code LISTEN/NOTIFY}.
+ * <p>
+ * {@link #publish} issues {@code pg_notify} on the caller's connection, so inside a transaction the notification
+ * goes out only on commit; local subscribers are invoked right after the commit, and replicas skip their own
+ * notifications when they arrive. Each replica listens on one dedicated connection outside the pool. NOTIFY is not
+ * durable: whatever is sent while that connection is down is lost, so subscribers are told to drop everything when
+ * it is lost and again once it is back, and {@link #connected()} is false in between so caches are bypassed.
+ */
+@Component
+public class InvalidationBus {
+
+    /** Receives invalidations of one topic. */
+    public interface Listener {
+        void invalidate(String key);
+
+        void invalidateAll();
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidationBus.class);
+
+    private static final String ALL = "*";
+
+    private final DataSourceProperties dataSource;
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final String channel;
+    private final int pollMillis;
+    private final long heartbeatNanos;
+    private final Duration maxBackoff;
+    private final String origin = UUID.randomUUID().toString();
+    private final Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+    private final Counter received;
+    private final Counter resets;
+    private volatile boolean connected;
+    private volatile boolean running;
+    private Thread thread;
+
+    public InvalidationBus(
+            DataSourceProperties dataSource,
+            JdbcTemplate jdbc,
+            @Value("${tagmind.cache.enabled:true}") boolean enabled,
+            @Value("${tagmind.cache.invalidation.channel:tagmind_invalidation}") String channel,
+            @Value("${tagmind.cache.invalidation.poll-interval:500ms}") Duration pollInterval,
+            @Value("${tagmind.cache.invalidation.heartbeat:5s}") Duration heartbeat,
+            @Value("${tagmind.cache.invalidation.max-backoff:30s}") Duration maxBackoff,
+            MeterRegistry registry
+    ) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("tagmind.cache.invalidation.channel must be a lower-case identifier: " + channel);
+        }
+        this.dataSource = dataSource;
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.pollMillis = (int) Math.max(1, pollInterval.toMillis());
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.maxBackoff = maxBackoff;
+        this.received = Counter.builder("tagmind.cache.invalidation.received").register(registry);
+        this.resets = Counter.builder("tagmind.cache.invalidation.resets").register(registry);
+        Gauge.builder("tagmind.cache.invalidation.connected", this, bus -> bus.connected ? 1 : 0).register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        thread = Thread.ofPlatform().daemon().name("invalidation-listener").start(this::listenLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(Duration.ofSeconds(2));
+        }
+    }
+
+    /** True while notifications are being received; caches must not serve entries otherwise. */
+    public boolean connected() {
+        return connected;
+    }
+
+    public void subscribe(String topic, Listener listener) {
+        listeners.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /** Invalidates {@code key} of {@code topic} on every replica, once the current transaction commits. */
+    public void publish(String topic, String key) {
+        send(topic, key);
+    }
+
+    /** Drops every cached entry on every replica. */
+    public void publishAll() {
+        send(ALL, "");
+    }
+
+    private void send(String topic, String key) {
+        if (!enabled) {
+            dispatch(topic, key);
+            return;
+        }
+        jdbc.query("select pg_notify(?, ?)", (ResultSetExtractor<Void>) rs -> null, channel, origin + " " + topic + " " + key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(topic, key);
+                }
+            });
+        } else {
+            dispatch(topic, key);
+        }
+    }
+
+    private void listenLoop() {
+        long backoffMillis = 100;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(
+                    dataSource.determineUrl(), dataSource.determineUsername(), dataSource.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                // Anything published before LISTEN took effect was missed.
+                resetAll();
+                connected = true;
+                backoffMillis = 100;
+                log.info("listening for cache invalidations on {}", channel);
+                long lastCheck = System.nanoTime();
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(pollMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                    if (System.nanoTime() - lastCheck > heartbeatNanos) {
+                        // getNotifications does not notice a silently dropped connection; a round trip does.
+                        try (Statement statement = connection.createStatement()) {
+                            statement.setQueryTimeout(5);
+                            statement.execute("select 1");
+                        }
+                        lastCheck = System.nanoTime();
+                    }
+                }
+            } catch (SQLException ex) {
+                if (running) {
+                    log.warn("cache invalidation listener disconnected, caches bypassed until it is back: {}", ex.getMessage());
+                }
+            } finally {
+                if (connected) {
+                    connected = false;
+                    resetAll();
+                }
+            }
+            if (!running) {
+                break;
+            }
+            try {
+                Thread.sleep(backoffMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoffMillis = Math.min(backoffMillis * 2, maxBackoff.toMillis());
+        }
+    }
+
+    private void receive(String payload) {
+        received.increment();
+        String[] parts = payload.split(" ", 3);
+        if (parts.length < 3) {
+            log.warn("ignoring malformed invalidation: {}", payload);
+            return;
+        }
+        if (!parts[0].equals(origin)) {
+            dispatch(parts[1], parts[2]);
+        }
+    }
+
+    private void dispatch(String topic, String key) {
+        if (ALL.equals(topic)) {
+            resetAll();
+            return;
+        }
+        for (Listener listener : listeners.getOrDefault(topic, List.of())) {
+            listener.invalidate(key);
+        }
+    }
+
+    private void resetAll() {
+        resets.increment();
+        listeners.values().forEach(topic -> topic.forEach(Listener::invalidateAll));
+    }
+}
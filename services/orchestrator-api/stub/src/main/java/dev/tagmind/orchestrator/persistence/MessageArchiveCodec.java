@@ -0,0 +1,114 @@
+package dev.tagmind.orchestrator.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Payload format of {@code conversation_message_archive}: a version byte and a message count, then each column
+ * written for all messages in turn (ids, directions, timestamps, request ids, texts), all gzip-compressed. Grouping
+ * values by column puts similar bytes next to each other, which gzip rewards.
+ * <p>
+ * Timestamps are stored as microseconds since the epoch, the precision Postgres keeps.
+ */
+final class MessageArchiveCodec {
+
+    private static final byte VERSION = 1;
+
+    private MessageArchiveCodec() {
+    }
+
+    static byte[] encode(List<ArchivedMessage> messages) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeByte(VERSION);
+            out.writeInt(messages.size());
+            for (ArchivedMessage m : messages) {
+                out.writeLong(m.id().getMostSignificantBits());
+                out.writeLong(m.id().getLeastSignificantBits());
+            }
+            for (ArchivedMessage m : messages) {
+                writeString(out, m.direction());
+            }
+            for (ArchivedMessage m : messages) {
+                out.writeLong(ChronoUnit.MICROS.between(Instant.EPOCH, m.createdAt().toInstant()));
+            }
+            for (ArchivedMessage m : messages) {
+                writeString(out, m.requestId());
+            }
+            for (ArchivedMessage m : messages) {
+                writeString(out, m.text());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<ArchivedMessage> decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(payload)))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("unsupported archive payload version " + version);
+            }
+            int count = in.readInt();
+            UUID[] ids = new UUID[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = new UUID(in.readLong(), in.readLong());
+            }
+            String[] directions = new String[count];
+            for (int i = 0; i < count; i++) {
+                directions[i] = readString(in);
+            }
+            OffsetDateTime[] createdAt = new OffsetDateTime[count];
+            for (int i = 0; i < count; i++) {
+                createdAt[i] = OffsetDateTime.ofInstant(Instant.EPOCH.plus(in.readLong(), ChronoUnit.MICROS), ZoneOffset.UTC);
+            }
+            String[] requestIds = new String[count];
+            for (int i = 0; i < count; i++) {
+                requestIds[i] = readString(in);
+            }
+            List<ArchivedMessage> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                messages.add(new ArchivedMessage(ids[i], directions[i], readString(in), createdAt[i], requestIds[i]));
+            }
+            return messages;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // Length-prefixed UTF-8; -1 encodes null. writeUTF would cap texts at 64 KB.
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    record ArchivedMessage(UUID id, String direction, String text, OffsetDateTime createdAt, String requestId) {}
+}
@@ -0,0 +1,193 @@
+package dev.tagmind.orchestrator.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves old messages from the hot {@code conversation_messages} table into {@code conversation_message_archive}.
+ * <p>
+ * A message is cold once it is older than {@code tagmind.archive.older-than} and not among the newest
+ * {@code keep-latest} of its session, so everyday history reads never leave the hot table. Each transaction deletes
+ * up to {@code chunk-size} of a session's oldest cold messages and writes them back as one compressed archive row;
+ * a per-session advisory lock keeps concurrent replicas off the same session. Sessions are visited in id order
+ * across runs, so a large backlog is worked off over several runs without starving anyone.
+ */
+@Component
+public class MessageArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageArchiver.class);
+
+    // A session has something to move iff it has more than keep-latest messages and its oldest one is past the
+    // cutoff (the oldest is then never among the kept ones). Both are probes of the (session_id, created_at) index,
+    // so dormant sessions whose old messages are all kept cost no transaction and no scan of their messages.
+    private static final String COLD_SESSIONS = """
+            select s.id
+            from conversation_sessions s
+            where s.id > ?
+              and exists (
+                select 1 from conversation_messages m
+                where m.session_id = s.id
+                order by m.created_at desc
+                offset ? limit 1
+              )
+              and (select min(m.created_at) from conversation_messages m where m.session_id = s.id) < ?
+            order by s.id
+            limit ?
+            """;
+
+    private static final String MOVE_CHUNK = """
+            delete from conversation_messages
+            where session_id = ?
+              and id in (
+                select id from conversation_messages
+                where session_id = ? and created_at < ?
+                order by created_at
+                limit ?
+              )
+              and id not in (
+                select id from conversation_messages
+                where session_id = ?
+                order by created_at desc
+                limit ?
+              )
+            returning id, direction, message_text, created_at, request_id
+            """;
+
+    private static final String INSERT_CHUNK = """
+            insert into conversation_message_archive (session_id, first_created_at, last_created_at, message_count, payload)
+            values (?, ?, ?, ?, ?)
+            """;
+
+    private static final UUID FIRST = new UUID(0, 0);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final Duration olderThan;
+    private final int keepLatest;
+    private final int chunkSize;
+    private final int maxPerRun;
+    private final Counter archivedMessages;
+    private final Counter archivedChunks;
+    private UUID resumeAfter = FIRST;
+
+    public MessageArchiver(
+            JdbcTemplate jdbc,
+            PlatformTransactionManager txManager,
+            @Value("${tagmind.archive.enabled:true}") boolean enabled,
+            @Value("${tagmind.archive.older-than:30d}") Duration olderThan,
+            @Value("${tagmind.archive.keep-latest:50}") int keepLatest,
+            @Value("${tagmind.archive.chunk-size:500}") int chunkSize,
+            @Value("${tagmind.archive.max-per-run:50000}") int maxPerRun,
+            MeterRegistry registry
+    ) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.enabled = enabled;
+        this.olderThan = olderThan;
+        this.keepLatest = Math.max(0, keepLatest);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxPerRun = maxPerRun;
+        this.archivedMessages = Counter.builder("tagmind.archive.messages").register(registry);
+        this.archivedChunks = Counter.builder("tagmind.archive.chunks").register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${tagmind.archive.interval:15m}", initialDelayString = "${tagmind.archive.initial-delay:5m}")
+    void scheduled() {
+        if (enabled) {
+            try {
+                archive();
+            } catch (RuntimeException ex) {
+                log.warn("message archiving failed: {}", ex.toString());
+            }
+        }
+    }
+
+    /** Runs one pass and returns the number of messages moved. */
+    public synchronized int archive() {
+        OffsetDateTime cutoff = OffsetDateTime.now(ZoneOffset.UTC).minus(olderThan);
+        int moved = 0;
+        while (moved < maxPerRun) {
+            List<UUID> sessions = coldSessions(cutoff, resumeAfter, 100);
+            if (sessions.isEmpty()) {
+                resumeAfter = FIRST;
+                break;
+            }
+            for (UUID session : sessions) {
+                int n;
+                do {
+                    n = moveChunk(session, cutoff);
+                    moved += n;
+                } while (n == chunkSize && moved < maxPerRun);
+                resumeAfter = session;
+                if (moved >= maxPerRun) break;
+            }
+        }
+        if (moved > 0) {
+            log.info("archived {} messages older than {}", moved, cutoff);
+        }
+        return moved;
+    }
+
+    /** Sessions after {@code after}, in id order, that have messages to move for {@code cutoff}. */
+    List<UUID> coldSessions(OffsetDateTime cutoff, UUID after, int limit) {
+        return jdbc.queryForList(COLD_SESSIONS, UUID.class, after, keepLatest, cutoff, limit);
+    }
+
+    private int moveChunk(UUID sessionId, OffsetDateTime cutoff) {
+        Integer moved = tx.execute(status -> {
+            Boolean locked = jdbc.queryForObject(
+                    "select pg_try_advisory_xact_lock(hashtextextended(?, 0))", Boolean.class, "archive:" + sessionId);
+            if (!Boolean.TRUE.equals(locked)) {
+                return 0;
+            }
+            List<MessageArchiveCodec.ArchivedMessage> rows = jdbc.query(
+                    MOVE_CHUNK,
+                    (rs, rowNum) -> new MessageArchiveCodec.ArchivedMessage(
+                            rs.getObject(1, UUID.class),
+                            rs.getString(2),
+                            rs.getString(3),
+                            rs.getObject(4, OffsetDateTime.class),
+                            rs.getString(5)
+                    ),
+                    sessionId, sessionId, cutoff, chunkSize, sessionId, keepLatest
+            );
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            List<MessageArchiveCodec.ArchivedMessage> ordered = rows.stream()
+                    .sorted(Comparator.comparing(MessageArchiveCodec.ArchivedMessage::createdAt)
+                            .thenComparing(MessageArchiveCodec.ArchivedMessage::id))
+                    .toList();
+            jdbc.update(
+                    INSERT_CHUNK,
+                    sessionId,
+                    ordered.get(0).createdAt(),
+                    ordered.get(ordered.size() - 1).createdAt(),
+                    ordered.size(),
+                    MessageArchiveCodec.encode(ordered)
+            );
+            return ordered.size();
+        });
+        if (moved != null && moved > 0) {
+            archivedMessages.increment(moved);
+            archivedChunks.increment();
+        }
+        return moved == null ? 0 : moved;
+    }
+}
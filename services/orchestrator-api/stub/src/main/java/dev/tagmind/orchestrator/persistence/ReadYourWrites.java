@@ -0,0 +1,77 @@
+package dev.tagmind.orchestrator.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Remembers sessions written within the replica staleness window so that reads for them stay on the primary.
+ * A no-op unless a replica is configured.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final ConcurrentHashMap<UUID, Long> recentWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWrites(
+            @Value("${tagmind.datasource.replica.url:}") String replicaUrl,
+            @Value("${tagmind.datasource.replica.max-lag:2s}") Duration maxLag,
+            @Value("${tagmind.datasource.replica.lag-check-interval:1s}") Duration checkInterval
+    ) {
+        this.enabled = replicaUrl != null && !replicaUrl.isBlank();
+        this.windowNanos = maxLag.plus(checkInterval).toNanos();
+    }
+
+    static boolean primaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    public void recordWrite(UUID sessionId) {
+        if (!enabled || sessionId == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        recentWrites.put(sessionId, now);
+        if (recentWrites.size() > PRUNE_THRESHOLD) {
+            recentWrites.values().removeIf(at -> now - at > windowNanos);
+        }
+    }
+
+    public <T> T read(UUID sessionId, Supplier<T> query) {
+        if (!enabled || !recentlyWritten(sessionId)) {
+            return query.get();
+        }
+        Boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return query.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_REQUIRED.remove();
+            } else {
+                PRIMARY_REQUIRED.set(previous);
+            }
+        }
+    }
+
+    private boolean recentlyWritten(UUID sessionId) {
+        Long at = recentWrites.get(sessionId);
+        if (at == null) {
+            return false;
+        }
+        if (System.nanoTime() - at > windowNanos) {
+            recentWrites.remove(sessionId, at);
+            return false;
+        }
+        return true;
+    }
+}
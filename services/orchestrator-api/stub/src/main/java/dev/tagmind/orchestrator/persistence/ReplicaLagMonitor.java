@@ -0,0 +1,78 @@
+package dev.tagmind.orchestrator.persistence;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Polls the replica for replay lag. The replica counts as usable only while the last probe succeeded
+ * and reported lag under the configured threshold.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String LAG_QUERY = """
+            select case
+              when not pg_is_in_recovery() then 0
+              when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+              else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+            end
+            """;
+
+    private final DataSource replica;
+    private final long maxLagMillis;
+    private volatile double lagMillis = Double.NaN;
+    private volatile boolean usable;
+
+    public ReplicaLagMonitor(DataSource replica, Duration maxLag, MeterRegistry registry) {
+        this.replica = replica;
+        this.maxLagMillis = maxLag.toMillis();
+        Gauge.builder("tagmind.datasource.replica.lag", this, m -> m.lagMillis)
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("tagmind.datasource.replica.usable", this, m -> m.usable ? 1 : 0)
+                .register(registry);
+    }
+
+    public boolean replicaUsable() {
+        return usable;
+    }
+
+    public void markUnusable() {
+        usable = false;
+    }
+
+    @Scheduled(fixedDelayString = "${tagmind.datasource.replica.lag-check-interval:1s}")
+    public void probe() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(1);
+            try (ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+                rs.next();
+                double lag = rs.getDouble(1);
+                lagMillis = lag;
+                boolean nowUsable = lag <= maxLagMillis;
+                if (nowUsable != usable) {
+                    log.info("replica {} (lag={}ms, max={}ms)", nowUsable ? "in rotation" : "out of rotation", (long) lag, maxLagMillis);
+                }
+                usable = nowUsable;
+            }
+        } catch (SQLException ex) {
+            if (usable) {
+                log.warn("replica lag probe failed, routing reads to primary: {}", ex.getMessage());
+            }
+            lagMillis = Double.NaN;
+            usable = false;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package dev.tagmind.orchestrator.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Read-only target for {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: hands out
+ * replica connections while the replica is within the lag budget, primary connections otherwise.
+ */
+class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor lag;
+    private final Counter toReplica;
+    private final Counter toPrimary;
+    private final Counter replicaFailures;
+
+    ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lag, MeterRegistry registry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lag = lag;
+        this.toReplica = Counter.builder("tagmind.datasource.read.route").tag("target", "replica").register(registry);
+        this.toPrimary = Counter.builder("tagmind.datasource.read.route").tag("target", "primary").register(registry);
+        this.replicaFailures = Counter.builder("tagmind.datasource.replica.failures").register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ReadYourWrites.primaryRequired() || !lag.replicaUsable()) {
+            toPrimary.increment();
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.getConnection();
+            toReplica.increment();
+            return connection;
+        } catch (SQLException ex) {
+            replicaFailures.increment();
+            lag.markUnusable();
+            toPrimary.increment();
+            return primary.getConnection();
+        }
+    }
+
+    // Explicit credentials are for one-off administrative connections; those always go to the primary.
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        toPrimary.increment();
+        return primary.getConnection(username, password);
+    }
+}
@@ -0,0 +1,41 @@
+package dev.tagmind.orchestrator.persistence;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keyset position of the last search hit on a page. The rank is carried as its exact float bits so the next page
+ * resumes strictly after that row.
+ */
+public record SearchCursor(float rank, UUID id) {
+
+    private static final int BYTES = Integer.BYTES + 2 * Long.BYTES;
+
+    public String encode() {
+        ByteBuffer buf = ByteBuffer.allocate(BYTES)
+                .putInt(Float.floatToIntBits(rank))
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.array());
+    }
+
+    public static Optional<SearchCursor> decode(String value) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(value);
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+        if (bytes.length != BYTES) {
+            return Optional.empty();
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        float rank = Float.intBitsToFloat(buf.getInt());
+        if (Float.isNaN(rank)) {
+            return Optional.empty();
+        }
+        return Optional.of(new SearchCursor(rank, new UUID(buf.getLong(), buf.getLong())));
+    }
+}
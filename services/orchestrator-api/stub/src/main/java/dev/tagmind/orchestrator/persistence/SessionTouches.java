@@ -0,0 +1,130 @@
+package dev.tagmind.orchestrator.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps {@code conversation_sessions.updated_at} current without an UPDATE per message. Touches are coalesced in
+ * memory (latest time per session) and written in id-ordered batches every {@code tagmind.sessions.touch.interval},
+ * so a busy chat costs one row update per interval instead of one per message and {@code updated_at} lags by at
+ * most that interval. {@code greatest()} keeps the column monotonic when several replicas flush the same session.
+ * <p>
+ * With {@code tagmind.sessions.touch.coalesce=false} every touch is written immediately, in the caller's transaction.
+ */
+@Component
+public class SessionTouches {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionTouches.class);
+
+    private static final String TOUCH = """
+            update conversation_sessions
+            set updated_at = greatest(updated_at, ?)
+            where id = ?
+            """;
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final boolean coalesce;
+    private final ConcurrentHashMap<UUID, OffsetDateTime> pending = new ConcurrentHashMap<>();
+    private final Counter recorded;
+    private final Counter written;
+
+    public SessionTouches(
+            JdbcTemplate jdbc,
+            PlatformTransactionManager txManager,
+            @Value("${tagmind.sessions.touch.coalesce:true}") boolean coalesce,
+            MeterRegistry registry
+    ) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.coalesce = coalesce;
+        this.recorded = Counter.builder("tagmind.sessions.touches").tag("stage", "recorded").register(registry);
+        this.written = Counter.builder("tagmind.sessions.touches").tag("stage", "written").register(registry);
+        Gauge.builder("tagmind.sessions.touches.pending", pending, Map::size).register(registry);
+    }
+
+    public void touch(UUID sessionId) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        recorded.increment();
+        if (!coalesce) {
+            jdbc.update(TOUCH, now, sessionId);
+            written.increment();
+            return;
+        }
+        pending.merge(sessionId, now, SessionTouches::latest);
+    }
+
+    @Scheduled(fixedDelayString = "${tagmind.sessions.touch.interval:5s}")
+    void scheduled() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("session touch flush failed: {}", ex.toString());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduled();
+    }
+
+    /** Writes every pending touch and returns the number of sessions updated. Failed batches stay pending. */
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        // Id order: replicas flushing overlapping sessions lock rows in the same order and cannot deadlock.
+        TreeMap<UUID, OffsetDateTime> drained = new TreeMap<>();
+        for (UUID id : pending.keySet()) {
+            OffsetDateTime at = pending.remove(id);
+            if (at != null) {
+                drained.put(id, at);
+            }
+        }
+        List<Map.Entry<UUID, OffsetDateTime>> entries = new ArrayList<>(drained.entrySet());
+        int flushed = 0;
+        try {
+            while (flushed < entries.size()) {
+                List<Map.Entry<UUID, OffsetDateTime>> chunk = entries.subList(flushed, Math.min(entries.size(), flushed + BATCH_SIZE));
+                List<Object[]> args = new ArrayList<>(chunk.size());
+                for (Map.Entry<UUID, OffsetDateTime> e : chunk) {
+                    args.add(new Object[]{e.getValue(), e.getKey()});
+                }
+                tx.executeWithoutResult(status -> jdbc.batchUpdate(TOUCH, args));
+                flushed += chunk.size();
+                written.increment(chunk.size());
+            }
+        } catch (RuntimeException ex) {
+            for (Map.Entry<UUID, OffsetDateTime> e : entries.subList(flushed, entries.size())) {
+                pending.merge(e.getKey(), e.getValue(), SessionTouches::latest);
+            }
+            throw ex;
+        }
+        return flushed;
+    }
+
+    private static OffsetDateTime latest(OffsetDateTime a, OffsetDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,95 @@
+package dev.tagmind.orchestrator.persistence;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Storage for asynchronous tag jobs. Reads deliberately run outside read-only transactions so a poll right after
+ * completion is served by the primary, not a lagging replica.
+ */
+@Repository
+public class TagJobStore {
+
+    public static final String PENDING = "PENDING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    private static final RowMapper<TagJob> MAPPER = (rs, rowNum) -> new TagJob(
+            rs.getObject("id", UUID.class),
+            rs.getString("contact_id"),
+            rs.getString("tag"),
+            rs.getString("request_id"),
+            rs.getString("status"),
+            rs.getString("result"),
+            rs.getString("error"),
+            rs.getObject("created_at", OffsetDateTime.class),
+            rs.getObject("completed_at", OffsetDateTime.class)
+    );
+
+    private final JdbcTemplate jdbc;
+
+    public TagJobStore(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public TagJob create(String contactId, String tag, String requestId, Duration ttl) {
+        return jdbc.queryForObject(
+                """
+                insert into tag_jobs (contact_id, tag, request_id, status, expires_at)
+                values (?, ?, ?, 'PENDING', now() + ?::interval)
+                returning id, contact_id, tag, request_id, status, result, error, created_at, completed_at
+                """,
+                MAPPER,
+                contactId, tag, requestId, interval(ttl)
+        );
+    }
+
+    public void complete(UUID id, String status, String resultJson, String errorJson, Duration ttl) {
+        jdbc.update(
+                """
+                update tag_jobs
+                set status = ?, result = ?::jsonb, error = ?::jsonb, completed_at = now(), expires_at = now() + ?::interval
+                where id = ?
+                """,
+                status, resultJson, errorJson, interval(ttl), id
+        );
+    }
+
+    public Optional<TagJob> find(UUID id) {
+        return jdbc.query(
+                """
+                select id, contact_id, tag, request_id, status, result, error, created_at, completed_at
+                from tag_jobs
+                where id = ? and expires_at > now()
+                """,
+                MAPPER,
+                id
+        ).stream().findFirst();
+    }
+
+    public int deleteExpired() {
+        return jdbc.update("delete from tag_jobs where expires_at <= now()");
+    }
+
+    private static String interval(Duration ttl) {
+        return ttl.toMillis() + " milliseconds";
+    }
+
+    public record TagJob(
+            UUID id,
+            String contactId,
+            String tag,
+            String requestId,
+            String status,
+            String result,
+            String error,
+            OffsetDateTime createdAt,
+            OffsetDateTime completedAt
+    ) {}
+}
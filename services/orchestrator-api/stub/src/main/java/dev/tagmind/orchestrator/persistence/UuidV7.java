@@ -0,0 +1,27 @@
+package dev.tagmind.orchestrator.persistence;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RFC 9562 version 7 UUIDs: 48-bit Unix millisecond timestamp, 12 bits of sub-millisecond precision,
+ * then 62 random bits. Keys sort by creation time, so inserts land at the right edge of the primary-key index.
+ * Randomness comes from {@link ThreadLocalRandom}; these ids are identifiers, not secrets.
+ */
+public final class UuidV7 {
+
+    private UuidV7() {}
+
+    public static UUID next() {
+        return at(Instant.now());
+    }
+
+    public static UUID at(Instant instant) {
+        long millis = instant.toEpochMilli();
+        long subMillis = ((instant.getNano() % 1_000_000L) << 12) / 1_000_000L;
+        long msb = (millis << 16) | 0x7000L | subMillis;
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
@@ -0,0 +1,183 @@
+package dev.tagmind.orchestrator.tracing;
+
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * A timed pipeline stage. Spans nest through a thread-local current span: {@link #start} opens a child of the
+ * current span and makes it current until {@link #close}. Without a current span (warm-up, scheduled jobs) it
+ * returns a no-op span, so instrumented code needs no tracer reference and costs next to nothing untraced.
+ * <p>
+ * Work handed to another thread keeps its parent through {@link #wrap}.
+ */
+public final class Span implements AutoCloseable {
+
+    public enum Kind {
+        INTERNAL, SERVER, CLIENT
+    }
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+    private static final HexFormat HEX = HexFormat.of();
+    private static final Span NOOP = new Span(null, null, null, "noop", Kind.INTERNAL, null);
+
+    private final Trace trace;
+    private final String spanId;
+    private final String parentId;
+    private final Kind kind;
+    private final Span previous;
+    private final long startEpochNanos;
+    private final long startNanos;
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+    private String name;
+    private boolean error;
+    private boolean ended;
+
+    private Span(Trace trace, String spanId, String parentId, String name, Kind kind, Span previous) {
+        this.trace = trace;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.name = name;
+        this.kind = kind;
+        this.previous = previous;
+        Instant now = Instant.now();
+        this.startEpochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        this.startNanos = System.nanoTime();
+    }
+
+    public static Span start(String name) {
+        return start(name, Kind.INTERNAL);
+    }
+
+    /** A call to another service; its id goes out as the parent in {@link #traceparent()}. */
+    public static Span startClient(String name) {
+        return start(name, Kind.CLIENT);
+    }
+
+    private static Span start(String name, Kind kind) {
+        Span parent = CURRENT.get();
+        if (parent == null || parent == NOOP) {
+            return NOOP;
+        }
+        Span span = new Span(parent.trace, newSpanId(), parent.spanId, name, kind, parent);
+        CURRENT.set(span);
+        return span;
+    }
+
+    static Span root(Trace trace, String name, String remoteParentId) {
+        Span span = new Span(trace, newSpanId(), remoteParentId, name, Kind.SERVER, CURRENT.get());
+        CURRENT.set(span);
+        return span;
+    }
+
+    /** The {@code traceparent} header naming the current span, or null outside a trace. */
+    public static String traceparent() {
+        Span current = CURRENT.get();
+        if (current == null || current == NOOP) {
+            return null;
+        }
+        return new TraceParent(current.trace.traceId(), current.spanId, current.trace.sampled()).format();
+    }
+
+    /** Runs {@code task} with the caller's current span as parent, on whichever thread ends up running it. */
+    public static <T> Supplier<T> wrap(Supplier<T> task) {
+        Span captured = CURRENT.get();
+        if (captured == null) {
+            return task;
+        }
+        return () -> {
+            Span before = CURRENT.get();
+            CURRENT.set(captured);
+            try {
+                return task.get();
+            } finally {
+                restore(before);
+            }
+        };
+    }
+
+    public static Runnable wrap(Runnable task) {
+        Supplier<Void> wrapped = wrap(() -> {
+            task.run();
+            return null;
+        });
+        return wrapped::get;
+    }
+
+    public Span tag(String key, Object value) {
+        if (this != NOOP && value != null) {
+            attributes.put(key, value.toString());
+        }
+        return this;
+    }
+
+    public void error(Throwable ex) {
+        if (this != NOOP) {
+            error = true;
+            attributes.put("error.type", ex.getClass().getSimpleName());
+        }
+    }
+
+    void rename(String name) {
+        this.name = name;
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    @Override
+    public void close() {
+        if (this == NOOP || ended) {
+            return;
+        }
+        ended = true;
+        long duration = elapsedNanos();
+        if (CURRENT.get() == this) {
+            restore(previous);
+        }
+        trace.finished(new FinishedSpan(
+                trace.traceId(),
+                spanId,
+                parentId,
+                name,
+                kind,
+                startEpochNanos,
+                startEpochNanos + duration,
+                Map.copyOf(attributes),
+                error
+        ));
+    }
+
+    private static void restore(Span span) {
+        if (span == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(span);
+        }
+    }
+
+    static String newTraceId() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        return HEX.toHexDigits(rnd.nextLong()) + HEX.toHexDigits(rnd.nextLong() | 1);
+    }
+
+    private static String newSpanId() {
+        return HEX.toHexDigits(ThreadLocalRandom.current().nextLong() | 1);
+    }
+
+    public record FinishedSpan(
+            String traceId,
+            String spanId,
+            String parentId,
+            String name,
+            Kind kind,
+            long startEpochNanos,
+            long endEpochNanos,
+            Map<String, String> attributes,
+            boolean error
+    ) {}
+}
@@ -0,0 +1,197 @@
+package dev.tagmind.orchestrator.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ships finished spans of sampled traces off the request path. Spans go through a bounded queue (overflow is dropped
+ * and counted) to one background thread that writes them in batches to {@code exporter}: {@code file} appends one
+ * JSON object per line to {@code tagmind.tracing.file}, {@code otlp} POSTs OTLP/HTTP JSON to
+ * {@code tagmind.tracing.otlp.endpoint}, {@code none} discards them.
+ */
+@Component
+public class SpanExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(SpanExporter.class);
+    private static final int MAX_BATCH = 512;
+
+    private final String exporter;
+    private final Path file;
+    private final String otlpEndpoint;
+    private final String serviceName;
+    private final Duration flushInterval;
+    private final ObjectMapper mapper;
+    private final BlockingQueue<Span.FinishedSpan> queue;
+    private final RestTemplate otlp;
+    private final Counter exported;
+    private final Counter dropped;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public SpanExporter(
+            @Value("${tagmind.tracing.exporter:none}") String exporter,
+            @Value("${tagmind.tracing.file:/tmp/tagmind-spans.jsonl}") String file,
+            @Value("${tagmind.tracing.otlp.endpoint:http://localhost:4318/v1/traces}") String otlpEndpoint,
+            @Value("${spring.application.name:orchestrator-api}") String serviceName,
+            @Value("${tagmind.tracing.queue-size:2048}") int queueSize,
+            @Value("${tagmind.tracing.flush-interval:1s}") Duration flushInterval,
+            ObjectMapper mapper,
+            MeterRegistry registry
+    ) {
+        this.exporter = exporter.trim().toLowerCase();
+        if (!List.of("none", "file", "otlp").contains(this.exporter)) {
+            throw new IllegalArgumentException("tagmind.tracing.exporter must be none, file or otlp");
+        }
+        this.file = Path.of(file);
+        this.otlpEndpoint = otlpEndpoint;
+        this.serviceName = serviceName;
+        this.flushInterval = flushInterval;
+        this.mapper = mapper;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(Duration.ofSeconds(2));
+        factory.setReadTimeout(Duration.ofSeconds(5));
+        this.otlp = new RestTemplate(factory);
+        this.exported = Counter.builder("tagmind.tracing.spans").tag("outcome", "exported").register(registry);
+        this.dropped = Counter.builder("tagmind.tracing.spans").tag("outcome", "dropped").register(registry);
+        this.worker = this.exporter.equals("none")
+                ? null
+                : Thread.ofPlatform().daemon().name("span-exporter").start(this::drainLoop);
+    }
+
+    void export(Span.FinishedSpan span) {
+        if (worker == null) {
+            return;
+        }
+        if (!queue.offer(span)) {
+            dropped.increment();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(Duration.ofSeconds(5));
+        }
+    }
+
+    private void drainLoop() {
+        List<Span.FinishedSpan> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Span.FinishedSpan first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException ex) {
+                // Shutting down: flush what is queued, then stop.
+                running = false;
+            }
+            queue.drainTo(batch, MAX_BATCH - batch.size());
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Span.FinishedSpan> batch) {
+        try {
+            if (exporter.equals("file")) {
+                writeFile(batch);
+            } else {
+                writeOtlp(batch);
+            }
+            exported.increment(batch.size());
+        } catch (IOException | RestClientException ex) {
+            dropped.increment(batch.size());
+            log.warn("span export to {} failed: {}", exporter, ex.getMessage());
+        }
+    }
+
+    private void writeFile(List<Span.FinishedSpan> batch) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+            for (Span.FinishedSpan span : batch) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("traceId", span.traceId());
+                line.put("spanId", span.spanId());
+                line.put("parentId", span.parentId());
+                line.put("name", span.name());
+                line.put("kind", span.kind().name());
+                line.put("startEpochNanos", span.startEpochNanos());
+                line.put("durationMs", (span.endEpochNanos() - span.startEpochNanos()) / 1_000_000.0);
+                line.put("error", span.error());
+                line.put("attributes", span.attributes());
+                out.write(mapper.writeValueAsString(line));
+                out.newLine();
+            }
+        }
+    }
+
+    private void writeOtlp(List<Span.FinishedSpan> batch) throws JsonProcessingException {
+        List<Map<String, Object>> spans = new ArrayList<>(batch.size());
+        for (Span.FinishedSpan span : batch) {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("traceId", span.traceId());
+            s.put("spanId", span.spanId());
+            if (span.parentId() != null) {
+                s.put("parentSpanId", span.parentId());
+            }
+            s.put("name", span.name());
+            s.put("kind", span.kind().ordinal() + 1);
+            s.put("startTimeUnixNano", Long.toString(span.startEpochNanos()));
+            s.put("endTimeUnixNano", Long.toString(span.endEpochNanos()));
+            s.put("attributes", attributes(span.attributes()));
+            s.put("status", Map.of("code", span.error() ? 2 : 0));
+            spans.add(s);
+        }
+        Map<String, Object> body = Map.of("resourceSpans", List.of(Map.of(
+                "resource", Map.of("attributes", attributes(Map.of("service.name", serviceName))),
+                "scopeSpans", List.of(Map.of(
+                        "scope", Map.of("name", "dev.tagmind.orchestrator"),
+                        "spans", spans
+                ))
+        )));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        otlp.postForEntity(otlpEndpoint, new HttpEntity<>(mapper.writeValueAsString(body), headers), Void.class);
+    }
+
+    private static List<Map<String, Object>> attributes(Map<String, String> values) {
+        List<Map<String, Object>> attributes = new ArrayList<>(values.size());
+        values.forEach((key, value) -> attributes.add(Map.of("key", key, "value", Map.of("stringValue", value))));
+        return attributes;
+    }
+}
@@ -0,0 +1,56 @@
+package dev.tagmind.orchestrator.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * One request's trace. Every finished span adds its duration to a per-name total for {@code Server-Timing}; spans
+ * of sampled traces are also handed to the exporter. Spans may finish on several threads.
+ */
+final class Trace {
+
+    private final String traceId;
+    private final boolean sampled;
+    private final Consumer<Span.FinishedSpan> exporter;
+    private final Map<String, Long> totals = new LinkedHashMap<>();
+
+    Trace(String traceId, boolean sampled, Consumer<Span.FinishedSpan> exporter) {
+        this.traceId = traceId;
+        this.sampled = sampled;
+        this.exporter = exporter;
+    }
+
+    String traceId() {
+        return traceId;
+    }
+
+    boolean sampled() {
+        return sampled;
+    }
+
+    void finished(Span.FinishedSpan span) {
+        if (span.kind() != Span.Kind.SERVER) {
+            synchronized (totals) {
+                totals.merge(span.name(), span.endEpochNanos() - span.startEpochNanos(), Long::sum);
+            }
+        }
+        if (sampled) {
+            exporter.accept(span);
+        }
+    }
+
+    /** {@code Server-Timing} value: the stages finished so far, in order of first completion, then the total. */
+    String serverTiming(long totalNanos) {
+        StringBuilder sb = new StringBuilder();
+        synchronized (totals) {
+            totals.forEach((name, nanos) -> sb.append(name).append(";dur=").append(millis(nanos)).append(", "));
+        }
+        return sb.append("total;dur=").append(millis(totalNanos)).toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+}
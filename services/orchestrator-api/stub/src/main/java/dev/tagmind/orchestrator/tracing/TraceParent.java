@@ -0,0 +1,53 @@
+package dev.tagmind.orchestrator.tracing;
+
+import java.util.Optional;
+
+/** W3C {@code traceparent} header: {@code 00-<32 hex trace id>-<16 hex parent id>-<2 hex flags>}. */
+public record TraceParent(String traceId, String parentId, boolean sampled) {
+
+    public static final String HEADER = "traceparent";
+
+    private static final String INVALID_TRACE_ID = "0".repeat(32);
+    private static final String INVALID_PARENT_ID = "0".repeat(16);
+
+    /** Parses a header value; unknown future versions are read by their version-00 prefix, as the spec asks. */
+    public static Optional<TraceParent> parse(String header) {
+        if (header == null) {
+            return Optional.empty();
+        }
+        String value = header.trim();
+        if (value.length() < 55) {
+            return Optional.empty();
+        }
+        String version = value.substring(0, 2);
+        if (!isHex(version) || version.equals("ff") || (version.equals("00") && value.length() != 55)) {
+            return Optional.empty();
+        }
+        if (value.charAt(2) != '-' || value.charAt(35) != '-' || value.charAt(52) != '-'
+                || (value.length() > 55 && value.charAt(55) != '-')) {
+            return Optional.empty();
+        }
+        String traceId = value.substring(3, 35);
+        String parentId = value.substring(36, 52);
+        String flags = value.substring(53, 55);
+        if (!isHex(traceId) || !isHex(parentId) || !isHex(flags)
+                || traceId.equals(INVALID_TRACE_ID) || parentId.equals(INVALID_PARENT_ID)) {
+            return Optional.empty();
+        }
+        return Optional.of(new TraceParent(traceId, parentId, (Integer.parseInt(flags, 16) & 1) == 1));
+    }
+
+    public String format() {
+        return "00-" + traceId + "-" + parentId + (sampled ? "-01" : "-00");
+    }
+
+    private static boolean isHex(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,136 @@
+package dev.tagmind.orchestrator.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opens the root span of every API request. An incoming W3C {@code traceparent} is continued, including its sampling
+ * decision; otherwise the request is sampled with probability {@code sample-ratio}. Sampled traces are exported,
+ * and every request, sampled or not, gets a {@code Server-Timing} header with per-stage durations up to the moment
+ * the response is committed.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+    private final double sampleRatio;
+    private final boolean serverTiming;
+    private final SpanExporter exporter;
+
+    public TracingFilter(
+            @Value("${tagmind.tracing.enabled:true}") boolean enabled,
+            @Value("${tagmind.tracing.sample-ratio:0.01}") double sampleRatio,
+            @Value("${tagmind.tracing.server-timing:true}") boolean serverTiming,
+            SpanExporter exporter
+    ) {
+        this.enabled = enabled;
+        this.sampleRatio = sampleRatio;
+        this.serverTiming = serverTiming;
+        this.exporter = exporter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !enabled || path.startsWith("/actuator") || path.equals("/healthz");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Optional<TraceParent> parent = TraceParent.parse(request.getHeader(TraceParent.HEADER));
+        boolean sampled = parent.map(TraceParent::sampled)
+                .orElseGet(() -> sampleRatio > 0 && ThreadLocalRandom.current().nextDouble() < sampleRatio);
+        Trace trace = new Trace(parent.map(TraceParent::traceId).orElseGet(Span::newTraceId), sampled, exporter::export);
+
+        Span root = Span.root(trace, request.getMethod() + " " + request.getRequestURI(), parent.map(TraceParent::parentId).orElse(null));
+        root.tag("http.method", request.getMethod());
+        String requestId = request.getHeader("X-Request-Id");
+        TimingResponse timed = new TimingResponse(response, trace, root);
+        try {
+            chain.doFilter(request, timed);
+        } catch (IOException | ServletException | RuntimeException ex) {
+            root.error(ex);
+            throw ex;
+        } finally {
+            timed.addServerTiming();
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (route != null) {
+                root.rename(request.getMethod() + " " + route);
+                root.tag("http.route", route);
+            }
+            root.tag("http.status_code", response.getStatus());
+            root.tag("tagmind.request_id", Optional.ofNullable(response.getHeader("X-Request-Id")).orElse(requestId));
+            if (response.getStatus() >= 500) {
+                root.tag("error.type", Integer.toString(response.getStatus()));
+            }
+            root.close();
+        }
+    }
+
+    // Adds Server-Timing right before the first body byte or flush, the last moment headers can still change.
+    private final class TimingResponse extends HttpServletResponseWrapper {
+        private final Trace trace;
+        private final Span root;
+        private boolean added;
+
+        TimingResponse(HttpServletResponse response, Trace trace, Span root) {
+            super(response);
+            this.trace = trace;
+            this.root = root;
+        }
+
+        private void addServerTiming() {
+            if (!added && serverTiming && !isCommitted()) {
+                added = true;
+                addHeader("Server-Timing", trace.serverTiming(root.elapsedNanos()));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+    }
+}
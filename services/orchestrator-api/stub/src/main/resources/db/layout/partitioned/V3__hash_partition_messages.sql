@@ -0,0 +1,41 @@
+-- Opt-in layout (ORCHESTRATOR_DB_LAYOUT=partitioned): conversation_messages is hash-partitioned by session_id.
+-- A session is exactly one contact, so every history lookup (session_id = ?) touches a single partition, and
+-- vacuum and index maintenance work on partitions of 1/N of the table.
+-- conversation_sessions stays a plain table: it holds one row per contact and is looked up by both contact_id and id,
+-- so partitioning it by contact would make every by-id lookup fan out to all partitions.
+
+ALTER TABLE conversation_messages RENAME TO conversation_messages_flat;
+ALTER TABLE conversation_messages_flat RENAME CONSTRAINT conversation_messages_pkey TO conversation_messages_flat_pkey;
+ALTER INDEX idx_conversation_messages_session_id_created_at RENAME TO idx_conversation_messages_flat_session_id_created_at;
+
+CREATE TABLE conversation_messages (
+  id uuid NOT NULL DEFAULT uuid_v7(),
+  session_id uuid NOT NULL REFERENCES conversation_sessions(id) ON DELETE CASCADE,
+  direction text NOT NULL,
+  message_text text NOT NULL,
+  created_at timestamptz NOT NULL DEFAULT now(),
+  request_id text NULL,
+  CONSTRAINT conversation_messages_pkey PRIMARY KEY (session_id, id)
+) PARTITION BY HASH (session_id);
+
+DO $$
+DECLARE
+  partitions int := ${message_partitions};
+BEGIN
+  FOR i IN 0..partitions - 1 LOOP
+    EXECUTE format(
+      'CREATE TABLE conversation_messages_p%s PARTITION OF conversation_messages FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+      lpad(i::text, 3, '0'), partitions, i
+    );
+  END LOOP;
+END
+$$;
+
+CREATE INDEX idx_conversation_messages_session_id_created_at
+  ON conversation_messages (session_id, created_at);
+
+INSERT INTO conversation_messages (id, session_id, direction, message_text, created_at, request_id)
+SELECT id, session_id, direction, message_text, created_at, request_id
+FROM conversation_messages_flat;
+
+DROP TABLE conversation_messages_flat;
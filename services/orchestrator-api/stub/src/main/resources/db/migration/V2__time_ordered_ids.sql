@@ -0,0 +1,25 @@
+-- UUIDv7 helpers: 48-bit millisecond timestamp prefix over a v4 random body with the version nibble set to 7.
+CREATE OR REPLACE FUNCTION uuid_v7_at(ts timestamptz) RETURNS uuid
+LANGUAGE sql VOLATILE AS $$
+  SELECT encode(
+    set_bit(
+      set_bit(
+        overlay(uuid_send(gen_random_uuid())
+                PLACING substring(int8send(floor(extract(epoch FROM ts) * 1000)::bigint) FROM 3)
+                FROM 1 FOR 6),
+        52, 1),
+      53, 1),
+    'hex')::uuid
+$$;
+
+CREATE OR REPLACE FUNCTION uuid_v7() RETURNS uuid
+LANGUAGE sql VOLATILE AS $$
+  SELECT uuid_v7_at(clock_timestamp())
+$$;
+
+ALTER TABLE conversation_sessions ALTER COLUMN id SET DEFAULT uuid_v7();
+ALTER TABLE conversation_messages ALTER COLUMN id SET DEFAULT uuid_v7();
+
+-- Existing ids keep their values: re-keying a large table here would rewrite every row under an exclusive lock.
+-- New rows are time-ordered either way; scripts/rekey-message-ids.sh re-keys old messages in small batches, online,
+-- for anyone who wants the whole primary key in insertion order. Session ids are returned to clients and never change.
@@ -0,0 +1,19 @@
+-- Full-text search over message_text. Russian and English stems are both indexed so mixed-language chats match
+-- either way. btree_gin lets session_id live in the same GIN index, so a per-contact search is one index scan.
+--
+-- Maintenance window required on an existing database: adding a STORED generated column rewrites all of
+-- conversation_messages under an ACCESS EXCLUSIVE lock, and the GIN index is then built in the same transaction,
+-- so reads and writes of messages stall until the migration commits (minutes on a table of tens of millions of rows).
+-- Splitting out a CREATE INDEX CONCURRENTLY would not avoid the rewrite, and is not possible on the partitioned layout,
+-- whose conversation_messages is a partitioned table. Deploy it with the orchestrator scaled down to the one replica
+-- that runs the migration on startup, and expect message traffic to fail until it has finished.
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+ALTER TABLE conversation_messages
+  ADD COLUMN IF NOT EXISTS message_tsv tsvector
+  GENERATED ALWAYS AS (
+    to_tsvector('russian'::regconfig, message_text) || to_tsvector('english'::regconfig, message_text)
+  ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_conversation_messages_session_id_tsv
+  ON conversation_messages USING gin (session_id, message_tsv);
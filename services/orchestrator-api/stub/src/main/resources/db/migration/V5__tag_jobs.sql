@@ -0,0 +1,16 @@
+-- Asynchronous /v1/conversations/tag jobs. Rows live until expires_at and are purged by the orchestrator;
+-- result and error hold the same JSON the synchronous endpoint would have returned.
+CREATE TABLE IF NOT EXISTS tag_jobs (
+  id uuid PRIMARY KEY DEFAULT uuid_v7(),
+  contact_id text NOT NULL,
+  tag text NOT NULL,
+  request_id text NOT NULL,
+  status text NOT NULL,
+  result jsonb NULL,
+  error jsonb NULL,
+  created_at timestamptz NOT NULL DEFAULT now(),
+  completed_at timestamptz NULL,
+  expires_at timestamptz NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_tag_jobs_expires_at ON tag_jobs (expires_at);
@@ -0,0 +1,18 @@
+-- Cold tier for conversation_messages. MessageArchiver moves messages past tagmind.archive.older-than (keeping the
+-- newest keep-latest per session hot) into per-session chunks: one row per chunk of consecutive messages, payload
+-- gzip-compressed by the application. History reads continue into this table when the hot rows run out.
+CREATE TABLE IF NOT EXISTS conversation_message_archive (
+  id uuid PRIMARY KEY DEFAULT uuid_v7(),
+  session_id uuid NOT NULL REFERENCES conversation_sessions(id) ON DELETE CASCADE,
+  first_created_at timestamptz NOT NULL,
+  last_created_at timestamptz NOT NULL,
+  message_count int NOT NULL,
+  payload bytea NOT NULL,
+  archived_at timestamptz NOT NULL DEFAULT now()
+);
+
+-- Payloads are already compressed; TOAST should store them out of line without trying again.
+ALTER TABLE conversation_message_archive ALTER COLUMN payload SET STORAGE EXTERNAL;
+
+CREATE INDEX IF NOT EXISTS idx_conversation_message_archive_session_id_last_created_at
+  ON conversation_message_archive (session_id, last_created_at);
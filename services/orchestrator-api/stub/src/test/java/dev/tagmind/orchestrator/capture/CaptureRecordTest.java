@@ -0,0 +1,57 @@
+package dev.tagmind.orchestrator.capture;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptureRecordTest {
+
+    @Test
+    void format_roundTripsAndKeepsClientTokensOnOneLine() {
+        CaptureRecord record = new CaptureRecord(1_700_000_000_123L, "tag", "a1b2c3d4e5f60718", null, "weird\ttag\nname",
+                3, 120, 0, true, 200, 842);
+
+        String line = record.format();
+        CaptureRecord parsed = CaptureRecord.parse(line).orElseThrow();
+
+        assertEquals(11, line.split("\t", -1).length);
+        assertEquals("weird_tag_name", parsed.tag());
+        assertEquals(new CaptureRecord(1_700_000_000_123L, "tag", "a1b2c3d4e5f60718", null, "weird_tag_name",
+                3, 120, 0, true, 200, 842), parsed);
+    }
+
+    @Test
+    void parse_skipsHeaderAndMalformedLines() {
+        assertTrue(CaptureRecord.parse(CaptureRecord.HEADER).isEmpty());
+        assertTrue(CaptureRecord.parse("").isEmpty());
+        assertTrue(CaptureRecord.parse("1\tmessage\t-").isEmpty());
+        assertTrue(CaptureRecord.parse("x\tmessage\t-\t-\t-\t-\t1\t0\t0\t200\t5").isEmpty());
+    }
+
+    @Test
+    void schedule_dividesGapsBySpeedAndCapsIdleTime() {
+        List<CaptureRecord> records = List.of(at(1_000), at(1_400), at(1_300), at(601_300));
+
+        long[] offsets = TrafficReplay.schedule(records, 2.0, Duration.ofSeconds(10));
+
+        assertArrayEquals(new long[]{0, 200_000_000L, 200_000_000L, 5_200_000_000L}, offsets);
+    }
+
+    @Test
+    void filler_hasExactNonBlankLength() {
+        assertEquals("", TrafficReplay.filler(0));
+        assertEquals("x", TrafficReplay.filler(1));
+        String text = TrafficReplay.filler(300);
+        assertEquals(300, text.length());
+        assertEquals(300, text.trim().length());
+    }
+
+    private static CaptureRecord at(long epochMillis) {
+        return new CaptureRecord(epochMillis, "message", "c", null, null, null, 10, 0, false, 200, 5);
+    }
+}
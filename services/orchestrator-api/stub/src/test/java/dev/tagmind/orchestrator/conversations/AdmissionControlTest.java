@@ -0,0 +1,109 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTest {
+
+    final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void enter_shedsNormalWorkAtLimitButAdmitsCritical() {
+        AdmissionControl admission = admission(2, 0);
+
+        assertTrue(admission.enter(AdmissionControl.Priority.NORMAL).admitted());
+        assertTrue(admission.enter(AdmissionControl.Priority.NORMAL).admitted());
+        AdmissionControl.Ticket shed = admission.enter(AdmissionControl.Priority.NORMAL);
+
+        assertFalse(shed.admitted());
+        assertTrue(shed.retryAfter().compareTo(Duration.ofSeconds(1)) >= 0);
+        assertTrue(admission.enter(AdmissionControl.Priority.CRITICAL).admitted());
+    }
+
+    @Test
+    void release_limitGrowsWhileLatencyIsStableAndShrinksWhenItRises() {
+        AdmissionControl admission = admission(10, 0);
+
+        runRounds(admission, 20, Duration.ofMillis(100));
+        int grown = admission.limit();
+        runRounds(admission, 20, Duration.ofMillis(1000));
+        int shrunk = admission.limit();
+
+        assertTrue(grown > 10, "limit after stable latency: " + grown);
+        assertTrue(shrunk < grown, "limit after latency rise: " + shrunk + " vs " + grown);
+    }
+
+    @Test
+    void release_droppedRequestBacksOff() {
+        AdmissionControl admission = admission(20, 0);
+
+        AdmissionControl.Ticket ticket = admission.enter(AdmissionControl.Priority.NORMAL);
+        ticket.dropped();
+        ticket.release();
+
+        assertEquals(18, admission.limit());
+    }
+
+    @Test
+    void enter_interruptedWaiterDoesNotKeepASlot() throws Exception {
+        AdmissionControl admission = new AdmissionControl(
+                new AdmissionControl.Properties(true, 1, 1, 100, 5, Duration.ofSeconds(30), 1.5, 0.2, 0.9),
+                new SimpleMeterRegistry(),
+                clock::get
+        );
+        AdmissionControl.Ticket holder = admission.enter(AdmissionControl.Priority.NORMAL);
+        Thread waiter = Thread.ofPlatform().start(() -> {
+            try {
+                admission.enter(AdmissionControl.Priority.NORMAL);
+            } catch (IllegalStateException expected) {
+                // Interrupted while queued.
+            }
+        });
+        while (waiter.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(5);
+        }
+        waiter.interrupt();
+        waiter.join(5_000);
+
+        holder.release();
+
+        assertTrue(admission.enter(AdmissionControl.Priority.NORMAL).admitted());
+    }
+
+    @Test
+    void retryAfterSeconds_roundsUpToWholeSecondsAndNeverZero() {
+        assertEquals("1", AdmissionControl.retryAfterSeconds(Duration.ZERO));
+        assertEquals("1", AdmissionControl.retryAfterSeconds(Duration.ofMillis(200)));
+        assertEquals("2", AdmissionControl.retryAfterSeconds(Duration.ofMillis(1001)));
+        assertEquals("30", AdmissionControl.retryAfterSeconds(Duration.ofSeconds(30)));
+    }
+
+    private void runRounds(AdmissionControl admission, int rounds, Duration latency) {
+        for (int round = 0; round < rounds; round++) {
+            List<AdmissionControl.Ticket> tickets = new ArrayList<>();
+            AdmissionControl.Ticket ticket;
+            while ((ticket = admission.enter(AdmissionControl.Priority.NORMAL)).admitted()) {
+                tickets.add(ticket);
+            }
+            clock.addAndGet(latency.toNanos());
+            tickets.forEach(AdmissionControl.Ticket::release);
+        }
+    }
+
+    private AdmissionControl admission(int initialLimit, int maxQueue) {
+        return new AdmissionControl(
+                new AdmissionControl.Properties(true, initialLimit, 1, 100, maxQueue, Duration.ZERO, 1.5, 0.2, 0.9),
+                new SimpleMeterRegistry(),
+                clock::get
+        );
+    }
+}
@@ -0,0 +1,83 @@
+package dev.tagmind.orchestrator.conversations;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@Testcontainers
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "tagmind.mailbox.mode=advisory",
+        "tagmind.mailbox.max-locked=2",
+        "spring.datasource.hikari.maximum-pool-size=3",
+        "spring.datasource.hikari.connection-timeout=2000",
+        "tagmind.warmup.enabled=false"
+})
+class ContactMailboxAdvisoryIT {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tagmind")
+            .withUsername("tagmind")
+            .withPassword("tagmind");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    ContactMailbox mailbox;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void advisory_moreContactsThanPoolConnections_allComplete() throws Exception {
+        List<Future<Boolean>> results = new ArrayList<>();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 12; i++) {
+                String contactId = "tg:advisory-" + i;
+                results.add(callers.submit(() -> mailbox.run(contactId, () -> {
+                    // Another session cannot take the lock while the task holds it.
+                    Boolean free = jdbc.queryForObject(
+                            "select pg_try_advisory_lock(hashtextextended(?, 0))", Boolean.class, contactId);
+                    sleep(200);
+                    return free;
+                })));
+            }
+            for (Future<Boolean> result : results) {
+                assertFalse(result.get(30, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(0, jdbc.queryForObject("select count(*) from pg_locks where locktype = 'advisory'", Integer.class));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
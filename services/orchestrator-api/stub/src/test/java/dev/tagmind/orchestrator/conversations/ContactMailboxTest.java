@@ -0,0 +1,94 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContactMailboxTest {
+
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final ContactMailbox mailbox = new ContactMailbox("local", Duration.ofSeconds(1), 1, null, registry);
+    final ExecutorService callers = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        mailbox.shutdown();
+    }
+
+    @Test
+    void run_serializesSameContact() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int n = i;
+            results.add(callers.submit(() -> mailbox.run("tg:same", () -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                sleep(2);
+                inFlight.decrementAndGet();
+                return n;
+            })));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, maxInFlight.get());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (registry.get("tagmind.mailbox.active").gauge().value() > 0 && System.nanoTime() < deadline) {
+            sleep(1);
+        }
+        assertEquals(0.0, registry.get("tagmind.mailbox.active").gauge().value());
+    }
+
+    @Test
+    void run_differentContactsRunInParallel() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Future<Boolean> a = callers.submit(() -> mailbox.run("tg:a", () -> await(bothStarted)));
+        Future<Boolean> b = callers.submit(() -> mailbox.run("tg:b", () -> await(bothStarted)));
+
+        assertTrue(a.get(5, TimeUnit.SECONDS));
+        assertTrue(b.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void run_propagatesRuntimeExceptionsAndKeepsMailboxUsable() {
+        assertThrows(IllegalStateException.class, () -> mailbox.run("tg:err", () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals("ok", mailbox.run("tg:err", () -> "ok"));
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package dev.tagmind.orchestrator.conversations;
+
+import com.jayway.jsonpath.JsonPath;
+import dev.tagmind.orchestrator.persistence.MessageArchiver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Testcontainers
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "tagmind.archive.enabled=false",
+        "tagmind.archive.older-than=7d",
+        "tagmind.archive.keep-latest=3",
+        "tagmind.archive.chunk-size=4",
+        "tagmind.warmup.enabled=false"
+})
+@AutoConfigureMockMvc
+class ConversationsExportIT {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tagmind")
+            .withUsername("tagmind")
+            .withPassword("tagmind");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    ConversationCaches caches;
+
+    @Autowired
+    MessageArchiver archiver;
+
+    UUID session;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from conversation_sessions where contact_id = 'tg:export'");
+        session = jdbc.queryForObject(
+                "insert into conversation_sessions (contact_id, mode) values ('tg:export', 'SUGGEST') returning id",
+                UUID.class
+        );
+        // m0..m9 are 30..21 days old, m10 and m11 are fresh.
+        for (int i = 0; i < 10; i++) {
+            insertMessage("m" + i, (30 - i) + " days");
+        }
+        insertMessage("m10", "1 hour");
+        insertMessage("m11", "1 minute");
+        // Seeded behind the application's back: drop sessions cached by earlier tests.
+        caches.purge();
+    }
+
+    @Test
+    void export_streamsWholeHistoryAcrossArchiveInChatOrder() throws Exception {
+        archiver.archive();
+
+        String body = mvc.perform(get("/v1/conversations/export").param("contactId", "tg:export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<String> texts = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            texts.add(JsonPath.read(line, "$.text"));
+            assertEquals("IN", JsonPath.read(line, "$.direction"));
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i <= 11; i++) {
+            expected.add("m" + i);
+        }
+        assertEquals(expected, texts);
+        assertEquals('\n', body.charAt(body.length() - 1));
+    }
+
+    @Test
+    void export_rejectsMissingAndUnknownContact() throws Exception {
+        mvc.perform(get("/v1/conversations/export"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("contactId is required"));
+        mvc.perform(get("/v1/conversations/export").param("contactId", "tg:nobody"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("NOT_FOUND"));
+    }
+
+    private void insertMessage(String text, String age) {
+        jdbc.update(
+                "insert into conversation_messages (session_id, direction, message_text, created_at) values (?, 'IN', ?, now() - ?::interval)",
+                session, text, age
+        );
+    }
+}
@@ -2,7 +2,9 @@ package dev.tagmind.orchestrator.conversations;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +13,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.testcontainers.containers.PostgreSQLContainer;
@@ -20,8 +23,19 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -40,6 +54,7 @@ class ConversationsMessageIT {
             .withPassword("tagmind");
 
     static final HttpServer llmStub = startLlmStub();
+    static final List<String> llmRequests = new CopyOnWriteArrayList<>();
 
     @DynamicPropertySource
     static void props(DynamicPropertyRegistry registry) {
@@ -145,6 +160,79 @@ class ConversationsMessageIT {
         }
     }
 
+    @Test
+    void message_afterSessionDeletedBehindTheCache_createsAFreshSession() throws Exception {
+        String request = """
+                {"contactId":"tg:deleted","message":"hello"}
+                """;
+        String first = mvc.perform(post("/v1/conversations/message").contentType("application/json").content(request))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        // The session is now cached; delete it the way a manual cleanup would.
+        jdbc.update("delete from conversation_sessions where contact_id = 'tg:deleted'");
+
+        String second = mvc.perform(post("/v1/conversations/message").contentType("application/json").content(request))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.decision").value("SUGGEST"))
+                .andReturn().getResponse().getContentAsString();
+
+        String sessionId = JsonPath.read(second, "$.sessionId");
+        assertNotEquals(JsonPath.read(first, "$.sessionId"), sessionId);
+        assertEquals(sessionId, jdbc.queryForObject(
+                "select id::text from conversation_sessions where contact_id = 'tg:deleted'", String.class));
+        assertEquals(2, jdbc.queryForObject(
+                "select count(*) from conversation_messages where session_id = ?::uuid", Integer.class, sessionId));
+    }
+
+    @Nested
+    @TestPropertySource(properties = {
+            "tagmind.suggest.debounce.enabled=true",
+            "tagmind.suggest.debounce.window=500ms"
+    })
+    class Debounced {
+
+        @Autowired
+        MockMvc mvc;
+
+        @Autowired
+        JdbcTemplate jdbc;
+
+        @Test
+        void message_burst_suggestsOnceOverAllMessages_andSupersedesTheRest() throws Exception {
+            List<Future<String>> responses = new ArrayList<>();
+            try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (String text : List.of("one", "two", "three")) {
+                    responses.add(callers.submit(() -> mvc.perform(post("/v1/conversations/message")
+                                    .contentType("application/json")
+                                    .content("{\"contactId\":\"tg:burst\",\"message\":\"" + text + "\"}"))
+                            .andExpect(status().isOk())
+                            .andReturn().getResponse().getContentAsString()));
+                    Thread.sleep(100);
+                }
+                for (int i = 0; i < 2; i++) {
+                    String body = responses.get(i).get(10, TimeUnit.SECONDS);
+                    assertEquals("SUPERSEDED", JsonPath.read(body, "$.decision"));
+                    assertEquals(false, JsonPath.read(body, "$.used.llmCalled"));
+                }
+                String last = responses.get(2).get(10, TimeUnit.SECONDS);
+                assertEquals("SUGGEST", JsonPath.read(last, "$.decision"));
+                assertEquals("stubbed reply", JsonPath.read(last, "$.suggestedReply"));
+            }
+
+            assertTrue(llmRequests.stream().anyMatch(request -> request.contains("one\\ntwo\\nthree")));
+            assertEquals(3, jdbc.queryForObject(
+                    "select count(*) from conversation_messages m join conversation_sessions s on s.id = m.session_id"
+                            + " where s.contact_id = 'tg:burst' and m.direction = 'IN'",
+                    Integer.class
+            ));
+            assertEquals(1, jdbc.queryForObject(
+                    "select count(*) from conversation_messages m join conversation_sessions s on s.id = m.session_id"
+                            + " where s.contact_id = 'tg:burst' and m.direction = 'OUT'",
+                    Integer.class
+            ));
+        }
+    }
+
     private static HttpServer startLlmStub() {
         try {
             HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
@@ -161,6 +249,7 @@ class ConversationsMessageIT {
             exchange.sendResponseHeaders(405, -1);
             return;
         }
+        llmRequests.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
         String requestId = exchange.getRequestHeaders().getFirst("X-Request-Id");
         if (requestId == null || requestId.isBlank()) requestId = "req_test_stub";
 
@@ -0,0 +1,139 @@
+package dev.tagmind.orchestrator.conversations;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.everyItem;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Testcontainers
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConversationsSearchIT {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tagmind")
+            .withUsername("tagmind")
+            .withPassword("tagmind");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    ConversationCaches caches;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from conversation_sessions where contact_id in ('tg:search', 'tg:other')");
+        UUID session = insertSession("tg:search");
+        insertMessage(session, "IN", "Летом едем в отпуск на море");
+        insertMessage(session, "OUT", "Отличный план для отпуска!");
+        insertMessage(session, "IN", "Booked the vacation flights today");
+        insertMessage(session, "IN", "Купить хлеб");
+        insertMessage(insertSession("tg:other"), "IN", "Мой отпуск уже закончился");
+        // Seeded behind the application's back: drop sessions cached by earlier tests.
+        caches.purge();
+    }
+
+    @Test
+    void search_matchesRussianWordFormsWithinContact() throws Exception {
+        mvc.perform(get("/v1/conversations/search").param("contactId", "tg:search").param("q", "отпуск"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contactId").value("tg:search"))
+                .andExpect(jsonPath("$.hits.length()").value(2))
+                .andExpect(jsonPath("$.hits[*].text").value(everyItem(containsString("тпуск"))))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void search_matchesEnglishStems() throws Exception {
+        mvc.perform(get("/v1/conversations/search").param("contactId", "tg:search").param("q", "flight"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits.length()").value(1))
+                .andExpect(jsonPath("$.hits[0].text").value("Booked the vacation flights today"));
+    }
+
+    @Test
+    void search_pagesWithCursor() throws Exception {
+        String first = mvc.perform(get("/v1/conversations/search")
+                        .param("contactId", "tg:search").param("q", "отпуск").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(first, "$.nextCursor");
+        String firstId = JsonPath.read(first, "$.hits[0].messageId");
+
+        String second = mvc.perform(get("/v1/conversations/search")
+                        .param("contactId", "tg:search").param("q", "отпуск").param("limit", "1").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+
+        assertNotEquals(firstId, JsonPath.read(second, "$.hits[0].messageId"));
+    }
+
+    @Test
+    void search_unknownContactReturnsNoHits() throws Exception {
+        mvc.perform(get("/v1/conversations/search").param("contactId", "tg:nobody").param("q", "отпуск"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits.length()").value(0));
+    }
+
+    @Test
+    void search_rejectsBadInput() throws Exception {
+        mvc.perform(get("/v1/conversations/search").param("contactId", "tg:search"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("q is required"));
+        mvc.perform(get("/v1/conversations/search").param("contactId", "tg:search").param("q", "x").param("cursor", "%%%"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("cursor is invalid"));
+    }
+
+    private UUID insertSession(String contactId) {
+        return jdbc.queryForObject(
+                "insert into conversation_sessions (contact_id, mode) values (?, 'SUGGEST') returning id",
+                UUID.class,
+                contactId
+        );
+    }
+
+    private void insertMessage(UUID sessionId, String direction, String text) {
+        jdbc.update(
+                "insert into conversation_messages (session_id, direction, message_text) values (?, ?, ?)",
+                sessionId, direction, text
+        );
+    }
+}
@@ -1,5 +1,6 @@
 package dev.tagmind.orchestrator.conversations;
 
+import com.jayway.jsonpath.JsonPath;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import dev.tagmind.orchestrator.persistence.ConversationMessageEntity;
@@ -30,7 +31,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -113,6 +116,36 @@ class ConversationsTagIT {
                 .andExpect(jsonPath("$.tag").value("help"));
     }
 
+    @Test
+    void tag_async_acceptsThenCompletesForPolling() throws Exception {
+        String accepted = mvc.perform(post("/v1/conversations/tag")
+                        .contentType("application/json")
+                        .content("""
+                                {"contactId":"tg:async","tag":"help","payload":"ping","async":true}
+                                """))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn().getResponse().getContentAsString();
+        String jobId = JsonPath.read(accepted, "$.jobId");
+
+        String status = "PENDING";
+        for (int i = 0; i < 100 && status.equals("PENDING"); i++) {
+            Thread.sleep(50);
+            String body = mvc.perform(get("/v1/conversations/tag/jobs/" + jobId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            status = JsonPath.read(body, "$.status");
+        }
+
+        mvc.perform(get("/v1/conversations/tag/jobs/" + jobId))
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.result.decision").value("RESPOND"))
+                .andExpect(jsonPath("$.result.replyText").value("tag-response"));
+        mvc.perform(get("/v1/conversations/tag/jobs/" + UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void tag_recap_fetchesHistoryChronologically() throws Exception {
         ConversationSessionEntity session = new ConversationSessionEntity();
@@ -128,7 +161,7 @@ class ConversationsTagIT {
         mvc.perform(post("/v1/conversations/tag")
                         .contentType("application/json")
                         .content("""
-                                {"contactId":"tg:history","tag":"recap","count":3,"text":"@tagmind recap[3]:"}
+                                {"contactId":"tg:history","tag":"recap","count":3,"text":"@tagmind recap[3]:","debug":"full"}
                                 """))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.used.historyLimit").value(3))
@@ -138,6 +171,38 @@ class ConversationsTagIT {
                 .andExpect(jsonPath("$.replyText").value("tag-response"));
     }
 
+    @Test
+    void tag_recap_historyExcludesTheTagCommandItself() throws Exception {
+        ConversationSessionEntity session = new ConversationSessionEntity();
+        session.setContactId("tg:history_self");
+        session.setMode(ConversationMode.SUGGEST);
+        session = sessions.save(session);
+
+        storeMessage(session, MessageDirection.IN, "msg1");
+        storeMessage(session, MessageDirection.OUT, "msg2");
+
+        // The command is stored together with its reply, after the pipeline,
+        // so it is not the newest entry of its own history.
+        mvc.perform(post("/v1/conversations/tag")
+                        .contentType("application/json")
+                        .content("""
+                                {"contactId":"tg:history_self","tag":"recap","count":5,"text":"@tagmind recap[5]:","debug":"full"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.used.historyLimit").value(5))
+                .andExpect(jsonPath("$.used.historyUsed").value(2))
+                .andExpect(jsonPath("$.used.history[1].text").value("msg2"));
+
+        List<String> texts = jdbc.queryForList(
+                "select message_text from conversation_messages where session_id=? order by created_at asc",
+                String.class,
+                session.getId()
+        );
+        if (!List.of("msg1", "msg2", "@tagmind recap[5]:", "tag-response").equals(texts)) {
+            throw new AssertionError("unexpected messages: " + texts);
+        }
+    }
+
     @Test
     void tag_web_usesRetriever() throws Exception {
         mvc.perform(post("/v1/conversations/tag")
@@ -148,9 +213,21 @@ class ConversationsTagIT {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.used.retrieverUsed").value(true))
                 .andExpect(jsonPath("$.used.citationsCount").value(2))
+                .andExpect(jsonPath("$.used.citations").doesNotExist())
                 .andExpect(jsonPath("$.replyText").value("tag-response"));
     }
 
+    @Test
+    void tag_rejectsUnknownDebugLevel() throws Exception {
+        mvc.perform(post("/v1/conversations/tag")
+                        .contentType("application/json")
+                        .content("""
+                                {"contactId":"tg:test","tag":"help","debug":"verbose"}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("debug must be none, summary or full"));
+    }
+
     @Test
     void tag_off_blocksResponse() throws Exception {
         mvc.perform(post("/v1/conversations/upsert")
@@ -0,0 +1,63 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LocalCacheTest {
+
+    @Test
+    void get_servesCachedValueUntilInvalidated() {
+        LocalCache<String> cache = new LocalCache<>("test", 10, () -> true, new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v1", cache.get("k", v -> true, () -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", cache.get("k", v -> true, () -> "v" + loads.incrementAndGet()));
+        cache.invalidate("k");
+        assertEquals("v2", cache.get("k", v -> true, () -> "v" + loads.incrementAndGet()));
+        cache.invalidateAll();
+        assertEquals("v3", cache.get("k", v -> true, () -> "v" + loads.incrementAndGet()));
+    }
+
+    @Test
+    void get_dropsValueLoadedWhileKeyWasInvalidated() {
+        LocalCache<String> cache = new LocalCache<>("test", 10, () -> true, new SimpleMeterRegistry());
+
+        String stale = cache.get("k", v -> true, () -> {
+            cache.invalidate("k");
+            return "stale";
+        });
+
+        assertEquals("stale", stale);
+        assertEquals("fresh", cache.get("k", v -> true, () -> "fresh"));
+    }
+
+    @Test
+    void get_bypassesCacheWhileNotLive() {
+        AtomicBoolean live = new AtomicBoolean(false);
+        LocalCache<String> cache = new LocalCache<>("test", 10, live::get, new SimpleMeterRegistry());
+
+        cache.get("k", v -> true, () -> "old");
+        live.set(true);
+
+        assertEquals("new", cache.get("k", v -> true, () -> "new"));
+        assertEquals("new", cache.get("k", v -> true, () -> "newer"));
+    }
+
+    @Test
+    void peek_neverLoads() {
+        AtomicBoolean live = new AtomicBoolean(true);
+        LocalCache<String> cache = new LocalCache<>("test", 10, live::get, new SimpleMeterRegistry());
+
+        assertNull(cache.peek("k"));
+        cache.get("k", v -> true, () -> "v");
+        assertEquals("v", cache.peek("k"));
+        live.set(false);
+        assertNull(cache.peek("k"));
+    }
+}
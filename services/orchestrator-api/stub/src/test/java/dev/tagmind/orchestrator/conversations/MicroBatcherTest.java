@@ -0,0 +1,102 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MicroBatcherTest {
+
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+    MicroBatcher<Integer, String> batcher;
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
+    @Test
+    void submit_loneRequestIsSentWithoutWaiting() throws Exception {
+        batcher = new MicroBatcher<>("test", 8, Duration.ofSeconds(5), this::echo, registry);
+
+        long start = System.nanoTime();
+        assertEquals("r1", batcher.submit(1).get(2, TimeUnit.SECONDS));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(List.of(List.of(1)), batches);
+    }
+
+    @Test
+    void submit_queuedItemsAreBatchedAndDemultiplexed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        batcher = new MicroBatcher<>("test", 4, Duration.ofSeconds(1), items -> {
+            if (items.contains(0)) {
+                await(release);
+            }
+            return echo(items);
+        }, registry);
+
+        CompletableFuture<String> first = batcher.submit(0);
+        waitFor(() -> batches.isEmpty() && registry.get("tagmind.batch.size").summary().count() == 1);
+        List<CompletableFuture<String>> rest = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            rest.add(batcher.submit(i));
+        }
+        release.countDown();
+
+        assertEquals("r0", first.get(2, TimeUnit.SECONDS));
+        for (int i = 1; i <= 6; i++) {
+            assertEquals("r" + i, rest.get(i - 1).get(2, TimeUnit.SECONDS));
+        }
+        assertTrue(batches.stream().allMatch(b -> b.size() <= 4));
+        assertTrue(batches.size() < 7, "expected the six queued items to share batches: " + batches);
+    }
+
+    @Test
+    void submit_batchFailureFailsEveryItem() {
+        batcher = new MicroBatcher<>("test", 4, Duration.ofMillis(1), items -> {
+            throw new IllegalStateException("down");
+        }, registry);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> batcher.submit(1).get(2, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+    }
+
+    private List<String> echo(List<Integer> items) {
+        batches.add(List.copyOf(items));
+        return items.stream().map(i -> "r" + i).toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,64 @@
+package dev.tagmind.orchestrator.conversations;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptTemplateTest {
+
+    @Test
+    void render_substitutesPayloadAndFallback() {
+        PromptTemplate template = PromptTemplate.parse("Plan for: {payload|something}.");
+
+        assertEquals("Plan for: trip.", template.render(new PromptTemplate.Values("trip", List.of(), List.of(), null)));
+        assertEquals("Plan for: something.", template.render(new PromptTemplate.Values(null, List.of(), List.of(), null)));
+        assertTrue(template.uses(PromptTemplate.Slot.PAYLOAD));
+    }
+
+    @Test
+    void render_sectionOnlyWhenSlotPresent() {
+        PromptTemplate template = PromptTemplate.parse("{?history}Context:\n{history}\n{/history}Text: {payload}");
+        List<TagPromptBuilder.HistoryEntry> history = List.of(
+                new TagPromptBuilder.HistoryEntry("IN", "a", "t1"),
+                new TagPromptBuilder.HistoryEntry("OUT", "b", "t2")
+        );
+
+        assertEquals("Context:\nIN: a\nOUT: b\nText: x", template.render(new PromptTemplate.Values("x", history, List.of(), null)));
+        assertEquals("Text: x", template.render(new PromptTemplate.Values("x", List.of(), List.of(), null)));
+    }
+
+    @Test
+    void render_citationsAreNumbered() {
+        PromptTemplate template = PromptTemplate.parse("{citations}");
+        List<RetrieverClient.RetrieverResult> citations = List.of(
+                new RetrieverClient.RetrieverResult("T1", "S1", "u1", "example", null),
+                new RetrieverClient.RetrieverResult("T2", "S2", "u2", "example", null)
+        );
+
+        assertEquals("[1] T1 — S1 (u1)\n[2] T2 — S2 (u2)", template.render(new PromptTemplate.Values(null, List.of(), citations, null)));
+    }
+
+    @Test
+    void prefix_isLeadingLiteralAndEveryRenderStartsWithIt() {
+        PromptTemplate template = PromptTemplate.parse("Judge fairly.\n{?payload}Topic: {payload}\n{/payload}History:\n{history}");
+        PromptTemplate edited = PromptTemplate.parse("Judge very fairly.\n{history}");
+
+        assertEquals("Judge fairly.\n", template.prefix());
+        assertTrue(template.render(new PromptTemplate.Values("x", List.of(), List.of(), null)).startsWith(template.prefix()));
+        assertEquals(16, template.prefixHash().length());
+        assertNotEquals(template.prefixHash(), edited.prefixHash());
+        assertEquals("", PromptTemplate.parse("{payload} tail").prefix());
+    }
+
+    @Test
+    void parse_rejectsUnknownSlotsAndUnbalancedSections() {
+        assertThrows(IllegalArgumentException.class, () -> PromptTemplate.parse("{nope}"));
+        assertThrows(IllegalArgumentException.class, () -> PromptTemplate.parse("{?history}open"));
+        assertThrows(IllegalArgumentException.class, () -> PromptTemplate.parse("{?history}x{/payload}"));
+    }
+}
@@ -0,0 +1,52 @@
+package dev.tagmind.orchestrator.conversations;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RelevantHistorySelectorTest {
+
+    @Test
+    void select_keepsRelevantOlderMessagesAndRecentTailInChatOrder() {
+        List<TagPromptBuilder.HistoryEntry> history = new ArrayList<>();
+        history.add(entry("IN", "Давай обсудим бюджет на отпуск в Италии"));
+        for (int i = 0; i < 20; i++) {
+            history.add(entry("IN", "сообщение про погоду " + i));
+        }
+        history.add(entry("OUT", "Бюджета на Италию хватит, если лететь в мае"));
+        history.add(entry("IN", "ок"));
+        history.add(entry("OUT", "хорошо"));
+
+        List<TagPromptBuilder.HistoryEntry> selected = RelevantHistorySelector.select(history, "бюджет Италия", 2, 2);
+
+        assertEquals(List.of(
+                history.get(0),
+                history.get(21),
+                history.get(22),
+                history.get(23)
+        ), selected);
+    }
+
+    @Test
+    void select_withoutPayloadFallsBackToLastN() {
+        List<TagPromptBuilder.HistoryEntry> history = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            history.add(entry("IN", "m" + i));
+        }
+
+        assertEquals(history.subList(7, 10), RelevantHistorySelector.select(history, null, 3, 2));
+        assertEquals(history.subList(7, 10), RelevantHistorySelector.select(history, "  ", 3, 2));
+    }
+
+    @Test
+    void terms_lowercasePrefixStems() {
+        assertEquals(List.of("бюдже", "отпус", "fligh"), RelevantHistorySelector.terms("Бюджета, отпуска! a flights"));
+    }
+
+    private static TagPromptBuilder.HistoryEntry entry(String direction, String text) {
+        return new TagPromptBuilder.HistoryEntry(direction, text, "t");
+    }
+}
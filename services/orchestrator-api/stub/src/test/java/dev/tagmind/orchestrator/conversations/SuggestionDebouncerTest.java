@@ -0,0 +1,126 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestionDebouncerTest {
+
+    private final SuggestionDebouncer debouncer =
+            new SuggestionDebouncer(true, Duration.ofMillis(200), Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+    @Test
+    void burst_generatesOnceOverAllMessages() throws Exception {
+        List<String> prompts = new CopyOnWriteArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Optional<String>> first = pool.submit(() -> debouncer.submit("tg:1", "hi", echo(prompts)));
+            Thread.sleep(30);
+            Future<Optional<String>> second = pool.submit(() -> debouncer.submit("tg:1", "are you there", echo(prompts)));
+            Thread.sleep(30);
+            Future<Optional<String>> third = pool.submit(() -> debouncer.submit("tg:1", "?", echo(prompts)));
+
+            assertEquals(Optional.empty(), first.get(5, TimeUnit.SECONDS));
+            assertEquals(Optional.empty(), second.get(5, TimeUnit.SECONDS));
+            assertEquals(Optional.of("re: hi\nare you there\n?"), third.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of("hi\nare you there\n?"), prompts);
+
+        // The burst is closed: the next message starts a new one.
+        assertEquals(Optional.of("re: later"), debouncer.submit("tg:1", "later", echo(prompts)));
+    }
+
+    @Test
+    void newMessage_cancelsInFlightGeneration() throws Exception {
+        CountDownLatch generating = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Optional<String>> first = pool.submit(() -> debouncer.submit("tg:2", "one", text -> {
+                generating.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException ex) {
+                    interrupted.countDown();
+                }
+                return "stale";
+            }));
+            assertTrue(generating.await(5, TimeUnit.SECONDS));
+
+            Optional<String> second = debouncer.submit("tg:2", "two", text -> "re: " + text);
+
+            assertEquals(Optional.of("re: one\ntwo"), second);
+            assertEquals(Optional.empty(), first.get(5, TimeUnit.SECONDS));
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void interruptedCaller_dropsItsMessagesFromTheBurst() throws Exception {
+        CountDownLatch generating = new CountDownLatch(1);
+        Thread first = Thread.ofVirtual().start(() -> {
+            try {
+                debouncer.submit("tg:3", "one", text -> {
+                    generating.countDown();
+                    sleep(10_000);
+                    return "stale";
+                });
+            } catch (InterruptedException expected) {
+                // The caller gave up.
+            }
+        });
+        assertTrue(generating.await(5, TimeUnit.SECONDS));
+        first.interrupt();
+        first.join(5_000);
+
+        List<String> prompts = new CopyOnWriteArrayList<>();
+        assertEquals(Optional.of("re: two"), debouncer.submit("tg:3", "two", echo(prompts)));
+        assertEquals(List.of("two"), prompts);
+    }
+
+    @Test
+    void callerInterruptedWhileDebouncing_dropsItsMessagesFromTheBurst() throws Exception {
+        List<String> prompts = new CopyOnWriteArrayList<>();
+        Thread first = Thread.ofVirtual().start(() -> {
+            try {
+                debouncer.submit("tg:4", "one", echo(prompts));
+            } catch (InterruptedException expected) {
+                // The caller gave up.
+            }
+        });
+        while (first.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        first.interrupt();
+        first.join(5_000);
+
+        assertEquals(Optional.of("re: two"), debouncer.submit("tg:4", "two", echo(prompts)));
+        assertEquals(List.of("two"), prompts);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Function<String, String> echo(List<String> prompts) {
+        return text -> {
+            prompts.add(text);
+            return "re: " + text;
+        };
+    }
+}
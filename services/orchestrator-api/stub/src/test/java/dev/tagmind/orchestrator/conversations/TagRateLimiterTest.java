@@ -0,0 +1,90 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagRateLimiterTest {
+
+    final AtomicLong now = new AtomicLong();
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void tryAcquire_rejectsBurstAndRefills() {
+        TagRateLimiter limiter = limiter(bucket(2, 60), null, null, null);
+
+        assertTrue(limiter.tryAcquire("tg:1", "llm").allowed());
+        assertTrue(limiter.tryAcquire("tg:1", "help").allowed());
+        TagRateLimiter.Decision rejected = limiter.tryAcquire("tg:1", "llm");
+
+        assertEquals(TagRateLimiter.Scope.CONTACT, rejected.rejectedBy());
+        assertEquals(Duration.ofSeconds(1), rejected.retryAfter());
+        assertTrue(limiter.tryAcquire("tg:2", "llm").allowed());
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertTrue(limiter.tryAcquire("tg:1", "llm").allowed());
+    }
+
+    @Test
+    void tryAcquire_refundsContactWhenTagOrGlobalRejects() {
+        TagRateLimiter limiter = limiter(bucket(3, 60), bucket(1, 60), bucket(2, 60), null);
+
+        assertTrue(limiter.tryAcquire("tg:1", "web").allowed());
+        assertEquals(TagRateLimiter.Scope.CONTACT_TAG, limiter.tryAcquire("tg:1", "web").rejectedBy());
+        assertTrue(limiter.tryAcquire("tg:1", "llm").allowed());
+        assertEquals(TagRateLimiter.Scope.GLOBAL, limiter.tryAcquire("tg:1", "plan").rejectedBy());
+
+        // Two rejections were refunded, so the contact still has its last token.
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertTrue(limiter.tryAcquire("tg:1", "plan").allowed());
+        assertEquals(1.0, registry.get("tagmind.ratelimit.rejected").tag("scope", "global").counter().count());
+    }
+
+    @Test
+    void refund_returnsTheTokensOfAShedRequest() {
+        TagRateLimiter limiter = limiter(bucket(1, 60), bucket(1, 60), bucket(1, 60), null);
+
+        assertTrue(limiter.tryAcquire("tg:1", "llm").allowed());
+        limiter.refund("tg:1", "llm");
+
+        assertTrue(limiter.tryAcquire("tg:1", "llm").allowed());
+        assertEquals(TagRateLimiter.Scope.CONTACT, limiter.tryAcquire("tg:1", "llm").rejectedBy());
+    }
+
+    @Test
+    void chargePromptTokens_blocksUntilBudgetIsPositive() {
+        TagRateLimiter limiter = limiter(null, null, null, bucket(1000, 600));
+
+        assertTrue(limiter.tryAcquire("tg:1", "judge").allowed());
+        limiter.chargePromptTokens("tg:1", 1500);
+
+        TagRateLimiter.Decision rejected = limiter.tryAcquire("tg:1", "help");
+        assertEquals(TagRateLimiter.Scope.PROMPT_TOKENS, rejected.rejectedBy());
+        assertTrue(rejected.retryAfter().compareTo(Duration.ofSeconds(50)) > 0);
+
+        now.addAndGet(rejected.retryAfter().toNanos());
+        assertTrue(limiter.tryAcquire("tg:1", "help").allowed());
+    }
+
+    private TagRateLimiter limiter(
+            TagRateLimiter.BucketProperties contact,
+            TagRateLimiter.BucketProperties contactTag,
+            TagRateLimiter.BucketProperties global,
+            TagRateLimiter.BucketProperties promptTokens
+    ) {
+        return new TagRateLimiter(
+                new TagRateLimiter.Properties(true, 1000, contact, contactTag, global, promptTokens),
+                registry,
+                now::get
+        );
+    }
+
+    private static TagRateLimiter.BucketProperties bucket(double capacity, double perMinute) {
+        return new TagRateLimiter.BucketProperties(capacity, perMinute);
+    }
+}
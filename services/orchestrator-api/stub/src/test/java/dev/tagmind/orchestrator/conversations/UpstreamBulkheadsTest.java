@@ -0,0 +1,118 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamBulkheadsTest {
+
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final ExecutorService callers = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void run_freedSlotGoesToHigherPriorityClass() throws Exception {
+        UpstreamBulkheads bulkheads = bulkheads(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Future<?> holder = callers.submit(() -> bulkheads.run("heavy", () -> await(release)));
+        waitFor(() -> gauge("tagmind.upstream.active", "heavy") == 1);
+        Future<?> heavy = callers.submit(() -> bulkheads.run("heavy", () -> order.add("heavy")));
+        waitFor(() -> gauge("tagmind.upstream.queued", "heavy") == 1);
+        Future<?> interactive = callers.submit(() -> bulkheads.run("interactive", () -> order.add("interactive")));
+        waitFor(() -> gauge("tagmind.upstream.queued", "interactive") == 1);
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        heavy.get(5, TimeUnit.SECONDS);
+        interactive.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("interactive", "heavy"), order);
+        assertEquals(2, registry.get("tagmind.upstream.wait").tag("class", "heavy").timer().count());
+    }
+
+    @Test
+    void run_classLimitDoesNotStarveOtherClasses() throws Exception {
+        UpstreamBulkheads bulkheads = bulkheads(4);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> holder = callers.submit(() -> bulkheads.run("heavy", () -> await(release)));
+        waitFor(() -> gauge("tagmind.upstream.active", "heavy") == 1);
+
+        assertEquals("ok", bulkheads.run("interactive", () -> "ok"));
+        assertThrows(UpstreamRejectedException.class, () -> bulkheads.run("heavy", () -> "late"));
+        assertEquals(1.0, registry.get("tagmind.upstream.rejected").tag("class", "heavy").tag("reason", "timeout").counter().count());
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void run_interruptedWaiterLeavesTheQueue() throws Exception {
+        UpstreamBulkheads bulkheads = bulkheads(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> holder = callers.submit(() -> bulkheads.run("interactive", () -> await(release)));
+        waitFor(() -> gauge("tagmind.upstream.active", "interactive") == 1);
+        Future<?> waiter = callers.submit(() -> bulkheads.run("interactive", () -> "never"));
+        waitFor(() -> gauge("tagmind.upstream.queued", "interactive") == 1);
+
+        waiter.cancel(true);
+        waitFor(() -> gauge("tagmind.upstream.queued", "interactive") == 0);
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+
+        assertEquals("ok", bulkheads.run("interactive", () -> "ok"));
+        assertEquals(0.0, gauge("tagmind.upstream.active", "interactive"));
+    }
+
+    private UpstreamBulkheads bulkheads(int shared) {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("tagmind.upstream.classes.interactive.priority", "0")
+                .withProperty("tagmind.upstream.classes.interactive.max-wait", "2s")
+                .withProperty("tagmind.upstream.classes.heavy.priority", "1")
+                .withProperty("tagmind.upstream.classes.heavy.max-concurrent", "1")
+                .withProperty("tagmind.upstream.classes.heavy.max-wait", "200ms");
+        return new UpstreamBulkheads(env, new TagRegistry(env), shared, registry);
+    }
+
+    private double gauge(String name, String costClass) {
+        return registry.get(name).tag("class", costClass).gauge().value();
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,140 @@
+package dev.tagmind.orchestrator.conversations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamRetriesTest {
+
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final List<Long> sleeps = new ArrayList<>();
+    long now;
+
+    @Test
+    void call_retriesWithBoundedBackoffUntilSuccess() {
+        UpstreamRetries retries = retries(policy(4, true), new UpstreamRetries.BudgetProperties(0.1, 0.0, 10.0));
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retries.call("web-retriever", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ResourceAccessException("read timed out", new SocketTimeoutException("Read timed out"));
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2, sleeps.size());
+        assertTrue(sleeps.get(0) <= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(sleeps.get(1) <= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(1.0, count("tagmind.retry.calls", "success_after_retry"));
+        assertEquals(2.0, registry.get("tagmind.retry.retries").tag("upstream", "web-retriever").counter().count());
+    }
+
+    @Test
+    void call_nonIdempotentRetriesOnlyWhenRequestWasNotSent() {
+        UpstreamRetries retries = retries(policy(3, false), new UpstreamRetries.BudgetProperties(0.1, 0.0, 10.0));
+        AtomicInteger readTimeouts = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+
+        assertThrows(ResourceAccessException.class, () -> retries.call("web-retriever", () -> {
+            readTimeouts.incrementAndGet();
+            throw new ResourceAccessException("read timed out", new SocketTimeoutException("Read timed out"));
+        }));
+        assertThrows(ResourceAccessException.class, () -> retries.call("web-retriever", () -> {
+            refused.incrementAndGet();
+            throw new ResourceAccessException("refused", new ConnectException("Connection refused"));
+        }));
+
+        assertEquals(1, readTimeouts.get());
+        assertEquals(3, refused.get());
+    }
+
+    @Test
+    void call_honoursRetryAfterWithinMaxBackoff() {
+        UpstreamRetries retries = retries(policy(2, true), new UpstreamRetries.BudgetProperties(0.1, 0.0, 10.0));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        AtomicInteger calls = new AtomicInteger();
+
+        retries.call("web-retriever", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "busy", headers, null, null);
+            }
+            return "ok";
+        });
+
+        assertEquals(List.of(TimeUnit.SECONDS.toNanos(1)), sleeps);
+    }
+
+    @Test
+    void call_budgetStopsRetriesDuringBrownoutAndRefillsFromSuccesses() {
+        UpstreamRetries retries = retries(policy(3, true), new UpstreamRetries.BudgetProperties(0.5, 0.0, 2.0));
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(HttpServerErrorException.class, () -> retries.call("web-retriever", () -> {
+                calls.incrementAndGet();
+                throw HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "down", HttpHeaders.EMPTY, null, null);
+            }));
+        }
+        // Two tokens to start with: the first call retries twice, the rest fail after one attempt.
+        assertEquals(3 + 4, calls.get());
+        assertEquals(4.0, registry.get("tagmind.retry.budget.exhausted").tag("upstream", "web-retriever").counter().count());
+
+        retries.call("web-retriever", () -> "ok");
+        retries.call("web-retriever", () -> "ok");
+        calls.set(0);
+        assertThrows(HttpServerErrorException.class, () -> retries.call("web-retriever", () -> {
+            calls.incrementAndGet();
+            throw HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "down", HttpHeaders.EMPTY, null, null);
+        }));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void call_minPerSecondRefillsBudgetOverTime() {
+        UpstreamRetries retries = retries(policy(2, true), new UpstreamRetries.BudgetProperties(0.0, 1.0, 1.0));
+        AtomicInteger calls = new AtomicInteger();
+        Runnable failing = () -> assertThrows(HttpServerErrorException.class, () -> retries.call("web-retriever", () -> {
+            calls.incrementAndGet();
+            throw HttpServerErrorException.create(HttpStatus.GATEWAY_TIMEOUT, "slow", HttpHeaders.EMPTY, null, null);
+        }));
+
+        failing.run();
+        failing.run();
+        assertEquals(3, calls.get());
+
+        now += TimeUnit.SECONDS.toNanos(1);
+        failing.run();
+        assertEquals(5, calls.get());
+    }
+
+    private UpstreamRetries retries(UpstreamRetries.PolicyProperties policy, UpstreamRetries.BudgetProperties budget) {
+        return new UpstreamRetries(Map.of("web-retriever", policy), budget, registry, () -> now, sleeps::add);
+    }
+
+    private static UpstreamRetries.PolicyProperties policy(int maxAttempts, boolean idempotent) {
+        return new UpstreamRetries.PolicyProperties(maxAttempts, Duration.ofMillis(100), Duration.ofSeconds(1), 2.0, idempotent, null);
+    }
+
+    private double count(String name, String outcome) {
+        return registry.get(name).tag("upstream", "web-retriever").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,176 @@
+package dev.tagmind.orchestrator.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "tagmind.cache.enabled=true",
+        "tagmind.cache.invalidation.poll-interval=50ms",
+        "tagmind.cache.invalidation.heartbeat=200ms",
+        "tagmind.cache.invalidation.max-backoff=1s",
+        "tagmind.warmup.enabled=false"
+})
+class InvalidationBusIT {
+
+    private static final String TOPIC = "it";
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tagmind")
+            .withUsername("tagmind")
+            .withPassword("tagmind");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    InvalidationBus local;
+
+    @Autowired
+    DataSourceProperties dataSource;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // A second replica, listening on its own connection.
+    InvalidationBus remote;
+    Recorder localSeen;
+    Recorder remoteSeen;
+
+    @BeforeEach
+    void startRemote() throws InterruptedException {
+        remote = new InvalidationBus(dataSource, jdbc, true, "tagmind_invalidation",
+                Duration.ofMillis(50), Duration.ofMillis(200), Duration.ofSeconds(1), new SimpleMeterRegistry());
+        localSeen = new Recorder(local);
+        remoteSeen = new Recorder(remote);
+        local.subscribe(TOPIC, localSeen);
+        remote.subscribe(TOPIC, remoteSeen);
+        remote.start();
+        waitFor(() -> local.connected() && remote.connected());
+    }
+
+    @AfterEach
+    void stopRemote() throws InterruptedException {
+        remote.stop();
+    }
+
+    @Test
+    void publish_inTransaction_reachesOtherReplicasOnCommit() throws InterruptedException {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            local.publish(TOPIC, "k1");
+            sleep(300);
+            assertTrue(remoteSeen.keys.isEmpty(), "delivered before commit");
+            assertTrue(localSeen.keys.isEmpty(), "dispatched locally before commit");
+        });
+
+        waitFor(() -> remoteSeen.keys.contains("k1"));
+        // The publishing replica runs its own listeners once, right after the commit, and skips the echo.
+        Thread.sleep(300);
+        assertEquals(List.of("k1"), localSeen.keys);
+        assertEquals(List.of("k1"), remoteSeen.keys);
+    }
+
+    @Test
+    void publish_rolledBack_isNotDelivered() throws InterruptedException {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            local.publish(TOPIC, "k2");
+            status.setRollbackOnly();
+        });
+        local.publish(TOPIC, "k3");
+
+        waitFor(() -> remoteSeen.keys.contains("k3"));
+        assertEquals(List.of("k3"), remoteSeen.keys);
+        assertEquals(List.of("k3"), localSeen.keys);
+    }
+
+    @Test
+    void listenerTerminated_resetsOnDisconnectAndAgainOnReconnect() throws InterruptedException {
+        int before = remoteSeen.resets.size();
+
+        jdbc.queryForList("""
+                select pg_terminate_backend(pid)
+                from pg_stat_activity
+                where pid <> pg_backend_pid()
+                  and datname = current_database()
+                  and (query ilike 'LISTEN %' or query = 'select 1')
+                """);
+
+        waitFor(() -> remoteSeen.resets.size() >= before + 2 && remote.connected());
+        // Caches are bypassed whenever they are flushed: no entry loaded before the reconnect survives it.
+        assertFalse(remoteSeen.resets.subList(before, remoteSeen.resets.size()).contains(true));
+
+        local.publish(TOPIC, "k4");
+        waitFor(() -> remoteSeen.keys.contains("k4"));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Recorder implements InvalidationBus.Listener {
+        final InvalidationBus bus;
+        final List<String> keys = new CopyOnWriteArrayList<>();
+        // Whether the bus reported itself connected at each full reset.
+        final List<Boolean> resets = new CopyOnWriteArrayList<>();
+
+        Recorder(InvalidationBus bus) {
+            this.bus = bus;
+        }
+
+        @Override
+        public void invalidate(String key) {
+            keys.add(key);
+        }
+
+        @Override
+        public void invalidateAll() {
+            resets.add(bus.connected());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package dev.tagmind.orchestrator.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageArchiveCodecTest {
+
+    @Test
+    void encode_roundTripsAllColumnsIncludingNullsAndLongTexts() {
+        OffsetDateTime t0 = OffsetDateTime.of(2024, 3, 1, 12, 0, 0, 123_456_000, ZoneOffset.UTC);
+        List<MessageArchiveCodec.ArchivedMessage> messages = List.of(
+                new MessageArchiveCodec.ArchivedMessage(UuidV7.next(), "IN", "Привет, как дела?", t0, "req_1"),
+                new MessageArchiveCodec.ArchivedMessage(UuidV7.next(), "OUT", "x".repeat(70_000), t0.plusSeconds(1), null)
+        );
+
+        List<MessageArchiveCodec.ArchivedMessage> decoded = MessageArchiveCodec.decode(MessageArchiveCodec.encode(messages));
+
+        assertEquals(messages, decoded);
+    }
+
+    @Test
+    void encode_compressesRepetitiveChatHistory() {
+        OffsetDateTime t0 = OffsetDateTime.now(ZoneOffset.UTC).withNano(0);
+        List<MessageArchiveCodec.ArchivedMessage> messages = new ArrayList<>();
+        int rawBytes = 0;
+        for (int i = 0; i < 500; i++) {
+            String text = "Сообщение номер " + i + ": договорились встретиться завтра в офисе";
+            messages.add(new MessageArchiveCodec.ArchivedMessage(UuidV7.next(), i % 2 == 0 ? "IN" : "OUT", text, t0.plusSeconds(i), "req_" + i));
+            rawBytes += text.getBytes(StandardCharsets.UTF_8).length + 16 + 8;
+        }
+
+        byte[] payload = MessageArchiveCodec.encode(messages);
+
+        assertTrue(payload.length * 4 < rawBytes, "payload " + payload.length + " bytes vs " + rawBytes + " raw");
+        assertEquals(messages, MessageArchiveCodec.decode(payload));
+    }
+}
@@ -0,0 +1,125 @@
+package dev.tagmind.orchestrator.persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "tagmind.archive.enabled=false",
+        "tagmind.archive.older-than=7d",
+        "tagmind.archive.keep-latest=3",
+        "tagmind.archive.chunk-size=4",
+        "tagmind.warmup.enabled=false"
+})
+class MessageArchiverIT {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tagmind")
+            .withUsername("tagmind")
+            .withPassword("tagmind");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    MessageArchiver archiver;
+
+    @Autowired
+    ConversationHistoryQueries history;
+
+    UUID session;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from conversation_sessions where contact_id = 'tg:archive'");
+        session = jdbc.queryForObject(
+                "insert into conversation_sessions (contact_id, mode) values ('tg:archive', 'SUGGEST') returning id",
+                UUID.class
+        );
+        // m0..m9 are 30..21 days old, m10 and m11 are fresh.
+        for (int i = 0; i < 10; i++) {
+            insertMessage("m" + i, (30 - i) + " days");
+        }
+        insertMessage("m10", "1 hour");
+        insertMessage("m11", "1 minute");
+    }
+
+    @Test
+    void archive_movesColdMessagesInChunksAndKeepsLatestHot() {
+        int moved = archiver.archive();
+
+        // The newest three (m9, m10, m11) stay hot even though m9 is old.
+        assertEquals(9, moved);
+        assertEquals(3, jdbc.queryForObject("select count(*) from conversation_messages where session_id = ?", Integer.class, session));
+        assertEquals(List.of(4, 4, 1), jdbc.queryForList(
+                "select message_count from conversation_message_archive where session_id = ? order by last_created_at",
+                Integer.class,
+                session
+        ));
+        assertEquals(0, archiver.archive());
+    }
+
+    @Test
+    void coldSessions_skipsSessionsWhoseOldMessagesAreAllKept() {
+        OffsetDateTime cutoff = OffsetDateTime.now(ZoneOffset.UTC).minusDays(7);
+        assertTrue(archiver.coldSessions(cutoff, new UUID(0, 0), 100).contains(session));
+
+        archiver.archive();
+
+        // m9 is still older than the cutoff but is one of the newest three.
+        assertFalse(archiver.coldSessions(cutoff, new UUID(0, 0), 100).contains(session));
+    }
+
+    @Test
+    void findLatest_fallsThroughToArchiveInChatOrder() {
+        archiver.archive();
+
+        assertEquals(texts(9, 11), history.findLatest(session, 3, (direction, text, createdAt) -> text));
+        assertEquals(texts(4, 11), history.findLatest(session, 8, (direction, text, createdAt) -> text));
+        assertEquals(texts(0, 11), history.findLatest(session, 50, (direction, text, createdAt) -> text));
+    }
+
+    private void insertMessage(String text, String age) {
+        jdbc.update(
+                "insert into conversation_messages (session_id, direction, message_text, created_at) values (?, 'IN', ?, now() - ?::interval)",
+                session, text, age
+        );
+    }
+
+    private static List<String> texts(int from, int to) {
+        List<String> texts = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            texts.add("m" + i);
+        }
+        return texts;
+    }
+}
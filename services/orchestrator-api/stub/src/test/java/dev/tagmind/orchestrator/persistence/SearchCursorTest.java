@@ -0,0 +1,28 @@
+package dev.tagmind.orchestrator.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchCursorTest {
+
+    @Test
+    void encode_roundTripsExactRank() {
+        SearchCursor cursor = new SearchCursor(0.1f / 3, UuidV7.next());
+
+        SearchCursor decoded = SearchCursor.decode(cursor.encode()).orElseThrow();
+
+        assertEquals(Float.floatToIntBits(cursor.rank()), Float.floatToIntBits(decoded.rank()));
+        assertEquals(cursor.id(), decoded.id());
+    }
+
+    @Test
+    void decode_rejectsGarbage() {
+        assertTrue(SearchCursor.decode("%%%").isEmpty());
+        assertTrue(SearchCursor.decode("c2hvcnQ").isEmpty());
+        assertTrue(SearchCursor.decode(new SearchCursor(Float.NaN, UUID.randomUUID()).encode()).isEmpty());
+    }
+}
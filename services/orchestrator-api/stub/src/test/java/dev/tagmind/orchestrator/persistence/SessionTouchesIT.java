@@ -0,0 +1,89 @@
+package dev.tagmind.orchestrator.persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "tagmind.sessions.touch.interval=1h",
+        "tagmind.warmup.enabled=false"
+})
+class SessionTouchesIT {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tagmind")
+            .withUsername("tagmind")
+            .withPassword("tagmind");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    SessionTouches touches;
+
+    UUID session;
+
+    @BeforeEach
+    void seed() {
+        touches.flush();
+        jdbc.update("delete from conversation_sessions where contact_id = 'tg:touch'");
+        session = jdbc.queryForObject(
+                "insert into conversation_sessions (contact_id, mode, updated_at) values ('tg:touch', 'SUGGEST', now() - interval '1 day') returning id",
+                UUID.class
+        );
+    }
+
+    @Test
+    void touches_areCoalescedUntilFlush() {
+        OffsetDateTime before = updatedAt();
+
+        touches.touch(session);
+        touches.touch(session);
+        touches.touch(session);
+
+        assertEquals(before, updatedAt());
+        assertEquals(1, touches.flush());
+        assertTrue(updatedAt().isAfter(before.plusHours(23)));
+        assertEquals(0, touches.flush());
+    }
+
+    @Test
+    void flush_neverMovesUpdatedAtBackwards() {
+        jdbc.update("update conversation_sessions set updated_at = now() + interval '1 hour' where id = ?", session);
+        OffsetDateTime ahead = updatedAt();
+
+        touches.touch(session);
+        touches.flush();
+
+        assertEquals(ahead, updatedAt());
+    }
+
+    private OffsetDateTime updatedAt() {
+        return jdbc.queryForObject("select updated_at from conversation_sessions where id = ?", OffsetDateTime.class, session);
+    }
+}
@@ -0,0 +1,41 @@
+package dev.tagmind.orchestrator.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidV7Test {
+
+    @Test
+    void next_setsVersionAndVariant() {
+        UUID id = UuidV7.next();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+    }
+
+    @Test
+    void at_encodesMillisecondPrefix() {
+        Instant instant = Instant.parse("2025-01-02T03:04:05.678Z");
+
+        UUID id = UuidV7.at(instant);
+
+        assertEquals(instant.toEpochMilli(), id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void at_sortsByTime() {
+        Instant base = Instant.parse("2025-01-02T03:04:05Z");
+
+        UUID earlier = UuidV7.at(base);
+        UUID later = UuidV7.at(base.plusNanos(500_000));
+        UUID latest = UuidV7.at(base.plusMillis(1));
+
+        assertTrue(earlier.toString().compareTo(later.toString()) < 0);
+        assertTrue(later.toString().compareTo(latest.toString()) < 0);
+    }
+}
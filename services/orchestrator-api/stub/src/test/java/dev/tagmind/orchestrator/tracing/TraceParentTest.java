@@ -0,0 +1,77 @@
+package dev.tagmind.orchestrator.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceParentTest {
+
+    private static final String VALID = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    @Test
+    void parse_readsValidHeaderAndFormatsItBack() {
+        TraceParent parent = TraceParent.parse(VALID).orElseThrow();
+
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", parent.traceId());
+        assertEquals("00f067aa0ba902b7", parent.parentId());
+        assertTrue(parent.sampled());
+        assertEquals(VALID, parent.format());
+        assertFalse(TraceParent.parse(VALID.replace("-01", "-00")).orElseThrow().sampled());
+    }
+
+    @Test
+    void parse_rejectsMalformedAndAllZeroIds() {
+        assertTrue(TraceParent.parse(null).isEmpty());
+        assertTrue(TraceParent.parse("garbage").isEmpty());
+        assertTrue(TraceParent.parse(VALID.toUpperCase()).isEmpty());
+        assertTrue(TraceParent.parse(VALID + "-extra").isEmpty());
+        assertTrue(TraceParent.parse("ff" + VALID.substring(2)).isEmpty());
+        assertTrue(TraceParent.parse("00-" + "0".repeat(32) + "-00f067aa0ba902b7-01").isEmpty());
+        assertTrue(TraceParent.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-" + "0".repeat(16) + "-01").isEmpty());
+    }
+
+    @Test
+    void parse_acceptsFutureVersionWithTrailingFields() {
+        assertTrue(TraceParent.parse("01" + VALID.substring(2) + "-future").isPresent());
+    }
+
+    @Test
+    void spans_nestPropagateAcrossThreadsAndSumIntoServerTiming() throws InterruptedException {
+        List<Span.FinishedSpan> exported = new ArrayList<>();
+        Trace trace = new Trace(Span.newTraceId(), true, exported::add);
+
+        assertNull(Span.traceparent());
+        assertEquals(Span.start("orphan"), Span.start("orphan"));
+
+        try (Span root = Span.root(trace, "POST /v1/tag", null)) {
+            try (Span child = Span.startClient("llm")) {
+                child.tag("attempt", 1);
+                assertTrue(Span.traceparent().startsWith("00-" + trace.traceId() + "-"));
+            }
+            Thread worker = new Thread(Span.wrap(() -> {
+                try (Span ignored = Span.start("history")) {
+                    // timed
+                }
+            }));
+            worker.start();
+            worker.join();
+
+            String timing = trace.serverTiming(root.elapsedNanos());
+            assertTrue(timing.matches("llm;dur=\\d+\\.\\d, history;dur=\\d+\\.\\d, total;dur=\\d+\\.\\d"), timing);
+        }
+
+        assertNull(Span.traceparent());
+        assertEquals(3, exported.size());
+        Span.FinishedSpan root = exported.get(2);
+        assertEquals(Span.Kind.SERVER, root.kind());
+        assertEquals(root.spanId(), exported.get(0).parentId());
+        assertEquals(root.spanId(), exported.get(1).parentId());
+        assertEquals("1", exported.get(0).attributes().get("attempt"));
+    }
+}
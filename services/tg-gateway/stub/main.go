@@ -18,6 +18,7 @@ type AckResponse struct {
 	Ignored   bool   `json:"ignored,omitempty"`
 	Decision  string `json:"decision,omitempty"`
 	ReplyText string `json:"replyText,omitempty"`
+	JobID     string `json:"jobId,omitempty"`
 }
 
 type DevMessageRequest struct {
@@ -220,6 +221,7 @@ func main() {
 			Payload:   cmd.Payload,
 			Locale:    "ru-RU",
 			Text:      text,
+			Async:     orchestratorClient.async,
 		})
 		if err != nil {
 			log.Printf("orchestrator tag call failed (webhook): %v", err)
@@ -236,6 +238,49 @@ func main() {
 			OK:        true,
 			Decision:  tagResp.Decision,
 			ReplyText: tagResp.ReplyText,
+			JobID:     tagResp.JobID,
+		})
+	})
+
+	// Async tag results pushed by orchestrator (ORCHESTRATOR_TAG_CALLBACK_URL points here).
+	mux.HandleFunc("/v1/tg/orchestrator/tag-result", func(w http.ResponseWriter, r *http.Request) {
+		reqID := getOrCreateRequestID(r)
+
+		if r.Method != http.MethodPost {
+			writeJSON(w, http.StatusBadRequest, reqID, map[string]any{
+				"requestId": reqID,
+				"code":      "BAD_REQUEST",
+				"message":   "Method must be POST",
+			})
+			return
+		}
+
+		var result TagJobResult
+		if err := json.NewDecoder(io.LimitReader(r.Body, 2<<20)).Decode(&result); err != nil || result.JobID == "" {
+			writeJSON(w, http.StatusBadRequest, reqID, map[string]any{
+				"requestId": reqID,
+				"code":      "BAD_REQUEST",
+				"message":   "Invalid job result",
+			})
+			return
+		}
+
+		// The stub has no Telegram client yet, so the reply is only logged here.
+		switch {
+		case result.Result != nil:
+			log.Printf("tag job %s %s contact=%s tag=%s decision=%s reply_len=%d",
+				result.JobID, result.Status, result.ContactID, result.Tag, result.Result.Decision, len(result.Result.ReplyText))
+		case result.Error != nil:
+			log.Printf("tag job %s %s contact=%s tag=%s code=%s message=%s",
+				result.JobID, result.Status, result.ContactID, result.Tag, result.Error.Code, result.Error.Message)
+		default:
+			log.Printf("tag job %s %s contact=%s tag=%s", result.JobID, result.Status, result.ContactID, result.Tag)
+		}
+
+		writeJSON(w, http.StatusOK, reqID, AckResponse{
+			RequestID: reqID,
+			OK:        true,
+			JobID:     result.JobID,
 		})
 	})
 
@@ -20,6 +20,7 @@ type TagCommandPayload struct {
 	Payload   string `json:"payload,omitempty"`
 	Locale    string `json:"locale,omitempty"`
 	Text      string `json:"text,omitempty"`
+	Async     bool   `json:"async,omitempty"`
 }
 
 type TagCommandResponse struct {
@@ -29,11 +30,29 @@ type TagCommandResponse struct {
 	ContactID string `json:"contactId"`
 	SessionID string `json:"sessionId"`
 	Tag       string `json:"tag"`
+	JobID     string `json:"jobId,omitempty"`
+	Status    string `json:"status,omitempty"`
+}
+
+// TagJobResult is the body orchestrator POSTs to the callback URL when an async tag job finishes.
+type TagJobResult struct {
+	JobID     string              `json:"jobId"`
+	Status    string              `json:"status"`
+	RequestID string              `json:"requestId"`
+	ContactID string              `json:"contactId"`
+	Tag       string              `json:"tag"`
+	Result    *TagCommandResponse `json:"result,omitempty"`
+	Error     *struct {
+		Code    string `json:"code"`
+		Message string `json:"message"`
+	} `json:"error,omitempty"`
 }
 
 type orchestratorClient struct {
 	httpClient *http.Client
 	tagURL     string
+	// async makes webhook tag calls return 202 with a job id; the reply arrives on the callback endpoint.
+	async bool
 }
 
 func newOrchestratorClient() *orchestratorClient {
@@ -56,6 +75,7 @@ func newOrchestratorClient() *orchestratorClient {
 			},
 		},
 		tagURL: tagURL,
+		async:  strings.EqualFold(strings.TrimSpace(os.Getenv("ORCHESTRATOR_TAG_ASYNC")), "true"),
 	}
 }
 
@@ -92,6 +112,12 @@ func (c *orchestratorClient) sendTagRequest(ctx context.Context, requestID strin
 	if err := json.NewDecoder(resp.Body).Decode(&tagResp); err != nil {
 		return nil, fmt.Errorf("decode orchestrator response: %w", err)
 	}
+	if resp.StatusCode == http.StatusAccepted {
+		if tagResp.JobID == "" {
+			return nil, errors.New("orchestrator accepted tag without jobId")
+		}
+		return &tagResp, nil
+	}
 	if tagResp.ReplyText == "" && !strings.EqualFold(tagResp.Decision, "DO_NOT_RESPOND") {
 		return nil, errors.New("orchestrator response missing replyText")
 	}
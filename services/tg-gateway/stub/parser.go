@@ -16,14 +16,15 @@ var (
 const tagmindPrefix = "@tagmind"
 
 var supportedTags = map[string]struct{}{
-	"help":  {},
-	"llm":   {},
-	"web":   {},
-	"recap": {},
-	"judge": {},
-	"fix":   {},
-	"plan":  {},
-	"safe":  {},
+	"help":   {},
+	"llm":    {},
+	"web":    {},
+	"recap":  {},
+	"judge":  {},
+	"fix":    {},
+	"plan":   {},
+	"safe":   {},
+	"search": {},
 }
 
 type TagCommand struct {
@@ -48,6 +48,15 @@ func TestParseTagCommand(t *testing.T) {
 				Payload: "check arguments",
 			},
 		},
+		{
+			name:  "search with count and payload",
+			input: "@tagmind search[3]: отпуск",
+			want: &TagCommand{
+				Tag:     "search",
+				Count:   mustPtr(3),
+				Payload: "отпуск",
+			},
+		},
 		{
 			name:  "fix without colon",
 			input: "@tagmind fix[5] refine wording please",